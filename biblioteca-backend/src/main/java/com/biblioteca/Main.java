@@ -1,6 +1,9 @@
 package com.biblioteca;
 
 import java.time.LocalDateTime;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import com.biblioteca.consola.MenuConsola;
 import com.biblioteca.dominio.entidades.DVD;
@@ -20,12 +23,21 @@ import com.biblioteca.dominio.entidades.Revista;
 import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.repositorios.IRepositorio;
 import com.biblioteca.repositorios.IRepositorioFactory;
-import com.biblioteca.repositorios.RepositorioEnMemoriaFactory;
+import com.biblioteca.repositorios.IRepositorioMaterial;
+import com.biblioteca.repositorios.IRepositorioMensajeSalida;
+import com.biblioteca.repositorios.IRepositorioReserva;
+import com.biblioteca.repositorios.IUnidadTrabajo;
+import com.biblioteca.repositorios.FabricaRepositorios;
 
 import com.biblioteca.servicios.calculadores.CalculadorMultaPorDano;
 import com.biblioteca.servicios.calculadores.CalculadorMultaPorPerdida;
 import com.biblioteca.servicios.calculadores.CalculadorMultaPorRetraso;
+import com.biblioteca.servicios.externos.ClienteSmtp;
+import com.biblioteca.servicios.externos.SistemaEmailExterno;
+import com.biblioteca.servicios.implementaciones.BandejaSalidaNotificacionService;
 import com.biblioteca.servicios.implementaciones.CalculadorCostoDanoService;
+import com.biblioteca.servicios.implementaciones.CuentaUsuarioService;
+import com.biblioteca.servicios.implementaciones.DespachadorNotificaciones;
 import com.biblioteca.servicios.implementaciones.DevolucionService;
 import com.biblioteca.servicios.implementaciones.DisponibilidadStandardService;
 import com.biblioteca.servicios.implementaciones.GestorBloqueoService;
@@ -33,8 +45,10 @@ import com.biblioteca.servicios.implementaciones.GestorMultasService;
 
 import com.biblioteca.servicios.implementaciones.LimitePorTipoUsuarioService;
 import com.biblioteca.servicios.implementaciones.NotificacionEmailService;
+import com.biblioteca.servicios.implementaciones.PlanificadorVencimientosService;
 import com.biblioteca.servicios.implementaciones.PoliticaTiempoPorTipoService;
 import com.biblioteca.servicios.implementaciones.PrestamoService;
+import com.biblioteca.servicios.implementaciones.RelayBandejaSalida;
 import com.biblioteca.servicios.implementaciones.RenovacionService;
 import com.biblioteca.servicios.implementaciones.ReservaService;
 import com.biblioteca.servicios.implementaciones.ValidadorReglasService;
@@ -43,6 +57,7 @@ import com.biblioteca.servicios.implementaciones.reglas.ReglaMaterialDisponible;
 import com.biblioteca.servicios.implementaciones.reglas.ReglaMaterialExiste;
 import com.biblioteca.servicios.implementaciones.reglas.ReglaUsuarioActivo;
 import com.biblioteca.servicios.interfaces.ICalculadorCostoDanoService;
+import com.biblioteca.servicios.interfaces.ICuentaUsuarioService;
 import com.biblioteca.servicios.interfaces.IDevolucionService;
 import com.biblioteca.servicios.interfaces.IDisponibilidadService;
 import com.biblioteca.servicios.interfaces.IGestorBloqueoService;
@@ -55,6 +70,9 @@ import com.biblioteca.servicios.interfaces.IRenovacionService;
 import com.biblioteca.servicios.interfaces.IReservaService;
 import com.biblioteca.servicios.interfaces.IServicioReportes;
 import com.biblioteca.servicios.implementaciones.ServicioReportes;
+import com.biblioteca.servicios.implementaciones.EstadisticasEnVivo;
+import com.biblioteca.servicios.implementaciones.AutocompletadoService;
+import com.biblioteca.servicios.interfaces.IAutocompletadoService;
 
 public class Main {
 
@@ -64,19 +82,37 @@ public class Main {
                 System.out.println("======================================");
         // FACTORY DE REPOSITORIOS
         // Usamos una fábrica para abstraer la creación de repositorios
-        IRepositorioFactory repoFactory = new RepositorioEnMemoriaFactory();
+        // (memoria o archivo, según -Dbiblioteca.repositorio)
+        IRepositorioFactory repoFactory = FabricaRepositorios.obtenerFabrica();
+        // Un solo hook de cierre, en orden inverso al de creación: los que
+        // escriben (relay, planificador) terminan antes de cerrar la bitácora
+        Deque<AutoCloseable> cierres = new ConcurrentLinkedDeque<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> cerrarEnOrden(cierres)));
+        if (repoFactory instanceof AutoCloseable) {
+            cierres.push((AutoCloseable) repoFactory);
+        }
         
-        IRepositorio<Material> repoMaterial = repoFactory.crearRepositorioMaterial();
+        IRepositorioMaterial repoMaterial = repoFactory.crearRepositorioMaterial();
         IRepositorio<Usuario> repoUsuario = repoFactory.crearRepositorioUsuario();
         IRepositorio<Prestamo> repoPrestamo = repoFactory.crearRepositorioPrestamo();
-        IRepositorio<Reserva> repoReserva = repoFactory.crearRepositorioReserva();
+        IRepositorioReserva repoReserva = repoFactory.crearRepositorioReserva();
         IRepositorio<Multa> repoMulta = repoFactory.crearRepositorioMulta();
+        IRepositorioMensajeSalida repoMensajeSalida = repoFactory.crearRepositorioMensajeSalida();
+        IUnidadTrabajo unidadTrabajo = repoFactory.crearUnidadTrabajo();
                 // 2. CREAR SERVICIOS BASE
                 IDisponibilidadService disponibilidadService = new DisponibilidadStandardService(repoMaterial,
                                 repoPrestamo);
                 ILimitePrestamoService limiteService = new LimitePorTipoUsuarioService(repoUsuario, repoPrestamo);
                 IPoliticaTiempoService politicaTiempoService = new PoliticaTiempoPorTipoService();
-                INotificacionService notificacionService = new NotificacionEmailService();
+                // Las notificaciones van a la bandeja de salida (se confirman con
+                // la operación); el relay las pasa al despachador, que las envía
+                // por tandas, y las borra cuando se entregaron
+                INotificacionService notificacionService = new BandejaSalidaNotificacionService(repoMensajeSalida);
+                DespachadorNotificaciones despachador = new DespachadorNotificaciones(
+                                new NotificacionEmailService(crearSistemaEmail(), repoUsuario));
+                cierres.push(despachador::close);
+                RelayBandejaSalida relaySalida = new RelayBandejaSalida(repoMensajeSalida, despachador);
+                cierres.push(relaySalida::close);
                 // 3. CREAR CALCULADOR DE COSTOS DE DAÑOS
                 ICalculadorCostoDanoService calculadorCostoDano = new CalculadorCostoDanoService();
                 // 4. CREAR CALCULADORES DE MULTAS (STRATEGY PATTERN)
@@ -84,11 +120,10 @@ public class Main {
                 CalculadorMultaPorDano calculadorDano = new CalculadorMultaPorDano(calculadorCostoDano);
                 CalculadorMultaPorPerdida calculadorPerdida = new CalculadorMultaPorPerdida(repoMaterial, repoUsuario);
                 // 5. CREAR SERVICIOS DE BLOQUEO E INSPECCIÓN
+                ICuentaUsuarioService cuentaUsuarioService = new CuentaUsuarioService(repoMulta, repoPrestamo);
                 IGestorBloqueoService gestorBloqueo = new GestorBloqueoService(
                                 repoUsuario,
-                                repoMulta,
-                                repoPrestamo // ← Este parámetro faltaba
-                );
+                                cuentaUsuarioService);
                 // 6. CREAR GESTOR DE MULTAS Y REGISTRAR CALCULADORES
                 com.biblioteca.servicios.interfaces.IGestorMultasService gestorMultas = new GestorMultasService(repoMulta, repoUsuario, gestorBloqueo);
                 gestorMultas.registrarCalculador(calculadorRetraso);
@@ -116,7 +151,13 @@ public class Main {
                                 politicaTiempoService);
 
                 IReservaService reservaService = new ReservaService(
-                                repoReserva, repoMaterial, disponibilidadService, validadorReglas, notificacionService);
+                                repoReserva, repoMaterial, disponibilidadService, validadorReglas, notificacionService,
+                                unidadTrabajo);
+
+                // Vencimientos a su hora (reservas, recordatorios, licencias)
+                PlanificadorVencimientosService planificador = new PlanificadorVencimientosService(
+                                repoReserva, repoPrestamo, repoMaterial, reservaService, notificacionService);
+                cierres.push(planificador::close);
 
                 IPrestamoService prestamoService = new PrestamoService(
                                 validadorReglas, disponibilidadService, politicaTiempoService,
@@ -124,29 +165,70 @@ public class Main {
 
                 IDevolucionService devolucionService = new DevolucionService(
                                 gestorMultas, repoPrestamo, repoMaterial, repoUsuario,
-                                repoMulta, reservaService, notificacionService, gestorBloqueo);
+                                repoMulta, reservaService, notificacionService, gestorBloqueo, unidadTrabajo);
+
+                // Contadores del tablero, mantenidos por los observadores de los repositorios
+                EstadisticasEnVivo estadisticas = new EstadisticasEnVivo(
+                                repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta);
+                cierres.push(estadisticas::close);
 
                 IServicioReportes servicioReportes = new ServicioReportes(
                                 repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta,
-                                limiteService, politicaTiempoService);
+                                limiteService, politicaTiempoService, estadisticas);
                 // 7. CREAR FACHADAS ESPECIALIZADAS
                 com.biblioteca.servicios.interfaces.IBibliotecaFacade bibliotecaFacade = new com.biblioteca.servicios.BibliotecaFacade(
                                 prestamoService, devolucionService, reservaService, renovacionService);
 
+                IAutocompletadoService autocompletado = new AutocompletadoService(
+                                repoMaterial, repoUsuario, repoPrestamo);
+
                 com.biblioteca.servicios.interfaces.IConsultaFacade consultaFacade = new com.biblioteca.servicios.ConsultaFacade(
                                 repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta,
-                                disponibilidadService, servicioReportes);
+                                disponibilidadService, servicioReportes, autocompletado);
 
                 com.biblioteca.servicios.interfaces.IAdministracionFacade adminFacade = new com.biblioteca.servicios.AdministracionFacade(
                                 repoMaterial, repoUsuario, gestorBloqueo, gestorMultas);
-                // 8. CARGAR DATOS DE EJEMPLO
-                cargarDatosEjemplo(repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta);
+                // 8. CARGAR DATOS DE EJEMPLO (solo si el almacenamiento está vacío)
+                if (repoMaterial.contar() == 0 && repoUsuario.contar() == 0) {
+                        repoFactory.importarDatos(() -> cargarDatosEjemplo(
+                                        repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta));
+                } else {
+                        System.out.println("\nDatos recuperados: " + repoMaterial.contar() + " materiales, "
+                                        + repoUsuario.contar() + " usuarios, " + repoPrestamo.contar() + " préstamos");
+                }
                 // 9. INICIAR MENÚ DE CONSOLA (solo 3 fachadas)
                 MenuConsola menu = new MenuConsola(bibliotecaFacade, consultaFacade, adminFacade);
 
                 menu.iniciar();
         }
 
+        /**
+         * Con -Dbiblioteca.smtp=host:puerto los correos salen por SMTP (por
+         * ejemplo hacia ServidorSmtpFalso); si no, por la API externa.
+         */
+        private static SistemaEmailExterno crearSistemaEmail() {
+                String smtp = System.getProperty("biblioteca.smtp");
+                if (smtp == null || smtp.isBlank()) {
+                        return new SistemaEmailExterno();
+                }
+                int separador = smtp.lastIndexOf(':');
+                return separador < 0
+                                ? new ClienteSmtp(smtp, 25)
+                                : new ClienteSmtp(smtp.substring(0, separador),
+                                                Integer.parseInt(smtp.substring(separador + 1)));
+        }
+
+        private static void cerrarEnOrden(Deque<AutoCloseable> cierres) {
+                AutoCloseable siguiente;
+                while ((siguiente = cierres.poll()) != null) {
+                        try {
+                                siguiente.close();
+                        } catch (Exception e) {
+                                System.out.println("Error al cerrar: " + e.getMessage());
+                        }
+                }
+        }
+
         private static void cargarDatosEjemplo(
                         IRepositorio<Material> repoMaterial,
                         IRepositorio<Usuario> repoUsuario,
@@ -176,15 +258,8 @@ public class Main {
                 EBook ebook2 = new EBook(("MAT-000009"), "The Pragmatic Programmer", "David Thomas",
                                 "http://biblioteca.com/ebooks/pragmatic", 3, LocalDateTime.now().plusMonths(3), 60000.0);
 
-                repoMaterial.agregar(libro1);
-                repoMaterial.agregar(libro2);
-                repoMaterial.agregar(libro3);
-                repoMaterial.agregar(dvd1);
-                repoMaterial.agregar(dvd2);
-                repoMaterial.agregar(revista1);
-                repoMaterial.agregar(revista2);
-                repoMaterial.agregar(ebook1);
-                repoMaterial.agregar(ebook2);
+                repoMaterial.agregarLote(List.of(libro1, libro2, libro3, dvd1, dvd2,
+                                revista1, revista2, ebook1, ebook2));
                 // USUARIOS
                 Estudiante estudiante1 = new Estudiante(("USR-000001"), "Juan Pérez", "juan@email.com",
                                 "Ingeniería", 5, "Universidad Nacional");
@@ -200,12 +275,8 @@ public class Main {
                 PublicoGeneral publico1 = new PublicoGeneral(("USR-000006"), "Sofía López", "sofia@email.com",
                                 "Calle 123 #45-67", "Pedro López");
 
-                repoUsuario.agregar(estudiante1);
-                repoUsuario.agregar(estudiante2);
-                repoUsuario.agregar(profesor1);
-                repoUsuario.agregar(profesor2);
-                repoUsuario.agregar(investigador1);
-                repoUsuario.agregar(publico1);
+                repoUsuario.agregarLote(List.of(estudiante1, estudiante2, profesor1, profesor2,
+                                investigador1, publico1));
                 // PRÉSTAMOS DE EJEMPLO
                 LocalDateTime hoy = LocalDateTime.now();
 
@@ -289,4 +360,4 @@ public class Main {
                 System.out.println("     Días de retraso: 15\n");
         }
 }
-
+
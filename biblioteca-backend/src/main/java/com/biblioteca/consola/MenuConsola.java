@@ -4,7 +4,10 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.DVD;
 import com.biblioteca.dominio.entidades.EBook;
@@ -23,8 +26,10 @@ import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.EstadoMulta;
 import com.biblioteca.dominio.enumeraciones.NivelGravedad;
 import com.biblioteca.dominio.enumeraciones.TipoDano;
+import com.biblioteca.dominio.objetosvalor.BusquedaCatalogo;
 import com.biblioteca.dominio.objetosvalor.Dano;
 import com.biblioteca.dominio.objetosvalor.Evaluacion;
+import com.biblioteca.dominio.objetosvalor.Pagina;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.servicios.interfaces.IBibliotecaFacade;
 import com.biblioteca.servicios.interfaces.IAdministracionFacade;
@@ -35,6 +40,8 @@ public class MenuConsola {
     private final Scanner scanner;
     private boolean ejecutando;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int TAMANO_PAGINA = 20;
+    private static final int LIMITE_RESULTADOS = 50;
 
     // Solo 3 fachadas — ningún repositorio ni servicio directo
     private final IBibliotecaFacade bibliotecaFacade;
@@ -166,8 +173,8 @@ public class MenuConsola {
     }
 
     private void listarMateriales() {
-        List<Material> materiales = consultaFacade.listarMateriales();
-        if (materiales.isEmpty()) {
+        Pagina<Material> pagina = consultaFacade.listarMateriales(null, TAMANO_PAGINA);
+        if (pagina.estaVacia()) {
             System.out.println("\nNo hay materiales registrados");
             return;
         }
@@ -178,13 +185,19 @@ public class MenuConsola {
                 "ID", "TÍTULO", "AUTOR", "TIPO", "ESTADO");
         System.out.println("-".repeat(80));
 
-        for (Material m : materiales) {
-            System.out.printf("%-10s %-30s %-20s %-15s %-10s%n",
-                    m.getId(),
-                    truncar(m.getTitulo(), 28),
-                    truncar(m.getAutor(), 18),
-                    m.getTipo(),
-                    m.getEstado());
+        while (true) {
+            for (Material m : pagina.getElementos()) {
+                System.out.printf("%-10s %-30s %-20s %-15s %-10s%n",
+                        m.getId(),
+                        truncar(m.getTitulo(), 28),
+                        truncar(m.getAutor(), 18),
+                        m.getTipo(),
+                        m.getEstado());
+            }
+            if (!pagina.hayMas() || !continuarListado()) {
+                return;
+            }
+            pagina = consultaFacade.listarMateriales(pagina.getSiguienteCursor(), TAMANO_PAGINA);
         }
     }
 
@@ -192,14 +205,15 @@ public class MenuConsola {
         System.out.print("\nIngrese ID, título o autor a buscar: ");
         String busqueda = scanner.nextLine();
 
-        List<Material> resultados = consultaFacade.buscarMateriales(busqueda);
+        BusquedaCatalogo resultado = consultaFacade.buscarMaterialesConFacetas(busqueda, LIMITE_RESULTADOS);
+        List<Material> resultados = resultado.getMateriales();
 
         if (resultados.isEmpty()) {
             System.out.println("No se encontraron materiales");
             return;
         }
 
-        if (resultados.size() == 1) {
+        if (resultado.getTotal() == 1) {
             mostrarMaterialDetalle(resultados.get(0));
             return;
         }
@@ -208,6 +222,18 @@ public class MenuConsola {
         for (Material m : resultados) {
             System.out.printf("%s - %s (%s)%n", m.getId(), m.getTitulo(), m.getAutor());
         }
+        if (resultado.getTotal() > resultados.size()) {
+            System.out.printf("Mostrando %d de %d coincidencias%n", resultados.size(), resultado.getTotal());
+        }
+        System.out.println("Por tipo:   " + formatearCantidades(resultado.getPorTipo()));
+        System.out.println("Por estado: " + formatearCantidades(resultado.getPorEstado()));
+    }
+
+    private static String formatearCantidades(Map<? extends Enum<?>, Long> cantidades) {
+        return cantidades.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .map(e -> e.getKey() + " " + e.getValue())
+                .collect(Collectors.joining(", "));
     }
 
     private void verMaterialesDisponibles() {
@@ -314,7 +340,7 @@ public class MenuConsola {
         System.out.print("\nIngrese ID del material: ");
         String id = scanner.nextLine();
 
-        Material m = consultaFacade.obtenerMaterialPorId(id);
+        Material m = adminFacade.obtenerMaterialParaEditar(id);
         if (m == null) {
             System.out.println("Material no encontrado");
             return;
@@ -353,8 +379,12 @@ public class MenuConsola {
                 return;
         }
 
-        adminFacade.actualizarMaterial(m);
-        System.out.println("Estado actualizado");
+        Resultado resultado = adminFacade.actualizarMaterial(m);
+        if (resultado.getExito()) {
+            System.out.println("Estado actualizado");
+        } else {
+            System.out.println("Error: " + resultado.getMensaje());
+        }
     }
     // MENÚ DE USUARIOS
 
@@ -416,8 +446,8 @@ public class MenuConsola {
     }
 
     private void listarUsuarios() {
-        List<Usuario> usuarios = consultaFacade.listarUsuarios();
-        if (usuarios.isEmpty()) {
+        Pagina<Usuario> pagina = consultaFacade.listarUsuarios(null, TAMANO_PAGINA);
+        if (pagina.estaVacia()) {
             System.out.println("\nNo hay usuarios registrados");
             return;
         }
@@ -428,13 +458,19 @@ public class MenuConsola {
                 "ID", "NOMBRE", "EMAIL", "TIPO", "ESTADO");
         System.out.println("-".repeat(70));
 
-        for (Usuario u : usuarios) {
-            System.out.printf("%-10s %-20s %-25s %-15s %-10s%n",
-                    u.getId(),
-                    truncar(u.getNombre(), 18),
-                    truncar(u.getEmail(), 23),
-                    u.getTipo(),
-                    u.getEstado());
+        while (true) {
+            for (Usuario u : pagina.getElementos()) {
+                System.out.printf("%-10s %-20s %-25s %-15s %-10s%n",
+                        u.getId(),
+                        truncar(u.getNombre(), 18),
+                        truncar(u.getEmail(), 23),
+                        u.getTipo(),
+                        u.getEstado());
+            }
+            if (!pagina.hayMas() || !continuarListado()) {
+                return;
+            }
+            pagina = consultaFacade.listarUsuarios(pagina.getSiguienteCursor(), TAMANO_PAGINA);
         }
     }
 
@@ -695,10 +731,11 @@ public class MenuConsola {
             return;
         }
 
+        Map<String, Material> materiales = materialesDe(activos, Prestamo::getIdMaterial);
         System.out.println("\nPRÉSTAMOS ACTIVOS:");
         for (Prestamo p : activos) {
             System.out.printf("  • %s - Usuario: %s - Material: %s%n",
-                    p.getId(), p.getIdUsuario(), p.getIdMaterial());
+                    p.getId(), p.getIdUsuario(), describirMaterial(p.getIdMaterial(), materiales));
         }
     }
 
@@ -708,12 +745,26 @@ public class MenuConsola {
             System.out.println("El usuario no tiene préstamos activos");
             return;
         }
+        Map<String, Material> materiales = materialesDe(prestamos, Prestamo::getIdMaterial);
         System.out.println("\nPRÉSTAMOS DEL USUARIO " + idUsuario + ":");
         for (Prestamo p : prestamos) {
-            System.out.printf("  • %s - Material: %s%n", p.getId(), p.getIdMaterial());
+            System.out.printf("  • %s - Material: %s%n", p.getId(), describirMaterial(p.getIdMaterial(), materiales));
         }
     }
 
+    /**
+     * Materiales referidos por un listado, pedidos todos juntos.
+     */
+    private <E> Map<String, Material> materialesDe(List<E> elementos, Function<E, String> idMaterial) {
+        return consultaFacade.obtenerMaterialesPorIds(
+                elementos.stream().map(idMaterial).collect(Collectors.toSet()));
+    }
+
+    private static String describirMaterial(String idMaterial, Map<String, Material> materiales) {
+        Material m = materiales.get(idMaterial);
+        return m != null ? idMaterial + " (" + m.getTitulo() + ")" : idMaterial;
+    }
+
     private void verPrestamosVencidos() {
         List<Prestamo> vencidos = consultaFacade.obtenerPrestamosVencidos();
 
@@ -984,9 +1035,11 @@ public class MenuConsola {
             System.out.println("\nNo hay reservas activas");
             return;
         }
+        Map<String, Material> materiales = materialesDe(activas, Reserva::getIdMaterial);
         System.out.println("\nRESERVAS ACTIVAS:");
         for (Reserva r : activas) {
-            System.out.printf("  • %s - Usuario: %s - Material: %s%n", r.getId(), r.getIdUsuario(), r.getIdMaterial());
+            System.out.printf("  • %s - Usuario: %s - Material: %s%n",
+                    r.getId(), r.getIdUsuario(), describirMaterial(r.getIdMaterial(), materiales));
         }
     }
 
@@ -997,8 +1050,9 @@ public class MenuConsola {
             return;
         }
         System.out.println("\nRESERVAS PARA MATERIAL " + idMaterial + ":");
-        for (Reserva r : reservas) {
-            System.out.printf("  Pos %d: %s - Usuario: %s%n", r.getPosicionCola(), r.getId(), r.getIdUsuario());
+        for (int i = 0; i < reservas.size(); i++) {
+            Reserva r = reservas.get(i);
+            System.out.printf("  Pos %d: %s - Usuario: %s%n", i + 1, r.getId(), r.getIdUsuario());
         }
     }
 
@@ -1008,9 +1062,10 @@ public class MenuConsola {
             System.out.println("El usuario no tiene reservas activas");
             return;
         }
+        Map<String, Material> materiales = materialesDe(reservas, Reserva::getIdMaterial);
         System.out.println("\nRESERVAS DEL USUARIO " + idUsuario + ":");
         for (Reserva r : reservas) {
-            System.out.printf("  • %s - Material: %s%n", r.getId(), r.getIdMaterial());
+            System.out.printf("  • %s - Material: %s%n", r.getId(), describirMaterial(r.getIdMaterial(), materiales));
         }
     }
 
@@ -1314,6 +1369,11 @@ public class MenuConsola {
         return s.substring(0, max - 3) + "...";
     }
 
+    private boolean continuarListado() {
+        System.out.print("-- Enter para ver más, 'q' para terminar: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+
     private void pausa() {
         System.out.println("\nPresione Enter para continuar...");
         scanner.nextLine();
@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 public class DVD extends Material {
+    private static final long serialVersionUID = -7957038904797332044L;
+
     private String codigo;
     private int duracionMinutos;
     private String director;
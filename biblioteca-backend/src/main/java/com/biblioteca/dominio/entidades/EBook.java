@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 public class EBook extends Material {
+    private static final long serialVersionUID = 6565389664748789588L;
+
     private String urlDescarga;
     private int licenciasDisponibles;
     private LocalDateTime fechaVencimientoLicencia;
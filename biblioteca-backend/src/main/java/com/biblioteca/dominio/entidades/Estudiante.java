@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 public class Estudiante extends Usuario {
+    private static final long serialVersionUID = -7736123320279374166L;
+
     private String carrera;
     private int semestre;
     private String universidad;
@@ -0,0 +1,17 @@
+package com.biblioteca.dominio.entidades;
+
+/**
+ * Entidad con número de versión para control de concurrencia optimista.
+ * El repositorio lo incrementa en cada actualización; quien leyó la
+ * entidad en una versión puede pedir que su escritura falle si otro la
+ * actualizó mientras tanto.
+ */
+public interface IVersionada {
+
+    long getVersion();
+
+    /**
+     * Solo lo asigna el repositorio al guardar.
+     */
+    void setVersion(long version);
+}
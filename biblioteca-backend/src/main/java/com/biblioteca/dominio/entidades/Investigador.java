@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 public class Investigador extends Usuario {
+    private static final long serialVersionUID = -5423923704531893386L;
+
     private String lineaInvestigacion;
     private String institucion;
     
@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 public class Libro extends Material {
+    private static final long serialVersionUID = 2063523052291488119L;
+
     private String isbn;
     private int numeroPaginas;
     private boolean esBestSeller;
@@ -1,19 +1,36 @@
 package com.biblioteca.dominio.entidades;
 
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDateTime;
 
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 import java.util.UUID;
 
-public abstract class Material {
+public abstract class Material implements Serializable, IVersionada {
+    private static final long serialVersionUID = 1130010371177349660L;
+
+    // Las transiciones de estado se hacen con compare-and-set: dos solicitudes
+    // que intentan prestar el mismo material no pueden ganar ambas.
+    private static final VarHandle ESTADO;
+    static {
+        try {
+            ESTADO = MethodHandles.lookup().findVarHandle(Material.class, "estado", EstadoMaterial.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     protected String id;
     protected String titulo;
     protected String autor;
     protected TipoMaterial tipo;
-    protected EstadoMaterial estado;
+    protected volatile EstadoMaterial estado;
     protected LocalDateTime fechaAdquisicion;
     protected double precio;
+    protected long version;
     
     // Constructor protegido - solo subclases pueden crear
     protected Material(String id, String titulo, String autor, TipoMaterial tipo, double precio) {
@@ -61,33 +78,67 @@ public abstract class Material {
     public void setPrecio(double precio) {
         this.precio = precio;
     }
+    
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Cambia el estado solo si sigue siendo el esperado (atómico).
+     * @return false si otro hilo lo cambió antes
+     */
+    public boolean transicionar(EstadoMaterial esperado, EstadoMaterial nuevo) {
+        return ESTADO.compareAndSet(this, esperado, nuevo);
+    }
 
     // COMPORTAMIENTO, NO SOLO DATOS
     public void marcarComoPrestado() {
-        if (this.estado != EstadoMaterial.DISPONIBLE) {
+        if (!transicionar(EstadoMaterial.DISPONIBLE, EstadoMaterial.PRESTADO)) {
             throw new IllegalStateException(
                 "No se puede prestar un material en estado: " + this.estado
             );
         }
-        this.estado = EstadoMaterial.PRESTADO;
+    }
+    
+    /**
+     * Reserva el material para un préstamo que todavía no se guardó.
+     * @return false si ya no estaba disponible (otra solicitud lo tomó)
+     */
+    public boolean reclamarParaPrestamo() {
+        return transicionar(EstadoMaterial.DISPONIBLE, EstadoMaterial.PRESTADO);
+    }
+    
+    /**
+     * Deshace reclamarParaPrestamo() cuando el préstamo no se pudo guardar.
+     */
+    public void liberarReclamo() {
+        transicionar(EstadoMaterial.PRESTADO, EstadoMaterial.DISPONIBLE);
     }
     
     public void marcarComoReservado() {
-        if (this.estado != EstadoMaterial.DISPONIBLE) {
+        if (!transicionar(EstadoMaterial.DISPONIBLE, EstadoMaterial.RESERVADO)) {
             throw new IllegalStateException(
                 "No se puede reservar un material en estado: " + this.estado
             );
         }
-        this.estado = EstadoMaterial.RESERVADO;
     }
     
     public void marcarComoDisponible() {
-        if (this.estado == EstadoMaterial.PERDIDO) {
-            throw new IllegalStateException(
-                "Material perdido no puede volver a disponible directamente"
-            );
-        }
-        this.estado = EstadoMaterial.DISPONIBLE;
+        EstadoMaterial actual;
+        do {
+            actual = this.estado;
+            if (actual == EstadoMaterial.PERDIDO) {
+                throw new IllegalStateException(
+                    "Material perdido no puede volver a disponible directamente"
+                );
+            }
+        } while (!transicionar(actual, EstadoMaterial.DISPONIBLE));
     }
     
     public void marcarComoEnReparacion(String motivo) {
@@ -0,0 +1,71 @@
+package com.biblioteca.dominio.entidades;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Notificación pendiente en la bandeja de salida (outbox).
+ * Se guarda junto con el cambio que la origina y la borra el relay
+ * cuando logra entregarla.
+ */
+public class MensajeSalida implements Serializable {
+    private static final long serialVersionUID = 2292665259037246484L;
+
+    protected String id;
+    protected String idUsuario;
+    protected String mensaje;
+    protected LocalDateTime fechaCreacion;
+    protected int intentos;
+    protected LocalDateTime proximoIntento;
+    protected String ultimoError;
+    
+    public MensajeSalida(String idUsuario, String mensaje) {
+        if (idUsuario == null) {
+            throw new IllegalArgumentException("ID de usuario no puede ser nulo");
+        }
+        this.id = "MSG-" + UUID.randomUUID();
+        this.idUsuario = idUsuario;
+        this.mensaje = mensaje;
+        this.fechaCreacion = LocalDateTime.now();
+        this.proximoIntento = fechaCreacion;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+    
+    public String getMensaje() {
+        return mensaje;
+    }
+    
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+    
+    public int getIntentos() {
+        return intentos;
+    }
+    
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+    
+    public String getUltimoError() {
+        return ultimoError;
+    }
+    
+    public boolean listoParaEnviar(LocalDateTime ahora) {
+        return !proximoIntento.isAfter(ahora);
+    }
+    
+    public void registrarFallo(String error, LocalDateTime siguienteIntento) {
+        this.intentos++;
+        this.ultimoError = error;
+        this.proximoIntento = siguienteIntento;
+    }
+}
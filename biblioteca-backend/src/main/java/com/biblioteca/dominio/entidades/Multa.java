@@ -1,10 +1,13 @@
 package com.biblioteca.dominio.entidades;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 import com.biblioteca.dominio.enumeraciones.EstadoMulta;
-public abstract class Multa {
+public abstract class Multa implements Serializable, IVersionada {
+    private static final long serialVersionUID = -5244118574548541650L;
+
     protected String id;
     protected String idPrestamo;
     protected String idUsuario;
@@ -12,6 +15,7 @@ public abstract class Multa {
     protected LocalDateTime fechaPago;
     protected EstadoMulta estado;
     protected String motivo;
+    protected long version;
     
     public Multa(String idPrestamo, String idUsuario, String motivo) {
         this.id = ("MUL-" + UUID.randomUUID().toString().substring(0,8));
@@ -47,6 +51,16 @@ public abstract class Multa {
         this.estado = EstadoMulta.PAGADA;
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     public EstadoMulta getEstado() {
         return estado;
     }
@@ -6,8 +6,10 @@ import com.biblioteca.dominio.objetosvalor.Dano;
 import com.biblioteca.servicios.interfaces.ICalculadorCostoDanoService;
 
 public class MultaPorDano extends Multa {
+    private static final long serialVersionUID = 3121360230887810014L;
+
     private List<Dano> danos;
-    private transient ICalculadorCostoDanoService calculadorCosto; // transient para no serializar
+    private double montoTotal; // se persiste: el calculador no se serializa
     
     public MultaPorDano(String idPrestamo, String idUsuario, List<Dano> danos) {
         super(idPrestamo, idUsuario, "Daños al material");
@@ -19,19 +21,16 @@ public class MultaPorDano extends Multa {
     }
     
     /**
-     * Método para inyectar el calculador de costos
+     * Calcula el monto con el calculador de costos y lo deja fijado en la
+     * multa, así se conserva al guardarla y recuperarla.
      */
     public void setCalculadorCosto(ICalculadorCostoDanoService calculadorCosto) {
-        this.calculadorCosto = calculadorCosto;
+        this.montoTotal = calculadorCosto.calcularCostoTotal(danos);
     }
     
     @Override
     public double calcularMontoTotal() {
-        if (calculadorCosto != null) {
-            return calculadorCosto.calcularCostoTotal(danos);
-        }
-        // Si no hay calculador, retornar 0 (o podrías lanzar una excepción)
-        return 0.0;
+        return montoTotal;
     }
     
     @Override
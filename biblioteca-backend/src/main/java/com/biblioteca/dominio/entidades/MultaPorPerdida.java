@@ -1,6 +1,8 @@
 package com.biblioteca.dominio.entidades;
 
 public class MultaPorPerdida extends Multa {
+    private static final long serialVersionUID = -8242081359976584704L;
+
     private double valorMaterial;
     private double porcentajeRecargo;
     
@@ -1,6 +1,8 @@
 package com.biblioteca.dominio.entidades;
 
 public class MultaPorRetraso extends Multa {
+    private static final long serialVersionUID = -4313823541714086311L;
+
     private int diasRetraso;
     private double tarifaDiaria;
     
@@ -8,6 +8,8 @@ import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 
 public abstract class Prestamo extends Transaccion {
+    private static final long serialVersionUID = -1387151447993681555L;
+
     protected LocalDateTime fechaPrestamo;
     protected LocalDateTime fechaDevolucionEsperada;
     protected LocalDateTime fechaDevolucionReal;
@@ -3,6 +3,8 @@ package com.biblioteca.dominio.entidades;
 import java.time.LocalDateTime;
 
 public class PrestamoInterbibliotecario extends Prestamo {
+    private static final long serialVersionUID = 229975118895207021L;
+
     private String bibliotecaOrigen;
     private String bibliotecaDestino;
     private double costoTransferencia;
@@ -3,6 +3,8 @@ package com.biblioteca.dominio.entidades;
 import java.time.LocalDateTime;
 
 public class PrestamoNormal extends Prestamo {
+    private static final long serialVersionUID = -4538060176908363875L;
+
     private String ubicacionBiblioteca;
     
     public PrestamoNormal(String id, String idUsuario, String idMaterial, 
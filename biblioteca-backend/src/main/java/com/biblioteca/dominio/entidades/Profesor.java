@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 public class Profesor extends Usuario {
+    private static final long serialVersionUID = 3738370672567531702L;
+
     private String departamento;
     private String universidad;
     private String especialidad;
@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 public class PublicoGeneral extends Usuario {
+    private static final long serialVersionUID = -2595235630942250666L;
+
     private String direccion;
     private String nombreFiador;
     
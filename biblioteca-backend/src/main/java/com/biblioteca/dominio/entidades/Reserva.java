@@ -3,10 +3,12 @@ package com.biblioteca.dominio.entidades;
 import java.time.LocalDateTime;
 
 public abstract class Reserva extends Transaccion {
+    private static final long serialVersionUID = -3939547227551087377L;
+
     protected LocalDateTime fechaReserva;
     protected LocalDateTime fechaNotificacion;
     protected LocalDateTime fechaExpiracion;
-    protected int posicionCola;
+    protected long secuenciaCola; // orden de llegada dentro de la cola del material
     
     public Reserva(String id, String idUsuario, String idMaterial) {
         super(id, idUsuario, idMaterial);
@@ -34,11 +36,11 @@ public abstract class Reserva extends Transaccion {
         return fechaExpiracion;
     }
     
-    public int getPosicionCola() {
-        return posicionCola;
+    public long getSecuenciaCola() {
+        return secuenciaCola;
     }
     
-    public void setPosicionCola(int posicion) {
-        this.posicionCola = posicion;
+    public void setSecuenciaCola(long secuencia) {
+        this.secuenciaCola = secuencia;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package com.biblioteca.dominio.entidades;
 
 public class ReservaInterbibliotecaria extends Reserva {
+    private static final long serialVersionUID = 1003128795051913061L;
+
     private String bibliotecaDestino;
     
     public ReservaInterbibliotecaria(String id, String idUsuario, String idMaterial, String bibliotecaDestino) {
@@ -1,6 +1,8 @@
 package com.biblioteca.dominio.entidades;
 
 public class ReservaNormal extends Reserva {
+    private static final long serialVersionUID = 2450467281370068124L;
+
     private String ubicacionBiblioteca;
     
     public ReservaNormal(String id, String idUsuario, String idMaterial, String ubicacionBiblioteca) {
@@ -2,6 +2,8 @@ package com.biblioteca.dominio.entidades;
 
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 public class Revista extends Material {
+    private static final long serialVersionUID = 5553150199155262401L;
+
     private String issn;
     private int numeroEdicion;
     private boolean esUltimoNumero;
@@ -1,16 +1,20 @@
 package com.biblioteca.dominio.entidades;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 
-public abstract class Transaccion {
+public abstract class Transaccion implements Serializable, IVersionada {
+    private static final long serialVersionUID = -2356081575836679447L;
+
     protected String id;
     protected String idUsuario;
     protected String idMaterial;
     protected LocalDateTime fechaCreacion;
     protected EstadoTransaccion estado;
+    protected long version;
     
     public Transaccion(String id, String idUsuario, String idMaterial) {
         if (idUsuario == null) {
@@ -52,4 +56,14 @@ public abstract class Transaccion {
         }
         this.estado = nuevoEstado;
     }
-}
\ No newline at end of file
+    
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -1,18 +1,22 @@
 package com.biblioteca.dominio.entidades;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 
 import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 import java.util.UUID;
 
-public abstract class Usuario {
+public abstract class Usuario implements Serializable, IVersionada {
+    private static final long serialVersionUID = 6761553659286372330L;
+
     protected String id;
     protected String nombre;
     protected String email;
     protected TipoUsuario tipo;
     protected EstadoUsuario estado;
     protected LocalDateTime fechaRegistro;
+    protected long version;
     
     protected Usuario(String id, String nombre, String email, TipoUsuario tipo) {
         if (nombre == null || nombre.trim().isEmpty()) {
@@ -54,6 +58,16 @@ public abstract class Usuario {
         return fechaRegistro;
     }
     
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     // Métodos de comportamiento de dominio
     public void bloquearPorMulta() {
         this.estado = EstadoUsuario.BLOQUEADO_MULTA;
@@ -1,11 +1,13 @@
 package com.biblioteca.dominio.estados;
 
+import java.io.Serializable;
+
 import com.biblioteca.dominio.entidades.Prestamo;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 
-public interface IEstadoPrestamo {
+public interface IEstadoPrestamo extends Serializable {
     ResultadoValidacion puedeRenovarse(Prestamo prestamo);
     Resultado devolver(Prestamo prestamo);
     EstadoTransaccion obtenerEstado();
@@ -8,6 +8,8 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 
 public class PrestamoActivoState implements IEstadoPrestamo {
+    private static final long serialVersionUID = -1494282044450423424L;
+
     @Override
     public ResultadoValidacion puedeRenovarse(Prestamo prestamo) {
         if (prestamo.getRenovacionesUsadas() >= 2) {
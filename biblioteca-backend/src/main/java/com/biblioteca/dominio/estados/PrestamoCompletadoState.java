@@ -7,6 +7,8 @@ import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import java.util.Collections;
 
 public class PrestamoCompletadoState implements IEstadoPrestamo {
+    private static final long serialVersionUID = -4229354926624975330L;
+
     @Override
     public ResultadoValidacion puedeRenovarse(Prestamo prestamo) {
         return ResultadoValidacion.Invalido(
@@ -0,0 +1,82 @@
+package com.biblioteca.dominio.objetosvalor;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
+import com.biblioteca.dominio.enumeraciones.TipoMaterial;
+
+/**
+ * Resultado de una búsqueda en el catálogo: los materiales más relevantes
+ * y, para todas las coincidencias (no solo las mostradas), cuántas hay de
+ * cada tipo y de cada estado.
+ */
+public class BusquedaCatalogo {
+    private final List<Material> materiales;
+    private final long total;
+    private final Map<TipoMaterial, Long> porTipo;
+    private final Map<EstadoMaterial, Long> porEstado;
+
+    public BusquedaCatalogo(List<Material> materiales, long total,
+            Map<TipoMaterial, Long> porTipo, Map<EstadoMaterial, Long> porEstado) {
+        this.materiales = Collections.unmodifiableList(materiales);
+        this.total = total;
+        this.porTipo = Collections.unmodifiableMap(new EnumMap<>(porTipo));
+        this.porEstado = Collections.unmodifiableMap(new EnumMap<>(porEstado));
+    }
+
+    /**
+     * Búsqueda cuyas coincidencias son exactamente los materiales dados, con
+     * las cantidades contadas sobre ellos.
+     */
+    public static BusquedaCatalogo de(List<Material> materiales) {
+        Map<TipoMaterial, Long> porTipo = new EnumMap<>(TipoMaterial.class);
+        Map<EstadoMaterial, Long> porEstado = new EnumMap<>(EstadoMaterial.class);
+        for (TipoMaterial tipo : TipoMaterial.values()) {
+            porTipo.put(tipo, 0L);
+        }
+        for (EstadoMaterial estado : EstadoMaterial.values()) {
+            porEstado.put(estado, 0L);
+        }
+        for (Material m : materiales) {
+            porTipo.merge(m.getTipo(), 1L, Long::sum);
+            porEstado.merge(m.getEstado(), 1L, Long::sum);
+        }
+        return new BusquedaCatalogo(materiales, materiales.size(), porTipo, porEstado);
+    }
+
+    /**
+     * Los materiales más relevantes, hasta el límite pedido.
+     */
+    public List<Material> getMateriales() {
+        return materiales;
+    }
+
+    /**
+     * Cantidad de coincidencias, que puede superar a las mostradas.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Coincidencias por tipo; todos los tipos están, aunque sea con 0.
+     */
+    public Map<TipoMaterial, Long> getPorTipo() {
+        return porTipo;
+    }
+
+    /**
+     * Coincidencias por estado; todos los estados están, aunque sea con 0.
+     */
+    public Map<EstadoMaterial, Long> getPorEstado() {
+        return porEstado;
+    }
+
+    public boolean estaVacia() {
+        return total == 0;
+    }
+}
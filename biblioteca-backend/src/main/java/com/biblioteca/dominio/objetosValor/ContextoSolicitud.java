@@ -0,0 +1,71 @@
+package com.biblioteca.dominio.objetosvalor;
+
+import java.util.function.Function;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Usuario;
+
+/**
+ * Contexto de una solicitud (préstamo, reserva): carga el usuario y el
+ * material a lo sumo una vez, la primera vez que alguien los pide, y los
+ * comparte con el validador, las reglas y los servicios que intervienen.
+ *
+ * Vive lo que dura una solicitud y la usa un solo hilo.
+ */
+public class ContextoSolicitud {
+    private final String idUsuario;
+    private final String idMaterial;
+    private final Function<String, Usuario> cargadorUsuario;
+    private final Function<String, Material> cargadorMaterial;
+
+    private Usuario usuario;
+    private Material material;
+    private boolean usuarioCargado;
+    private boolean materialCargado;
+
+    public ContextoSolicitud(String idUsuario, String idMaterial,
+                             Function<String, Usuario> cargadorUsuario,
+                             Function<String, Material> cargadorMaterial) {
+        this.idUsuario = idUsuario;
+        this.idMaterial = idMaterial;
+        this.cargadorUsuario = cargadorUsuario;
+        this.cargadorMaterial = cargadorMaterial;
+    }
+
+    /**
+     * Contexto con entidades ya obtenidas (no vuelve a buscar nada).
+     */
+    public static ContextoSolicitud conEntidades(String idUsuario, String idMaterial,
+                                                 Usuario usuario, Material material) {
+        ContextoSolicitud contexto = new ContextoSolicitud(idUsuario, idMaterial, id -> null, id -> null);
+        contexto.usuario = usuario;
+        contexto.usuarioCargado = true;
+        contexto.material = material;
+        contexto.materialCargado = true;
+        return contexto;
+    }
+
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    public String getIdMaterial() {
+        return idMaterial;
+    }
+
+    public Usuario getUsuario() {
+        if (!usuarioCargado) {
+            usuario = idUsuario != null ? cargadorUsuario.apply(idUsuario) : null;
+            usuarioCargado = true;
+        }
+        return usuario;
+    }
+
+    public Material getMaterial() {
+        if (!materialCargado) {
+            material = idMaterial != null ? cargadorMaterial.apply(idMaterial) : null;
+            materialCargado = true;
+        }
+        return material;
+    }
+}
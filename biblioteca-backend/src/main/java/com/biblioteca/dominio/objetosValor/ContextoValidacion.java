@@ -9,27 +9,29 @@ import com.biblioteca.dominio.enumeraciones.TipoOperacion;
  * Objeto de valor que pasa información a las reglas
  */
 public class ContextoValidacion {
-    private final String idUsuario;
-    private final String idMaterial;
-    private final Usuario usuario;
-    private final Material material;
+    private final ContextoSolicitud solicitud;
     private final TipoOperacion operacion;
     
     public ContextoValidacion(String idUsuario, String idMaterial, 
                               Usuario usuario, Material material, TipoOperacion operacion) {
-        this.idUsuario = idUsuario;
-        this.idMaterial = idMaterial;
-        this.usuario = usuario;
-        this.material = material;
+        this(ContextoSolicitud.conEntidades(idUsuario, idMaterial, usuario, material), operacion);
+    }
+    
+    /**
+     * Las entidades se toman de la solicitud, que las carga una sola vez.
+     */
+    public ContextoValidacion(ContextoSolicitud solicitud, TipoOperacion operacion) {
+        this.solicitud = solicitud;
         this.operacion = operacion;
     }
     
-    public String getIdUsuario() { return idUsuario; }
-    public String getIdMaterial() { return idMaterial; }
-    public Usuario getUsuario() { return usuario; }
-    public Material getMaterial() { return material; }
+    public String getIdUsuario() { return solicitud.getIdUsuario(); }
+    public String getIdMaterial() { return solicitud.getIdMaterial(); }
+    public Usuario getUsuario() { return solicitud.getUsuario(); }
+    public Material getMaterial() { return solicitud.getMaterial(); }
     public TipoOperacion getOperacion() { return operacion; }
+    public ContextoSolicitud getSolicitud() { return solicitud; }
     
-    public boolean tieneUsuario() { return usuario != null; }
-    public boolean tieneMaterial() { return material != null; }
+    public boolean tieneUsuario() { return getUsuario() != null; }
+    public boolean tieneMaterial() { return getMaterial() != null; }
 }
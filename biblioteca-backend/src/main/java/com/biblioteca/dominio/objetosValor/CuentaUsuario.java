@@ -0,0 +1,69 @@
+package com.biblioteca.dominio.objetosvalor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resumen de la situación de un usuario: multas pendientes y
+ * vencimientos de sus préstamos activos. Es una foto inmutable.
+ */
+public class CuentaUsuario {
+    private final String idUsuario;
+    private final BigDecimal montoMultasPendientes;
+    private final int cantidadMultasPendientes;
+    private final boolean tieneMultaPorPerdida;
+    private final List<LocalDateTime> vencimientosActivos; // ordenados, el más próximo primero
+
+    public CuentaUsuario(String idUsuario, BigDecimal montoMultasPendientes, int cantidadMultasPendientes,
+                         boolean tieneMultaPorPerdida, List<LocalDateTime> vencimientosActivos) {
+        this.idUsuario = idUsuario;
+        this.montoMultasPendientes = montoMultasPendientes;
+        this.cantidadMultasPendientes = cantidadMultasPendientes;
+        this.tieneMultaPorPerdida = tieneMultaPorPerdida;
+        this.vencimientosActivos = List.copyOf(vencimientosActivos);
+    }
+
+    public static CuentaUsuario vacia(String idUsuario) {
+        return new CuentaUsuario(idUsuario, BigDecimal.ZERO, 0, false, List.of());
+    }
+
+    public String getIdUsuario() {
+        return idUsuario;
+    }
+
+    public BigDecimal getMontoMultasPendientes() {
+        return montoMultasPendientes;
+    }
+
+    public int getCantidadMultasPendientes() {
+        return cantidadMultasPendientes;
+    }
+
+    public boolean tieneMultaPorPerdida() {
+        return tieneMultaPorPerdida;
+    }
+
+    public int getCantidadPrestamosActivos() {
+        return vencimientosActivos.size();
+    }
+
+    /**
+     * @return fecha de devolución más próxima entre los préstamos activos, o null
+     */
+    public LocalDateTime getVencimientoMasProximo() {
+        return vencimientosActivos.isEmpty() ? null : vencimientosActivos.get(0);
+    }
+
+    /**
+     * Cuántos préstamos activos debían devolverse antes de la fecha dada.
+     */
+    public int contarVencidosAntesDe(LocalDateTime fecha) {
+        int cantidad = 0;
+        for (LocalDateTime vencimiento : vencimientosActivos) {
+            if (!vencimiento.isBefore(fecha)) break;
+            cantidad++;
+        }
+        return cantidad;
+    }
+}
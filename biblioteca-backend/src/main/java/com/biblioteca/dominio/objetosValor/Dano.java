@@ -1,9 +1,13 @@
 package com.biblioteca.dominio.objetosvalor;
 
+import java.io.Serializable;
+
 import com.biblioteca.dominio.enumeraciones.NivelGravedad;
 import com.biblioteca.dominio.enumeraciones.TipoDano;
 
-public class Dano {
+public class Dano implements Serializable {
+    private static final long serialVersionUID = 1353456791520009482L;
+
     private String descripcion;
     private NivelGravedad gravedad;
     private TipoDano tipo;
@@ -0,0 +1,38 @@
+package com.biblioteca.dominio.objetosvalor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Una página de resultados con paginación por cursor (keyset).
+ * El cursor es el ID del último elemento entregado; la página siguiente
+ * empieza justo después de él, así no hay que saltar posiciones.
+ */
+public class Pagina<T> {
+    private final List<T> elementos;
+    private final String siguienteCursor;
+
+    public Pagina(List<T> elementos, String siguienteCursor) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * @return cursor para pedir la página siguiente, o null si esta es la última
+     */
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+
+    public boolean estaVacia() {
+        return elementos.isEmpty();
+    }
+}
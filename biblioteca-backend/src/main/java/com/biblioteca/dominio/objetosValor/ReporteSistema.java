@@ -0,0 +1,145 @@
+package com.biblioteca.dominio.objetosvalor;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
+import com.biblioteca.dominio.enumeraciones.EstadoMulta;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
+
+/**
+ * Foto inmutable de los contadores del sistema, calculada en una sola
+ * pasada por repositorio. El texto para mostrar se arma aparte.
+ *
+ * Cada entidad cuenta en un solo lugar: los préstamos y reservas ACTIVA
+ * que ya no lo son en la práctica (devueltos, o expiradas) no van al mapa
+ * por estado sino a su propio contador, así mapa más contador da el total.
+ */
+public class ReporteSistema {
+    private final LocalDateTime fechaGeneracion;
+    private final long totalMateriales;
+    private final long totalUsuarios;
+    private final Map<EstadoMaterial, Long> materialesPorEstado;
+    private final Map<EstadoUsuario, Long> usuariosPorEstado;
+    private final Map<EstadoTransaccion, Long> prestamosPorEstado;
+    private final Map<EstadoTransaccion, Long> reservasPorEstado;
+    private final long prestamosActivosDevueltos;
+    private final long reservasExpiradas;
+    private final Map<EstadoMulta, Long> multasPorEstado;
+    private final Map<EstadoMulta, Double> montoMultasPorEstado;
+
+    public ReporteSistema(LocalDateTime fechaGeneracion,
+                          long totalMateriales,
+                          long totalUsuarios,
+                          EnumMap<EstadoMaterial, Long> materialesPorEstado,
+                          EnumMap<EstadoUsuario, Long> usuariosPorEstado,
+                          EnumMap<EstadoTransaccion, Long> prestamosPorEstado,
+                          long prestamosActivosDevueltos,
+                          EnumMap<EstadoTransaccion, Long> reservasPorEstado,
+                          long reservasExpiradas,
+                          EnumMap<EstadoMulta, Long> multasPorEstado,
+                          EnumMap<EstadoMulta, Double> montoMultasPorEstado) {
+        this.fechaGeneracion = fechaGeneracion;
+        this.totalMateriales = totalMateriales;
+        this.totalUsuarios = totalUsuarios;
+        this.prestamosActivosDevueltos = prestamosActivosDevueltos;
+        this.reservasExpiradas = reservasExpiradas;
+        this.materialesPorEstado = Collections.unmodifiableMap(materialesPorEstado);
+        this.usuariosPorEstado = Collections.unmodifiableMap(usuariosPorEstado);
+        this.prestamosPorEstado = Collections.unmodifiableMap(prestamosPorEstado);
+        this.reservasPorEstado = Collections.unmodifiableMap(reservasPorEstado);
+        this.multasPorEstado = Collections.unmodifiableMap(multasPorEstado);
+        this.montoMultasPorEstado = Collections.unmodifiableMap(montoMultasPorEstado);
+    }
+
+    public LocalDateTime getFechaGeneracion() {
+        return fechaGeneracion;
+    }
+
+    public long getTotalMateriales() {
+        return totalMateriales;
+    }
+
+    public long getTotalUsuarios() {
+        return totalUsuarios;
+    }
+
+    /**
+     * Préstamos activos que todavía no tienen fecha de devolución.
+     */
+    public long getPrestamosActivos() {
+        return prestamosPorEstado.getOrDefault(EstadoTransaccion.ACTIVA, 0L);
+    }
+
+    /**
+     * Reservas activas y no expiradas al momento del reporte.
+     */
+    public long getReservasActivas() {
+        return reservasPorEstado.getOrDefault(EstadoTransaccion.ACTIVA, 0L);
+    }
+
+    /**
+     * Préstamos en estado ACTIVA que ya tienen fecha de devolución.
+     */
+    public long getPrestamosActivosDevueltos() {
+        return prestamosActivosDevueltos;
+    }
+
+    /**
+     * Reservas en estado ACTIVA ya expiradas que todavía no se cancelaron.
+     */
+    public long getReservasExpiradas() {
+        return reservasExpiradas;
+    }
+
+    public long getTotalPrestamos() {
+        return sumar(prestamosPorEstado) + prestamosActivosDevueltos;
+    }
+
+    public long getTotalReservas() {
+        return sumar(reservasPorEstado) + reservasExpiradas;
+    }
+
+    public long getMultasPendientes() {
+        return multasPorEstado.getOrDefault(EstadoMulta.PENDIENTE, 0L);
+    }
+
+    public double getMontoMultasPendientes() {
+        return montoMultasPorEstado.getOrDefault(EstadoMulta.PENDIENTE, 0.0);
+    }
+
+    public Map<EstadoMaterial, Long> getMaterialesPorEstado() {
+        return materialesPorEstado;
+    }
+
+    public Map<EstadoUsuario, Long> getUsuariosPorEstado() {
+        return usuariosPorEstado;
+    }
+
+    public Map<EstadoTransaccion, Long> getPrestamosPorEstado() {
+        return prestamosPorEstado;
+    }
+
+    public Map<EstadoTransaccion, Long> getReservasPorEstado() {
+        return reservasPorEstado;
+    }
+
+    public Map<EstadoMulta, Long> getMultasPorEstado() {
+        return multasPorEstado;
+    }
+
+    public Map<EstadoMulta, Double> getMontoMultasPorEstado() {
+        return montoMultasPorEstado;
+    }
+
+    private static long sumar(Map<?, Long> conteos) {
+        long total = 0;
+        for (long cantidad : conteos.values()) {
+            total += cantidad;
+        }
+        return total;
+    }
+}
@@ -4,6 +4,7 @@ public class Resultado {
     private boolean exito;
     private String mensaje;
     private Object data;
+    private boolean conflicto;
     
     private Resultado(boolean exito, String mensaje, Object data) {
         this.exito = exito;
@@ -23,6 +24,14 @@ public class Resultado {
         return data;
     }
     
+    /**
+     * Falló porque otro actualizó la entidad después de leerla: se puede
+     * volver a leer e intentar de nuevo.
+     */
+    public boolean esConflicto() {
+        return conflicto;
+    }
+    
     public static Resultado Exitoso(String mensaje, Object data) {
         return new Resultado(true, mensaje, data);
     }
@@ -31,6 +40,12 @@ public class Resultado {
         return new Resultado(false, mensaje, null);
     }
     
+    public static Resultado Conflicto(String mensaje) {
+        Resultado resultado = new Resultado(false, mensaje, null);
+        resultado.conflicto = true;
+        return resultado;
+    }
+    
     @Override
     public String toString() {
         return "Resultado{" +
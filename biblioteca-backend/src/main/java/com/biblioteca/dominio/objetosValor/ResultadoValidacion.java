@@ -27,6 +27,13 @@ public class ResultadoValidacion {
     }
     
     public ResultadoValidacion combinar(ResultadoValidacion otro) {
+        // Combinar con un resultado válido y sin mensajes no cambia nada
+        if (otro.esVacio()) {
+            return this;
+        }
+        if (this.esVacio()) {
+            return otro;
+        }
         boolean nuevoEsValido = this.esValido && otro.esValido;
         List<String> nuevosErrores = new ArrayList<>(this.errores);
         nuevosErrores.addAll(otro.errores);
@@ -36,6 +43,10 @@ public class ResultadoValidacion {
         return new ResultadoValidacion(nuevoEsValido, nuevosErrores, nuevasAdvertencias);
     }
     
+    private boolean esVacio() {
+        return esValido && errores.isEmpty() && advertencias.isEmpty();
+    }
+    
     public static ResultadoValidacion Valido() {
         return new ResultadoValidacion(true, new ArrayList<>(), new ArrayList<>());
     }
@@ -0,0 +1,177 @@
+package com.biblioteca.repositorios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import com.biblioteca.dominio.entidades.Reserva;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+
+/**
+ * Colas FIFO de reservas activas, una por material.
+ *
+ * Cada reserva recibe una secuencia monotónica de su material y la posición
+ * se deriva de ella: un árbol de Fenwick cuenta cuántas secuencias siguen
+ * activas antes. Encolar, cancelar, atender al primero y consultar la
+ * posición cuestan O(log n), y cancelar no reescribe las demás reservas.
+ */
+final class ColasReservas implements IObservadorRepositorio<Reserva> {
+
+    private final Map<String, Cola> porMaterial = new ConcurrentHashMap<>();
+    // Reservas activas sin secuencia propia (guardadas sin ella, o con una que ya
+    // ocupa otra reserva): esperan a que el repositorio les asigne y guarde una nueva
+    private final Set<String> sinSecuencia = ConcurrentHashMap.newKeySet();
+
+    long siguienteSecuencia(String idMaterial) {
+        return cola(idMaterial).reservarSecuencia();
+    }
+
+    @Override
+    public void alGuardar(String id, Reserva reserva) {
+        Cola cola = cola(reserva.getIdMaterial());
+        if (reserva.getEstado() != EstadoTransaccion.ACTIVA) {
+            sinSecuencia.remove(id);
+            cola.quitar(reserva.getSecuenciaCola(), id);
+            return;
+        }
+        if (reserva.getSecuenciaCola() == 0) {
+            // Asignarla acá no quedaría en la bitácora: la asigna y la guarda el repositorio
+            sinSecuencia.add(id);
+            return;
+        }
+        if (cola.encolar(reserva.getSecuenciaCola(), id)) {
+            sinSecuencia.remove(id);
+        } else {
+            sinSecuencia.add(id);
+        }
+    }
+
+    @Override
+    public void alEliminar(String id, Reserva reserva) {
+        sinSecuencia.remove(id);
+        cola(reserva.getIdMaterial()).quitar(reserva.getSecuenciaCola(), id);
+    }
+
+    Set<String> sinSecuencia() {
+        return Set.copyOf(sinSecuencia);
+    }
+
+    /**
+     * Primer ID de la cola que cumple la condición (normalmente, no expirado).
+     */
+    String primero(String idMaterial, Predicate<String> condicion) {
+        Cola cola = porMaterial.get(idMaterial);
+        return cola != null ? cola.primero(condicion) : null;
+    }
+
+    List<String> enOrden(String idMaterial) {
+        Cola cola = porMaterial.get(idMaterial);
+        return cola != null ? cola.enOrden() : List.of();
+    }
+
+    /**
+     * @return posición (desde 1) de la reserva, o 0 si no está en la cola
+     */
+    int posicion(Reserva reserva) {
+        Cola cola = porMaterial.get(reserva.getIdMaterial());
+        return cola != null ? cola.posicion(reserva.getSecuenciaCola(), reserva.getId()) : 0;
+    }
+
+    private Cola cola(String idMaterial) {
+        return porMaterial.computeIfAbsent(idMaterial, k -> new Cola());
+    }
+
+    private static final class Cola {
+        private static final int CAPACIDAD_INICIAL = 16;
+
+        private final TreeMap<Long, String> enEspera = new TreeMap<>();
+        private long siguiente = 1;
+        private long base = 1; // secuencia que ocupa la posición 1 del árbol
+        private int[] arbol = new int[CAPACIDAD_INICIAL + 1];
+
+        synchronized long reservarSecuencia() {
+            return siguiente++;
+        }
+
+        /**
+         * @return false si la secuencia ya la tiene otra reserva
+         */
+        synchronized boolean encolar(long secuencia, String id) {
+            siguiente = Math.max(siguiente, secuencia + 1);
+            String ocupante = enEspera.putIfAbsent(secuencia, id);
+            if (ocupante != null) {
+                return ocupante.equals(id);
+            }
+            // Al reproducir una instantánea las secuencias llegan en cualquier orden
+            if (secuencia < base || secuencia - base + 1 >= arbol.length) {
+                reconstruir();
+            } else {
+                sumar(secuencia, 1);
+            }
+            return true;
+        }
+
+        synchronized void quitar(long secuencia, String id) {
+            if (!enEspera.remove(secuencia, id)) {
+                return;
+            }
+            if (enEspera.isEmpty()) {
+                base = siguiente;
+                arbol = new int[CAPACIDAD_INICIAL + 1];
+            } else {
+                sumar(secuencia, -1);
+            }
+        }
+
+        synchronized String primero(Predicate<String> condicion) {
+            for (String id : enEspera.values()) {
+                if (condicion.test(id)) {
+                    return id;
+                }
+            }
+            return null;
+        }
+
+        synchronized List<String> enOrden() {
+            return new ArrayList<>(enEspera.values());
+        }
+
+        synchronized int posicion(long secuencia, String id) {
+            if (!id.equals(enEspera.get(secuencia))) {
+                return 0;
+            }
+            int total = 0;
+            for (int i = (int) (secuencia - base + 1); i > 0; i -= i & -i) {
+                total += arbol[i];
+            }
+            return total;
+        }
+
+        private void sumar(long secuencia, int delta) {
+            for (int i = (int) (secuencia - base + 1); i < arbol.length; i += i & -i) {
+                arbol[i] += delta;
+            }
+        }
+
+        /**
+         * Rehace el árbol para que cubra todas las secuencias en espera,
+         * con capacidad al menos el doble del rango (costo amortizado).
+         */
+        private void reconstruir() {
+            base = enEspera.firstKey();
+            long rango = enEspera.lastKey() - base + 1;
+            int capacidad = CAPACIDAD_INICIAL;
+            while (capacidad < rango * 2) {
+                capacidad <<= 1;
+            }
+            arbol = new int[capacidad + 1];
+            for (long secuencia : enEspera.keySet()) {
+                sumar(secuencia, 1);
+            }
+        }
+    }
+}
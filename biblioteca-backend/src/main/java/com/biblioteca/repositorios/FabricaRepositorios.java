@@ -1,42 +1,68 @@
 package com.biblioteca.repositorios;
 
-import com.biblioteca.dominio.entidades.Material;
+import java.nio.file.Paths;
+
 import com.biblioteca.dominio.entidades.Multa;
 import com.biblioteca.dominio.entidades.Prestamo;
-import com.biblioteca.dominio.entidades.Reserva;
 import com.biblioteca.dominio.entidades.Usuario;
 
 /**
  * Fabrica de Repositorios (Patrón Factory)
  * Permite cambiar la implementación de almacenamiento sin modificar la lógica de negocio.
+ * 
+ * El tipo se elige con la propiedad del sistema "biblioteca.repositorio":
+ * - MEMORIA (por defecto): volátil
+ * - ARCHIVO: bitácora en disco bajo "biblioteca.datos" (por defecto ./datos)
  */
 public class FabricaRepositorios {
     
-    // Podría configurarse desde properties o variables de entorno
-    private static final String TIPO_REPOSITORIO = "MEMORIA";
+    private static final String TIPO_REPOSITORIO = System.getProperty("biblioteca.repositorio", "MEMORIA");
+    private static final String DIRECTORIO_DATOS = System.getProperty("biblioteca.datos", "datos");
+    
+    private static IRepositorioFactory fabrica;
+    
+    /**
+     * Devuelve la fábrica configurada. La de archivo es única porque
+     * todos los repositorios comparten la misma bitácora.
+     */
+    public static synchronized IRepositorioFactory obtenerFabrica() {
+        if (fabrica == null) {
+            if ("MEMORIA".equalsIgnoreCase(TIPO_REPOSITORIO)) {
+                fabrica = new RepositorioEnMemoriaFactory();
+            } else if ("ARCHIVO".equalsIgnoreCase(TIPO_REPOSITORIO)) {
+                fabrica = new RepositorioArchivoFactory(Paths.get(DIRECTORIO_DATOS));
+            } else {
+                throw new UnsupportedOperationException("Tipo no soportado: " + TIPO_REPOSITORIO);
+            }
+        }
+        return fabrica;
+    }
     
-    public static IRepositorio<Material> crearRepositorioMaterial() {
-        if ("MEMORIA".equals(TIPO_REPOSITORIO)) return new RepositorioMaterialEnMemoria();
-        throw new UnsupportedOperationException("Tipo no soportado");
+    public static IRepositorioMaterial crearRepositorioMaterial() {
+        return obtenerFabrica().crearRepositorioMaterial();
     }
     
     public static IRepositorio<Usuario> crearRepositorioUsuario() {
-        if ("MEMORIA".equals(TIPO_REPOSITORIO)) return new RepositorioUsuarioEnMemoria();
-        throw new UnsupportedOperationException("Tipo no soportado");
+        return obtenerFabrica().crearRepositorioUsuario();
     }
     
     public static IRepositorio<Prestamo> crearRepositorioPrestamo() {
-        if ("MEMORIA".equals(TIPO_REPOSITORIO)) return new RepositorioPrestamoEnMemoria();
-        throw new UnsupportedOperationException("Tipo no soportado");
+        return obtenerFabrica().crearRepositorioPrestamo();
     }
     
-    public static IRepositorio<Reserva> crearRepositorioReserva() {
-        if ("MEMORIA".equals(TIPO_REPOSITORIO)) return new RepositorioReservaEnMemoria();
-        throw new UnsupportedOperationException("Tipo no soportado");
+    public static IRepositorioReserva crearRepositorioReserva() {
+        return obtenerFabrica().crearRepositorioReserva();
     }
     
     public static IRepositorio<Multa> crearRepositorioMulta() {
-        if ("MEMORIA".equals(TIPO_REPOSITORIO)) return new RepositorioMultaEnMemoria();
-        throw new UnsupportedOperationException("Tipo no soportado");
+        return obtenerFabrica().crearRepositorioMulta();
+    }
+    
+    public static IRepositorioMensajeSalida crearRepositorioMensajeSalida() {
+        return obtenerFabrica().crearRepositorioMensajeSalida();
+    }
+    
+    public static IUnidadTrabajo crearUnidadTrabajo() {
+        return obtenerFabrica().crearUnidadTrabajo();
     }
 }
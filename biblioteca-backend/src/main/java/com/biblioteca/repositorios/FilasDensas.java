@@ -0,0 +1,99 @@
+package com.biblioteca.repositorios;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numeración interna y compacta de las entidades de un repositorio para
+ * los índices de bits: cada ID recibe una fila entera, y las filas que se
+ * liberan se reutilizan, así los números quedan cerca de 0 y los mapas de
+ * bits densos.
+ *
+ * Cada fila guarda también la entidad, así un mapa de bits se resuelve a
+ * entidades sin buscar cada ID en el almacenamiento.
+ */
+class FilasDensas<T> {
+    private final Map<String, Integer> filaPorId = new HashMap<>();
+    private Object[] entidadPorFila = new Object[64];
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+    private int siguiente;
+
+    /**
+     * Fila del ID (si todavía no tiene, le asigna una) con la entidad actual.
+     */
+    synchronized int asignar(String id, T entidad) {
+        Integer fila = filaPorId.get(id);
+        if (fila == null) {
+            fila = cantidadLibres > 0 ? libres[--cantidadLibres] : siguiente++;
+            if (fila == entidadPorFila.length) {
+                entidadPorFila = Arrays.copyOf(entidadPorFila, entidadPorFila.length * 2);
+            }
+            filaPorId.put(id, fila);
+        }
+        entidadPorFila[fila] = entidad;
+        return fila;
+    }
+
+    /**
+     * @return la fila del ID, o -1 si no tiene
+     */
+    synchronized int fila(String id) {
+        Integer fila = filaPorId.get(id);
+        return fila != null ? fila : -1;
+    }
+
+    /**
+     * @return la fila que tenía el ID, o -1 si no tenía
+     */
+    synchronized int liberar(String id) {
+        Integer fila = filaPorId.remove(id);
+        if (fila == null) {
+            return -1;
+        }
+        entidadPorFila[fila] = null;
+        if (cantidadLibres == libres.length) {
+            libres = Arrays.copyOf(libres, libres.length * 2);
+        }
+        libres[cantidadLibres++] = fila;
+        return fila;
+    }
+
+    /**
+     * Mapa con las filas de los IDs; los que no tienen fila se ignoran.
+     */
+    synchronized MapaBits mapa(Iterable<String> ids) {
+        MapaBits filas = new MapaBits();
+        for (String id : ids) {
+            Integer fila = filaPorId.get(id);
+            if (fila != null) {
+                filas.agregar(fila);
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Entidades de las filas del mapa, en orden de fila.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<T> entidades(MapaBits filas) {
+        List<T> entidades = new ArrayList<>(filas.cardinalidad());
+        filas.forEach(fila -> {
+            if (fila < entidadPorFila.length && entidadPorFila[fila] != null) {
+                entidades.add((T) entidadPorFila[fila]);
+            }
+        });
+        return entidades;
+    }
+
+    synchronized void limpiar() {
+        filaPorId.clear();
+        Arrays.fill(entidadPorFila, null);
+        cantidadLibres = 0;
+        siguiente = 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.repositorios;
+
+/**
+ * Observer de escrituras de un repositorio.
+ * Se invoca después de aplicar cada cambio (también al reproducir la bitácora),
+ * así las vistas derivadas se mantienen sin volver a recorrer el repositorio.
+ */
+public interface IObservadorRepositorio<T> {
+    void alGuardar(String id, T entidad);
+    void alEliminar(String id, T entidad);
+}
@@ -1,15 +1,97 @@
 package com.biblioteca.repositorios;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import com.biblioteca.dominio.objetosvalor.Pagina;
 import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.consulta.Criterio;
+import com.biblioteca.repositorios.consulta.ResultadoConsulta;
 
 public interface IRepositorio<T> {
     Resultado agregar(T entidad);
+
+    /**
+     * Si la entidad es IVersionada, guarda solo si tiene la misma versión
+     * que la guardada; una copia leída antes de otra actualización recibe un
+     * Resultado de conflicto y no escribe nada.
+     */
     Resultado actualizar(T entidad);
+
+    /**
+     * Actualiza solo si la entidad guardada sigue en la versión esperada (la
+     * que tenía al leerla); si no, devuelve un Resultado de conflicto y no
+     * escribe nada. Es para entidades IVersionada.
+     *
+     * La entidad debe ser una copia obtenida con obtenerCopia: si la versión
+     * coincide, reemplaza a la guardada; si no, se descarta y la guardada
+     * queda como estaba.
+     */
+    Resultado actualizarConVersion(T entidad, long versionEsperada);
+
+    /**
+     * Copia privada de la entidad guardada, para modificarla y guardarla con
+     * actualizarConVersion sin que nadie vea el cambio antes de confirmarlo.
+     *
+     * @return la copia, o null si no existe
+     */
+    T obtenerCopia(String id);
     Resultado eliminar(String id);
+
+    /**
+     * Agrega varias entidades con una sola escritura en disco. Cada una se
+     * valida como en agregar (además, un ID no puede repetirse en el lote);
+     * las inválidas no se agregan y no impiden las demás.
+     *
+     * @return un resultado por entidad, en el mismo orden
+     */
+    List<Resultado> agregarLote(List<? extends T> entidades);
+
+    /**
+     * Como agregarLote, pero para entidades que ya existen; cada una con el
+     * control de versión de actualizar.
+     */
+    List<Resultado> actualizarLote(List<? extends T> entidades);
     T obtenerPorId(String id);
+
+    /**
+     * Varias entidades de una vez, para no pedir una por una al resolver
+     * referencias de un listado. El mapa va en orden de ID y no incluye los
+     * IDs que no existen.
+     */
+    Map<String, T> obtenerPorIds(Collection<String> ids);
     List<T> obtenerTodos();
     boolean existe(String id);
     long contar();
-}
\ No newline at end of file
+
+    /**
+     * Recorre las entidades sin copiar el almacenamiento.
+     */
+    Stream<T> stream();
+
+    default void forEach(Consumer<? super T> accion) {
+        stream().forEach(accion);
+    }
+
+    /**
+     * Devuelve hasta {@code limite} entidades en orden de ID, empezando
+     * después de {@code cursor} (null para la primera página).
+     */
+    Pagina<T> obtenerPagina(String cursor, int limite);
+
+    /**
+     * Devuelve las entidades que cumplen el criterio. La implementación
+     * usa un índice si tiene uno para algún término y si no recorre todo;
+     * el resultado informa qué plan se usó.
+     */
+    ResultadoConsulta<T> buscar(Criterio<T> criterio);
+
+    /**
+     * Suscribe un observador a las escrituras. Recibe primero un alGuardar
+     * por cada entidad ya almacenada y luego cada cambio posterior.
+     */
+    void agregarObservador(IObservadorRepositorio<T> observador);
+}
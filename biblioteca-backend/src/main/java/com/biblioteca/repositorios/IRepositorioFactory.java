@@ -1,9 +1,7 @@
 package com.biblioteca.repositorios;
 
-import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Multa;
 import com.biblioteca.dominio.entidades.Prestamo;
-import com.biblioteca.dominio.entidades.Reserva;
 import com.biblioteca.dominio.entidades.Usuario;
 
 /**
@@ -12,9 +10,26 @@ import com.biblioteca.dominio.entidades.Usuario;
  * sin afectar la lógica de negocio.
  */
 public interface IRepositorioFactory {
-    IRepositorio<Material> crearRepositorioMaterial();
+    IRepositorioMaterial crearRepositorioMaterial();
     IRepositorio<Usuario> crearRepositorioUsuario();
     IRepositorio<Prestamo> crearRepositorioPrestamo();
-    IRepositorio<Reserva> crearRepositorioReserva();
+    IRepositorioReserva crearRepositorioReserva();
     IRepositorio<Multa> crearRepositorioMulta();
+    IRepositorioMensajeSalida crearRepositorioMensajeSalida();
+    
+    /**
+     * Unidad de trabajo que confirma juntas las escrituras de una operación.
+     * Sin persistencia no hay nada que agrupar.
+     */
+    default IUnidadTrabajo crearUnidadTrabajo() {
+        return IUnidadTrabajo.DIRECTA;
+    }
+
+    /**
+     * Ejecuta una carga masiva de datos. Las implementaciones persistentes
+     * pueden sobrescribirlo para guardar el resultado de una sola vez.
+     */
+    default void importarDatos(Runnable carga) {
+        carga.run();
+    }
 }
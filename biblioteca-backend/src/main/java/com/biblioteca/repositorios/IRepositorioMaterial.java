@@ -0,0 +1,39 @@
+package com.biblioteca.repositorios;
+
+import java.util.List;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.objetosvalor.BusquedaCatalogo;
+
+/**
+ * Repositorio de materiales con búsqueda de texto sobre el catálogo.
+ */
+public interface IRepositorioMaterial extends IRepositorio<Material> {
+
+    /**
+     * Materiales que contienen todas las palabras de la consulta en el título,
+     * autor, director o códigos (ID, ISBN, ISSN), del más relevante al menos.
+     * No distingue mayúsculas ni tildes.
+     */
+    List<Material> buscarTexto(String consulta, int limite);
+
+    /**
+     * Como buscarTexto, pero corrige las palabras mal escritas de la consulta
+     * (hasta una o dos letras de diferencia según su largo).
+     */
+    List<Material> buscarTextoAproximado(String consulta, int limite);
+
+    /**
+     * Como buscarTexto, y además cuenta todas las coincidencias por tipo y
+     * por estado en la misma pasada por el índice.
+     */
+    BusquedaCatalogo buscarTextoConFacetas(String consulta, int limite);
+
+    /**
+     * Materiales cuyo ID, título o autor contiene el texto tal cual (sin
+     * distinguir mayúsculas), aunque sea en medio de una palabra: "MAT-0000"
+     * o "quij". Recorre el catálogo; es el respaldo cuando el índice de
+     * palabras no encuentra nada.
+     */
+    List<Material> buscarSubcadena(String texto, int limite);
+}
@@ -0,0 +1,19 @@
+package com.biblioteca.repositorios;
+
+import java.util.stream.Stream;
+
+import com.biblioteca.dominio.entidades.MensajeSalida;
+
+/**
+ * Repositorio de la bandeja de salida.
+ */
+public interface IRepositorioMensajeSalida extends IRepositorio<MensajeSalida> {
+
+    /**
+     * Mensajes ya confirmados en disco. Los agregados dentro de una unidad de
+     * trabajo están en memoria desde el momento en que se agregan, pero no
+     * aparecen acá hasta que la unidad escribe su marco: antes de eso una
+     * caída los perdería, y entregarlos sería avisar de algo que no ocurrió.
+     */
+    Stream<MensajeSalida> streamConfirmados();
+}
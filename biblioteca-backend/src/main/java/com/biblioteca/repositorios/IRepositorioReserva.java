@@ -0,0 +1,26 @@
+package com.biblioteca.repositorios;
+
+import java.util.List;
+
+import com.biblioteca.dominio.entidades.Reserva;
+
+/**
+ * Repositorio de reservas con acceso a la cola de espera de cada material.
+ */
+public interface IRepositorioReserva extends IRepositorio<Reserva> {
+
+    /**
+     * Reservas activas y no expiradas del material, en orden de llegada.
+     */
+    List<Reserva> buscarActivasPorMaterial(String idMaterial);
+
+    /**
+     * Primera reserva activa y no expirada del material, o null si no hay.
+     */
+    Reserva buscarPrimeraEnCola(String idMaterial);
+
+    /**
+     * @return posición (desde 1) de la reserva en la cola de su material, o 0 si no está
+     */
+    int posicionEnCola(Reserva reserva);
+}
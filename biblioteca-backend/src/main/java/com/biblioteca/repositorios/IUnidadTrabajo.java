@@ -0,0 +1,26 @@
+package com.biblioteca.repositorios;
+
+import java.util.function.Supplier;
+
+/**
+ * Unidad de trabajo: todas las escrituras que la operación hace en los
+ * repositorios (desde el mismo hilo) se confirman juntas en disco.
+ *
+ * No deshace cambios en memoria si la operación falla; garantiza que una
+ * caída no deje en disco solo una parte (por ejemplo, la devolución sin
+ * su notificación pendiente).
+ */
+public interface IUnidadTrabajo {
+
+    /**
+     * Sin bitácora no hay nada que agrupar: la operación se ejecuta tal cual.
+     */
+    IUnidadTrabajo DIRECTA = new IUnidadTrabajo() {
+        @Override
+        public <R> R ejecutar(Supplier<R> operacion) {
+            return operacion.get();
+        }
+    };
+
+    <R> R ejecutar(Supplier<R> operacion);
+}
@@ -0,0 +1,145 @@
+package com.biblioteca.repositorios;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.biblioteca.repositorios.consulta.Campo;
+
+/**
+ * Índice de bits sobre un campo enumerado: un MapaBits de filas por cada
+ * valor. Sirve para campos de pocos valores (estado, tipo), donde un índice
+ * hash guardaría conjuntos enormes de IDs; aquí cuestan un bit por fila y
+ * se combinan con intersecciones y uniones sin tocar las entidades.
+ *
+ * Como IndiceSecundario, recuerda con qué valor indexó cada fila para
+ * poder sacarla del mapa anterior aunque la entidad ya haya cambiado.
+ */
+public class IndiceBits<E extends Enum<E>, T> {
+    private static final byte SIN_VALOR = -1;
+
+    private final Campo<T, E> campo;
+    private final Class<E> tipo;
+    private final MapaBits[] filasPorValor;
+    private byte[] valorPorFila = new byte[64];
+    private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    public IndiceBits(Campo<T, E> campo, Class<E> tipo) {
+        this.campo = campo;
+        this.tipo = tipo;
+        this.filasPorValor = new MapaBits[tipo.getEnumConstants().length];
+        for (int i = 0; i < filasPorValor.length; i++) {
+            filasPorValor[i] = new MapaBits();
+        }
+        Arrays.fill(valorPorFila, SIN_VALOR);
+    }
+
+    public Campo<T, E> getCampo() {
+        return campo;
+    }
+
+    /**
+     * Indexa (o reindexa) la fila con el valor actual del campo. Un valor
+     * nulo significa "no indexar".
+     */
+    public void indexar(int fila, T entidad) {
+        E valor = campo.leer(entidad);
+        byte nuevo = valor != null ? (byte) valor.ordinal() : SIN_VALOR;
+        bloqueo.writeLock().lock();
+        try {
+            if (fila >= valorPorFila.length) {
+                int largo = valorPorFila.length;
+                valorPorFila = Arrays.copyOf(valorPorFila, Math.max(fila + 1, largo * 2));
+                Arrays.fill(valorPorFila, largo, valorPorFila.length, SIN_VALOR);
+            }
+            byte anterior = valorPorFila[fila];
+            if (anterior == nuevo) {
+                return;
+            }
+            if (anterior != SIN_VALOR) {
+                filasPorValor[anterior].quitar(fila);
+            }
+            if (nuevo != SIN_VALOR) {
+                filasPorValor[nuevo].agregar(fila);
+            }
+            valorPorFila[fila] = nuevo;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void desindexar(int fila) {
+        bloqueo.writeLock().lock();
+        try {
+            if (fila < valorPorFila.length && valorPorFila[fila] != SIN_VALOR) {
+                filasPorValor[valorPorFila[fila]].quitar(fila);
+                valorPorFila[fila] = SIN_VALOR;
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filas con alguno de los valores (la unión de sus mapas), en un mapa nuevo.
+     */
+    public MapaBits buscar(Collection<?> valores) {
+        bloqueo.readLock().lock();
+        try {
+            MapaBits resultado = null;
+            for (Object valor : valores) {
+                if (!tipo.isInstance(valor)) {
+                    continue;
+                }
+                MapaBits filas = filasPorValor[tipo.cast(valor).ordinal()];
+                resultado = resultado == null ? filas.copia() : resultado.o(filas);
+            }
+            return resultado != null ? resultado : new MapaBits();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de filas con el valor, sin materializarlas.
+     */
+    public int contar(E valor) {
+        bloqueo.readLock().lock();
+        try {
+            return filasPorValor[valor.ordinal()].cardinalidad();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de filas de cada valor dentro del conjunto dado (cardinalidad
+     * de la intersección, sin armarla).
+     */
+    public EnumMap<E, Long> contar(MapaBits dentro) {
+        EnumMap<E, Long> cantidades = new EnumMap<>(tipo);
+        bloqueo.readLock().lock();
+        try {
+            for (E valor : tipo.getEnumConstants()) {
+                cantidades.put(valor, (long) filasPorValor[valor.ordinal()].cardinalidadY(dentro));
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        return cantidades;
+    }
+
+    public void limpiar() {
+        bloqueo.writeLock().lock();
+        try {
+            for (MapaBits filas : filasPorValor) {
+                filas.limpiar();
+            }
+            Arrays.fill(valorPorFila, SIN_VALOR);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+}
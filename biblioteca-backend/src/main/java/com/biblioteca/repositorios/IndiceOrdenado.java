@@ -0,0 +1,84 @@
+package com.biblioteca.repositorios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.biblioteca.repositorios.consulta.Campo;
+import com.biblioteca.repositorios.consulta.Criterio;
+
+/**
+ * Índice secundario ordenado (árbol, bajo el bloqueo del índice) para consultas por rango,
+ * típicamente fechas: "vencidos antes de ahora", "devueltos entre dos días".
+ *
+ * Puede ser parcial: con una condición solo indexa las entidades que la
+ * cumplen (por ejemplo, fecha esperada solo de préstamos activos), así el
+ * historial no agranda los recorridos. Un índice parcial solo sirve para
+ * criterios que incluyen esa misma condición.
+ */
+public class IndiceOrdenado<K extends Comparable<? super K>, T> extends IndiceSecundario<K, T> {
+    private final NavigableMap<K, Set<String>> ordenado;
+    private final Criterio<T> condicion;
+    
+    public IndiceOrdenado(Campo<T, K> campo, Criterio<T> condicion) {
+        this(campo, condicion, new TreeMap<>());
+    }
+    
+    private IndiceOrdenado(Campo<T, K> campo, Criterio<T> condicion, NavigableMap<K, Set<String>> ordenado) {
+        super(campo.getNombre(), entidad -> condicion.cumple(entidad) ? campo.leer(entidad) : null, ordenado);
+        this.ordenado = ordenado;
+        this.condicion = condicion;
+    }
+    
+    /**
+     * IDs con clave dentro del rango (una cota nula es abierta), en orden de clave.
+     */
+    public List<String> rango(K desde, boolean desdeIncluido, K hasta, boolean hastaIncluido) {
+        return rango(desde, desdeIncluido, hasta, hastaIncluido, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Igual que {@link #rango(Comparable, boolean, Comparable, boolean)}, pero
+     * devuelve null en cuanto supera el límite (el planificador tiene algo mejor).
+     */
+    public List<String> rango(K desde, boolean desdeIncluido, K hasta, boolean hastaIncluido, int limite) {
+        bloqueo.readLock().lock();
+        try {
+            NavigableMap<K, Set<String>> tramo = ordenado;
+            if (desde != null) {
+                tramo = tramo.tailMap(desde, desdeIncluido);
+            }
+            if (hasta != null) {
+                tramo = tramo.headMap(hasta, hastaIncluido);
+            }
+            List<String> ids = new ArrayList<>();
+            for (Set<String> grupo : tramo.values()) {
+                ids.addAll(grupo);
+                if (ids.size() > limite) {
+                    return null;
+                }
+            }
+            return ids;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Un índice parcial solo es válido si el criterio exige cada igualdad de la condición.
+     */
+    public boolean aplicaA(Criterio<T> criterio) {
+        for (Criterio.Termino<T> requerido : condicion.getTerminos()) {
+            boolean presente = criterio.getTerminos().stream()
+                .anyMatch(t -> t.esIgualdad() && t.getCampo() == requerido.getCampo()
+                        && Objects.equals(t.getValor(), requerido.getValor()));
+            if (!presente) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
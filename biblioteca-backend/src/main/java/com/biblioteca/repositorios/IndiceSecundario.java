@@ -0,0 +1,112 @@
+package com.biblioteca.repositorios;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Índice secundario hash (clave → IDs de entidades).
+ *
+ * Las entidades se modifican en sitio antes de llamar a actualizar(),
+ * por eso el índice recuerda la última clave con la que indexó cada ID:
+ * así puede sacarla del grupo anterior aunque el objeto ya haya cambiado.
+ *
+ * Los dos mapas cambian juntos bajo un mismo bloqueo: quien lee nunca ve
+ * un ID en dos grupos a la vez, ni en ninguno mientras se mueve.
+ */
+public class IndiceSecundario<K, T> {
+    private final String nombre;
+    private final Function<T, K> extractorClave;
+    private final Map<K, Set<String>> idsPorClave;
+    private final Map<String, K> clavePorId;
+    protected final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    public IndiceSecundario(String nombre, Function<T, K> extractorClave) {
+        this(nombre, extractorClave, new HashMap<>());
+    }
+    
+    /**
+     * Permite elegir la estructura de los grupos (por ejemplo, una ordenada).
+     */
+    protected IndiceSecundario(String nombre, Function<T, K> extractorClave, Map<K, Set<String>> idsPorClave) {
+        this.nombre = nombre;
+        this.extractorClave = extractorClave;
+        this.idsPorClave = idsPorClave;
+        this.clavePorId = new HashMap<>();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Indexa (o reindexa) la entidad con su clave actual.
+     * Una clave nula significa "no indexar".
+     */
+    public void indexar(String id, T entidad) {
+        K nueva = extractorClave.apply(entidad);
+        bloqueo.writeLock().lock();
+        try {
+            K anterior = nueva != null ? clavePorId.put(id, nueva) : clavePorId.remove(id);
+
+            if (anterior != null && anterior.equals(nueva)) {
+                return;
+            }
+            if (anterior != null) {
+                quitarDeGrupo(anterior, id);
+            }
+            if (nueva != null) {
+                idsPorClave.computeIfAbsent(nueva, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    public void desindexar(String id) {
+        bloqueo.writeLock().lock();
+        try {
+            K anterior = clavePorId.remove(id);
+            if (anterior != null) {
+                quitarDeGrupo(anterior, id);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * IDs indexados bajo la clave, copiados bajo el bloqueo.
+     */
+    public Set<String> buscar(K clave) {
+        if (clave == null) return Set.of();
+        bloqueo.readLock().lock();
+        try {
+            Set<String> ids = idsPorClave.get(clave);
+            return ids != null ? Set.copyOf(ids) : Set.of();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    public void limpiar() {
+        bloqueo.writeLock().lock();
+        try {
+            idsPorClave.clear();
+            clavePorId.clear();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    private void quitarDeGrupo(K clave, String id) {
+        Set<String> ids = idsPorClave.get(clave);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsPorClave.remove(clave);
+        }
+    }
+}
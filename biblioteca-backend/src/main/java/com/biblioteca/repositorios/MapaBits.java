@@ -0,0 +1,456 @@
+package com.biblioteca.repositorios;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto comprimido de enteros no negativos, al estilo "roaring": los
+ * 16 bits altos eligen un contenedor y los 16 bajos se guardan en él.
+ *
+ * Un contenedor con pocos valores (hasta MAXIMO_ARREGLO) es un arreglo
+ * ordenado de char; uno denso es un mapa de 65536 bits. Así un estado raro
+ * ocupa unos pocos bytes y uno frecuente un bit por fila, y la
+ * intersección y la unión trabajan contenedor a contenedor (palabra a
+ * palabra entre mapas de bits).
+ *
+ * No es seguro entre hilos: lo protege el índice que lo contiene. y() y o()
+ * devuelven conjuntos nuevos y no modifican los operandos.
+ */
+public final class MapaBits {
+
+    private static final int MAXIMO_ARREGLO = 4096;
+    private static final int PALABRAS = 1 << 10;
+
+    private char[] claves;
+    private Contenedor[] contenedores;
+    private int cantidad;
+
+    public MapaBits() {
+        this(4);
+    }
+
+    private MapaBits(int capacidad) {
+        this.claves = new char[capacidad];
+        this.contenedores = new Contenedor[capacidad];
+    }
+
+    public void agregar(int valor) {
+        char clave = (char) (valor >>> 16);
+        int i = buscarClave(clave);
+        if (i < 0) {
+            i = -i - 1;
+            insertar(i, clave, new ContenedorArreglo());
+        }
+        contenedores[i] = contenedores[i].agregar((char) valor);
+    }
+
+    public void quitar(int valor) {
+        int i = buscarClave((char) (valor >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Contenedor contenedor = contenedores[i].quitar((char) valor);
+        if (contenedor.cardinalidad == 0) {
+            System.arraycopy(claves, i + 1, claves, i, cantidad - i - 1);
+            System.arraycopy(contenedores, i + 1, contenedores, i, cantidad - i - 1);
+            contenedores[--cantidad] = null;
+        } else {
+            contenedores[i] = contenedor;
+        }
+    }
+
+    public boolean contiene(int valor) {
+        int i = buscarClave((char) (valor >>> 16));
+        return i >= 0 && contenedores[i].contiene((char) valor);
+    }
+
+    public int cardinalidad() {
+        int total = 0;
+        for (int i = 0; i < cantidad; i++) {
+            total += contenedores[i].cardinalidad;
+        }
+        return total;
+    }
+
+    public boolean estaVacio() {
+        return cantidad == 0;
+    }
+
+    /**
+     * Tamaño de la intersección, sin armarla.
+     */
+    public int cardinalidadY(MapaBits otro) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < cantidad && j < otro.cantidad) {
+            if (claves[i] < otro.claves[j]) {
+                i++;
+            } else if (claves[i] > otro.claves[j]) {
+                j++;
+            } else {
+                total += contenedores[i].cardinalidadY(otro.contenedores[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Intersección: solo se cruzan los contenedores con la misma clave.
+     */
+    public MapaBits y(MapaBits otro) {
+        MapaBits resultado = new MapaBits(Math.max(1, Math.min(cantidad, otro.cantidad)));
+        int i = 0;
+        int j = 0;
+        while (i < cantidad && j < otro.cantidad) {
+            if (claves[i] < otro.claves[j]) {
+                i++;
+            } else if (claves[i] > otro.claves[j]) {
+                j++;
+            } else {
+                Contenedor comun = contenedores[i].y(otro.contenedores[j]);
+                if (comun.cardinalidad > 0) {
+                    resultado.insertar(resultado.cantidad, claves[i], comun);
+                }
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    public MapaBits o(MapaBits otro) {
+        MapaBits resultado = new MapaBits(Math.max(1, cantidad + otro.cantidad));
+        int i = 0;
+        int j = 0;
+        while (i < cantidad || j < otro.cantidad) {
+            if (j == otro.cantidad || i < cantidad && claves[i] < otro.claves[j]) {
+                resultado.insertar(resultado.cantidad, claves[i], contenedores[i].copia());
+                i++;
+            } else if (i == cantidad || claves[i] > otro.claves[j]) {
+                resultado.insertar(resultado.cantidad, otro.claves[j], otro.contenedores[j].copia());
+                j++;
+            } else {
+                resultado.insertar(resultado.cantidad, claves[i], contenedores[i].o(otro.contenedores[j]));
+                i++;
+                j++;
+            }
+        }
+        return resultado;
+    }
+
+    public MapaBits copia() {
+        MapaBits resultado = new MapaBits(Math.max(1, cantidad));
+        for (int i = 0; i < cantidad; i++) {
+            resultado.insertar(i, claves[i], contenedores[i].copia());
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre los valores en orden creciente.
+     */
+    public void forEach(IntConsumer accion) {
+        for (int i = 0; i < cantidad; i++) {
+            contenedores[i].forEach(claves[i] << 16, accion);
+        }
+    }
+
+    public void limpiar() {
+        Arrays.fill(contenedores, 0, cantidad, null);
+        cantidad = 0;
+    }
+
+    private int buscarClave(char clave) {
+        return Arrays.binarySearch(claves, 0, cantidad, clave);
+    }
+
+    private void insertar(int i, char clave, Contenedor contenedor) {
+        if (cantidad == claves.length) {
+            claves = Arrays.copyOf(claves, cantidad * 2);
+            contenedores = Arrays.copyOf(contenedores, cantidad * 2);
+        }
+        System.arraycopy(claves, i, claves, i + 1, cantidad - i);
+        System.arraycopy(contenedores, i, contenedores, i + 1, cantidad - i);
+        claves[i] = clave;
+        contenedores[i] = contenedor;
+        cantidad++;
+    }
+
+    /**
+     * Los 16 bits bajos de los valores con una misma clave. Las operaciones
+     * devuelven el contenedor que corresponde (puede cambiar de forma).
+     */
+    private abstract static class Contenedor {
+        int cardinalidad;
+
+        abstract Contenedor agregar(char valor);
+
+        abstract Contenedor quitar(char valor);
+
+        abstract boolean contiene(char valor);
+
+        abstract Contenedor y(Contenedor otro);
+
+        abstract int cardinalidadY(Contenedor otro);
+
+        abstract Contenedor o(Contenedor otro);
+
+        abstract Contenedor copia();
+
+        abstract void forEach(int base, IntConsumer accion);
+    }
+
+    private static final class ContenedorArreglo extends Contenedor {
+        private char[] valores;
+
+        private ContenedorArreglo() {
+            this(new char[4], 0);
+        }
+
+        private ContenedorArreglo(char[] valores, int cardinalidad) {
+            this.valores = valores;
+            this.cardinalidad = cardinalidad;
+        }
+
+        @Override
+        Contenedor agregar(char valor) {
+            int i = Arrays.binarySearch(valores, 0, cardinalidad, valor);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinalidad == MAXIMO_ARREGLO) {
+                return aBits().agregar(valor);
+            }
+            i = -i - 1;
+            if (cardinalidad == valores.length) {
+                valores = Arrays.copyOf(valores, Math.min(MAXIMO_ARREGLO, Math.max(4, cardinalidad * 2)));
+            }
+            System.arraycopy(valores, i, valores, i + 1, cardinalidad - i);
+            valores[i] = valor;
+            cardinalidad++;
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(char valor) {
+            int i = Arrays.binarySearch(valores, 0, cardinalidad, valor);
+            if (i >= 0) {
+                System.arraycopy(valores, i + 1, valores, i, cardinalidad - i - 1);
+                cardinalidad--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contiene(char valor) {
+            return Arrays.binarySearch(valores, 0, cardinalidad, valor) >= 0;
+        }
+
+        @Override
+        Contenedor y(Contenedor otro) {
+            char[] comunes = new char[cardinalidad];
+            int n = 0;
+            if (otro instanceof ContenedorBits) {
+                for (int i = 0; i < cardinalidad; i++) {
+                    if (otro.contiene(valores[i])) {
+                        comunes[n++] = valores[i];
+                    }
+                }
+            } else {
+                ContenedorArreglo arreglo = (ContenedorArreglo) otro;
+                int i = 0;
+                int j = 0;
+                while (i < cardinalidad && j < arreglo.cardinalidad) {
+                    if (valores[i] < arreglo.valores[j]) {
+                        i++;
+                    } else if (valores[i] > arreglo.valores[j]) {
+                        j++;
+                    } else {
+                        comunes[n++] = valores[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ContenedorArreglo(comunes, n);
+        }
+
+        @Override
+        int cardinalidadY(Contenedor otro) {
+            int total = 0;
+            for (int i = 0; i < cardinalidad; i++) {
+                if (otro.contiene(valores[i])) {
+                    total++;
+                }
+            }
+            return total;
+        }
+
+        @Override
+        Contenedor o(Contenedor otro) {
+            if (otro instanceof ContenedorBits) {
+                return otro.o(this);
+            }
+            ContenedorArreglo arreglo = (ContenedorArreglo) otro;
+            char[] union = new char[cardinalidad + arreglo.cardinalidad];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinalidad || j < arreglo.cardinalidad) {
+                if (j == arreglo.cardinalidad || i < cardinalidad && valores[i] < arreglo.valores[j]) {
+                    union[n++] = valores[i++];
+                } else if (i == cardinalidad || valores[i] > arreglo.valores[j]) {
+                    union[n++] = arreglo.valores[j++];
+                } else {
+                    union[n++] = valores[i++];
+                    j++;
+                }
+            }
+            ContenedorArreglo resultado = new ContenedorArreglo(union, n);
+            return n > MAXIMO_ARREGLO ? resultado.aBits() : resultado;
+        }
+
+        @Override
+        Contenedor copia() {
+            return new ContenedorArreglo(Arrays.copyOf(valores, Math.max(1, cardinalidad)), cardinalidad);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer accion) {
+            for (int i = 0; i < cardinalidad; i++) {
+                accion.accept(base | valores[i]);
+            }
+        }
+
+        private ContenedorBits aBits() {
+            ContenedorBits bits = new ContenedorBits();
+            for (int i = 0; i < cardinalidad; i++) {
+                bits.palabras[valores[i] >>> 6] |= 1L << valores[i];
+            }
+            bits.cardinalidad = cardinalidad;
+            return bits;
+        }
+    }
+
+    private static final class ContenedorBits extends Contenedor {
+        private final long[] palabras;
+
+        private ContenedorBits() {
+            this(new long[PALABRAS]);
+        }
+
+        private ContenedorBits(long[] palabras) {
+            this.palabras = palabras;
+        }
+
+        @Override
+        Contenedor agregar(char valor) {
+            long anterior = palabras[valor >>> 6];
+            palabras[valor >>> 6] = anterior | 1L << valor;
+            if (anterior != palabras[valor >>> 6]) {
+                cardinalidad++;
+            }
+            return this;
+        }
+
+        @Override
+        Contenedor quitar(char valor) {
+            long anterior = palabras[valor >>> 6];
+            palabras[valor >>> 6] = anterior & ~(1L << valor);
+            if (anterior != palabras[valor >>> 6]) {
+                cardinalidad--;
+            }
+            // Vuelve a arreglo recién a la mitad del umbral, para no ir y venir en el borde
+            return cardinalidad <= MAXIMO_ARREGLO / 2 ? aArreglo() : this;
+        }
+
+        @Override
+        boolean contiene(char valor) {
+            return (palabras[valor >>> 6] & 1L << valor) != 0;
+        }
+
+        @Override
+        Contenedor y(Contenedor otro) {
+            if (otro instanceof ContenedorArreglo) {
+                return otro.y(this);
+            }
+            long[] otras = ((ContenedorBits) otro).palabras;
+            ContenedorBits resultado = new ContenedorBits();
+            int total = 0;
+            for (int i = 0; i < PALABRAS; i++) {
+                resultado.palabras[i] = palabras[i] & otras[i];
+                total += Long.bitCount(resultado.palabras[i]);
+            }
+            resultado.cardinalidad = total;
+            return total <= MAXIMO_ARREGLO ? resultado.aArreglo() : resultado;
+        }
+
+        @Override
+        int cardinalidadY(Contenedor otro) {
+            if (otro instanceof ContenedorArreglo) {
+                return otro.cardinalidadY(this);
+            }
+            long[] otras = ((ContenedorBits) otro).palabras;
+            int total = 0;
+            for (int i = 0; i < PALABRAS; i++) {
+                total += Long.bitCount(palabras[i] & otras[i]);
+            }
+            return total;
+        }
+
+        @Override
+        Contenedor o(Contenedor otro) {
+            ContenedorBits resultado = new ContenedorBits(palabras.clone());
+            if (otro instanceof ContenedorArreglo) {
+                ContenedorArreglo arreglo = (ContenedorArreglo) otro;
+                resultado.cardinalidad = cardinalidad;
+                for (int i = 0; i < arreglo.cardinalidad; i++) {
+                    resultado.agregar(arreglo.valores[i]);
+                }
+                return resultado;
+            }
+            long[] otras = ((ContenedorBits) otro).palabras;
+            int total = 0;
+            for (int i = 0; i < PALABRAS; i++) {
+                resultado.palabras[i] |= otras[i];
+                total += Long.bitCount(resultado.palabras[i]);
+            }
+            resultado.cardinalidad = total;
+            return resultado;
+        }
+
+        @Override
+        Contenedor copia() {
+            ContenedorBits resultado = new ContenedorBits(palabras.clone());
+            resultado.cardinalidad = cardinalidad;
+            return resultado;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer accion) {
+            for (int i = 0; i < PALABRAS; i++) {
+                long palabra = palabras[i];
+                while (palabra != 0) {
+                    accion.accept(base | i << 6 | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+        }
+
+        private ContenedorArreglo aArreglo() {
+            char[] valores = new char[Math.max(1, cardinalidad)];
+            int n = 0;
+            for (int i = 0; i < PALABRAS; i++) {
+                long palabra = palabras[i];
+                while (palabra != 0) {
+                    valores[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(palabra));
+                    palabra &= palabra - 1;
+                }
+            }
+            return new ContenedorArreglo(valores, n);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.biblioteca.repositorios;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.biblioteca.dominio.entidades.Multa;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.entidades.Usuario;
+import com.biblioteca.repositorios.persistencia.ArchivoInstantanea;
+import com.biblioteca.repositorios.persistencia.BitacoraEscritura;
+import com.biblioteca.repositorios.persistencia.EntradaBitacora;
+
+/**
+ * Implementación de la fábrica para repositorios persistentes en archivo.
+ *
+ * Los repositorios siguen respondiendo desde memoria (con sus índices),
+ * pero todas las escrituras pasan por una bitácora compartida en disco.
+ * Al arrancar se carga la última instantánea publicada y encima se
+ * reproducen solo los segmentos de bitácora posteriores a ella.
+ * Periódicamente se toma una instantánea nueva y se compactan los
+ * segmentos viejos, así el arranque no depende del historial completo.
+ */
+public class RepositorioArchivoFactory implements IRepositorioFactory, AutoCloseable {
+
+    private static final long MINUTOS_ENTRE_INSTANTANEAS =
+            Long.getLong("biblioteca.instantanea.minutos", 10);
+
+    private final RepositorioMaterialEnMemoria repoMaterial;
+    private final RepositorioUsuarioEnMemoria repoUsuario;
+    private final RepositorioPrestamoEnMemoria repoPrestamo;
+    private final RepositorioReservaEnMemoria repoReserva;
+    private final RepositorioMultaEnMemoria repoMulta;
+    private final RepositorioMensajeSalidaEnMemoria repoMensajeSalida;
+    private final Map<String, RepositorioEnMemoria<?>> porNombre;
+    private final Path directorio;
+    private final BitacoraEscritura bitacora;
+    private final ScheduledExecutorService programador;
+    private final IUnidadTrabajo unidadTrabajo;
+
+    public RepositorioArchivoFactory(Path directorio) {
+        this.repoMaterial = new RepositorioMaterialEnMemoria();
+        this.repoUsuario = new RepositorioUsuarioEnMemoria();
+        this.repoPrestamo = new RepositorioPrestamoEnMemoria();
+        this.repoReserva = new RepositorioReservaEnMemoria();
+        this.repoMulta = new RepositorioMultaEnMemoria();
+        this.repoMensajeSalida = new RepositorioMensajeSalidaEnMemoria();
+
+        this.directorio = directorio;
+        this.porNombre = new HashMap<>();
+        porNombre.put("material", repoMaterial);
+        porNombre.put("usuario", repoUsuario);
+        porNombre.put("prestamo", repoPrestamo);
+        porNombre.put("reserva", repoReserva);
+        porNombre.put("multa", repoMulta);
+        porNombre.put("salida", repoMensajeSalida);
+
+        try {
+            long segmento = ArchivoInstantanea.segmentoPublicado(directorio);
+            if (segmento > 0) {
+                cargarInstantanea(segmento);
+            }
+            this.bitacora = BitacoraEscritura.abrir(directorio, Math.max(1, segmento),
+                    entrada -> aplicar(porNombre, entrada));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo recuperar el estado desde " + directorio, e);
+        }
+
+        conectarBitacora(bitacora);
+        int migradas = repoReserva.asignarSecuenciasPendientes();
+        if (migradas > 0) {
+            System.out.println("Reservas sin secuencia de cola: se asignó y guardó la de " + migradas);
+        }
+        this.unidadTrabajo = new UnidadTrabajoBitacora(bitacora);
+
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "instantaneas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::tomarInstantaneaProgramada,
+                MINUTOS_ENTRE_INSTANTANEAS, MINUTOS_ENTRE_INSTANTANEAS, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Carga en paralelo el archivo de cada repositorio (son independientes).
+     */
+    private void cargarInstantanea(long segmento) {
+        Path carpeta = ArchivoInstantanea.directorioInstantanea(directorio, segmento);
+        porNombre.entrySet().parallelStream().forEach(par -> {
+            Path archivo = carpeta.resolve(par.getKey() + ".snap");
+            try {
+                ArchivoInstantanea.leer(archivo, (id, datos) ->
+                        par.getValue().aplicarEntrada(EntradaBitacora.guardar(par.getKey(), id, datos)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer la instantánea " + archivo, e);
+            }
+        });
+    }
+
+    private void conectarBitacora(BitacoraEscritura destino) {
+        porNombre.forEach((nombre, repositorio) -> repositorio.conectarBitacora(destino, nombre));
+    }
+
+    /**
+     * Toma una instantánea consistente y compacta la bitácora:
+     * 1. rota a un segmento nuevo (las escrituras siguientes van ahí),
+     * 2. vuelca cada repositorio a su archivo y los sincroniza a disco,
+     * 3. publica el manifiesto de forma atómica (también sincronizado),
+     * 4. borra segmentos e instantáneas que ya no hacen falta.
+     * Una caída en cualquier punto deja publicada la instantánea anterior,
+     * cuyos segmentos todavía no se borraron.
+     */
+    public synchronized void tomarInstantanea() throws IOException {
+        long segmento = bitacora.rotar();
+        Path carpeta = ArchivoInstantanea.directorioInstantanea(directorio, segmento);
+        Files.createDirectories(carpeta);
+        for (Map.Entry<String, RepositorioEnMemoria<?>> par : porNombre.entrySet()) {
+            ArchivoInstantanea.escribir(carpeta.resolve(par.getKey() + ".snap"),
+                    par.getValue().vistaAlmacenamiento());
+        }
+        ArchivoInstantanea.sincronizarDirectorio(carpeta);
+        ArchivoInstantanea.publicar(directorio, segmento);
+        bitacora.eliminarSegmentosAnteriores(segmento);
+        ArchivoInstantanea.eliminarAnteriores(directorio, segmento);
+    }
+
+    private void tomarInstantaneaProgramada() {
+        try {
+            tomarInstantanea();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo tomar la instantánea: " + e.getMessage());
+        }
+    }
+
+    /**
+     * La carga inicial no pasa por la bitácora entidad por entidad:
+     * se aplica directo en memoria y se guarda como una instantánea.
+     */
+    @Override
+    public void importarDatos(Runnable carga) {
+        conectarBitacora(null);
+        try {
+            carga.run();
+        } finally {
+            conectarBitacora(bitacora);
+        }
+        try {
+            tomarInstantanea();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la carga inicial", e);
+        }
+    }
+
+    private static void aplicar(Map<String, RepositorioEnMemoria<?>> porNombre, EntradaBitacora entrada) {
+        RepositorioEnMemoria<?> repositorio = porNombre.get(entrada.getRepositorio());
+        if (repositorio == null) {
+            throw new IllegalStateException("Repositorio desconocido en bitácora: " + entrada.getRepositorio());
+        }
+        repositorio.aplicarEntrada(entrada);
+    }
+
+    @Override
+    public IRepositorioMaterial crearRepositorioMaterial() {
+        return repoMaterial;
+    }
+
+    @Override
+    public IRepositorio<Usuario> crearRepositorioUsuario() {
+        return repoUsuario;
+    }
+
+    @Override
+    public IRepositorio<Prestamo> crearRepositorioPrestamo() {
+        return repoPrestamo;
+    }
+
+    @Override
+    public IRepositorioReserva crearRepositorioReserva() {
+        return repoReserva;
+    }
+
+    @Override
+    public IRepositorio<Multa> crearRepositorioMulta() {
+        return repoMulta;
+    }
+
+    @Override
+    public IRepositorioMensajeSalida crearRepositorioMensajeSalida() {
+        return repoMensajeSalida;
+    }
+
+    @Override
+    public IUnidadTrabajo crearUnidadTrabajo() {
+        return unidadTrabajo;
+    }
+
+    @Override
+    public void close() {
+        programador.shutdownNow();
+        bitacora.cerrar();
+    }
+}
@@ -1,24 +1,184 @@
 package com.biblioteca.repositorios;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import com.biblioteca.dominio.entidades.IVersionada;
+import com.biblioteca.dominio.objetosvalor.Pagina;
 import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.consulta.Campo;
+import com.biblioteca.repositorios.consulta.Criterio;
+import com.biblioteca.repositorios.consulta.ResultadoConsulta;
+import com.biblioteca.repositorios.persistencia.BitacoraEscritura;
+import com.biblioteca.repositorios.persistencia.EntradaBitacora;
+import com.biblioteca.repositorios.persistencia.SerializadorEntidades;
 
 public class RepositorioEnMemoria<T> implements IRepositorio<T> {
-    protected Map<String, T> almacenamiento;
+    /**
+     * getId() resuelto una sola vez por clase, para los repositorios
+     * que no reciben un extractor tipado.
+     */
+    private static final ClassValue<MethodHandle> ACCESOR_ID = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> tipo) {
+            try {
+                MethodHandle getter = MethodHandles.publicLookup()
+                        .unreflect(tipo.getMethod("getId"));
+                return getter.asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    };
+    
+    /**
+     * Tope de entradas por marco en las escrituras por lote: cada marco se
+     * arma entero en memoria antes de escribirse.
+     */
+    private static final int ENTRADAS_POR_MARCO = Integer.getInteger("biblioteca.bitacora.entradasPorMarco", 4096);
+    
+    // Ordenado por ID para poder paginar por cursor sin copiar ni ordenar
+    protected ConcurrentNavigableMap<String, T> almacenamiento;
     protected String nombreTipo;
+    private final Function<T, String> extractorId;
+    private final List<IndiceSecundario<?, T>> indices = new CopyOnWriteArrayList<>();
+    private final Map<Campo<T, ?>, IndiceSecundario<?, T>> indicesPorCampo = new ConcurrentHashMap<>();
+    private final Map<Campo<T, ?>, IndiceOrdenado<?, T>> indicesOrdenadosPorCampo = new ConcurrentHashMap<>();
+    private final List<IndiceBits<?, T>> indicesBits = new CopyOnWriteArrayList<>();
+    private final Map<Campo<T, ?>, IndiceBits<?, T>> indicesBitsPorCampo = new ConcurrentHashMap<>();
+    // Filas de los índices de bits: solo se numeran entidades si hay alguno
+    private final FilasDensas<T> filas = new FilasDensas<>();
+    private final Map<String, LongAdder> planesEjecutados = new ConcurrentHashMap<>();
+    private final List<IObservadorRepositorio<T>> observadores = new CopyOnWriteArrayList<>();
+    
+    // Serializan las escrituras de un mismo ID (por franjas), para que
+    // actualizarConVersion compare y guarde sin que otra escritura se cuele
+    private final Lock[] candados = crearCandados(64);
+    
+    // Persistencia opcional: si hay bitácora, cada escritura se registra antes de aplicarse
+    private volatile BitacoraEscritura bitacora;
+    private String nombreRegistro;
     
     public RepositorioEnMemoria() {
-        this.almacenamiento = new ConcurrentHashMap<>();
-        this.nombreTipo = "Entidad";
+        this("Entidad");
     }
     
     public RepositorioEnMemoria(String nombreTipo) {
-        this.almacenamiento = new ConcurrentHashMap<>();
+        this(nombreTipo, RepositorioEnMemoria::extraerIdPorAccesor);
+    }
+    
+    /**
+     * @param extractorId función tipada que obtiene el ID (ej. Material::getId);
+     *                    es el camino rápido que usan todos los repositorios concretos
+     */
+    public RepositorioEnMemoria(String nombreTipo, Function<T, String> extractorId) {
+        this.almacenamiento = new ConcurrentSkipListMap<>();
         this.nombreTipo = nombreTipo;
+        this.extractorId = extractorId;
+    }
+    
+    /**
+     * Registra un índice secundario que se mantiene en agregar/actualizar/eliminar.
+     * Las subclases lo llaman en su constructor, antes de almacenar entidades.
+     */
+    protected <K> IndiceSecundario<K, T> registrarIndice(String nombre, Function<T, K> extractorClave) {
+        IndiceSecundario<K, T> indice = new IndiceSecundario<>(nombre, extractorClave);
+        almacenamiento.forEach(indice::indexar);
+        indices.add(indice);
+        return indice;
+    }
+    
+    /**
+     * Registra un índice sobre un campo conocido; buscar(Criterio) lo usa
+     * para los términos de igualdad sobre ese campo.
+     */
+    protected <K> IndiceSecundario<K, T> registrarIndice(Campo<T, K> campo) {
+        IndiceSecundario<K, T> indice = registrarIndice(campo.getNombre(), campo::leer);
+        indicesPorCampo.put(campo, indice);
+        return indice;
+    }
+    
+    /**
+     * Registra un índice ordenado sobre un campo; buscar(Criterio) lo usa
+     * para los términos de rango. Con condición, indexa solo las entidades
+     * que la cumplen y se usa solo si el criterio la incluye.
+     */
+    protected <K extends Comparable<? super K>> IndiceOrdenado<K, T> registrarIndiceOrdenado(
+            Campo<T, K> campo, Criterio<T> condicion) {
+        IndiceOrdenado<K, T> indice = new IndiceOrdenado<>(campo, condicion);
+        almacenamiento.forEach(indice::indexar);
+        indices.add(indice);
+        indicesOrdenadosPorCampo.put(campo, indice);
+        return indice;
+    }
+    
+    /**
+     * Registra un índice de bits sobre un campo enumerado; buscar(Criterio)
+     * intersecta los de todos los términos de igualdad o pertenencia que
+     * los tengan.
+     */
+    protected <E extends Enum<E>> IndiceBits<E, T> registrarIndiceBits(Campo<T, E> campo, Class<E> tipo) {
+        IndiceBits<E, T> indice = new IndiceBits<>(campo, tipo);
+        almacenamiento.forEach((id, entidad) -> indice.indexar(filas.asignar(id, entidad), entidad));
+        indicesBits.add(indice);
+        indicesBitsPorCampo.put(campo, indice);
+        return indice;
+    }
+    
+    /**
+     * Cantidad de entidades de cada valor del campo entre los IDs dados, a
+     * partir de su índice de bits (que el campo debe tener).
+     */
+    @SuppressWarnings("unchecked")
+    protected <E extends Enum<E>> EnumMap<E, Long> contarPor(Campo<T, E> campo, MapaBits filasIds) {
+        return ((IndiceBits<E, T>) indicesBitsPorCampo.get(campo)).contar(filasIds);
+    }
+    
+    /**
+     * Filas de los IDs en los índices de bits, para contarPor.
+     */
+    protected MapaBits filasDe(Iterable<String> ids) {
+        return filas.mapa(ids);
+    }
+    
+    /**
+     * Resuelve los IDs de un índice a entidades, sin recorrer todo el almacenamiento.
+     */
+    protected List<T> resolver(Iterable<String> ids) {
+        List<T> resultado = new ArrayList<>();
+        for (String id : ids) {
+            T entidad = almacenamiento.get(id);
+            if (entidad != null) {
+                resultado.add(entidad);
+            }
+        }
+        return resultado;
     }
     
     @Override
@@ -29,11 +189,23 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
                 return Resultado.Fallido("La entidad no tiene un ID válido");
             }
             
-            if (almacenamiento.containsKey(id)) {
-                return Resultado.Fallido(nombreTipo + " con ID " + id + " ya existe");
+            Lock candado = candado(id);
+            candado.lock();
+            try {
+                if (almacenamiento.containsKey(id)) {
+                    return Resultado.Fallido(nombreTipo + " con ID " + id + " ya existe");
+                }
+                
+                prepararNueva(entidad);
+                escribir(EntradaBitacora.Operacion.GUARDAR, id, entidad, () -> {
+                    almacenamiento.put(id, entidad);
+                    indexar(id, entidad);
+                    notificarGuardado(id, entidad);
+                    return entidad;
+                });
+            } finally {
+                candado.unlock();
             }
-            
-            almacenamiento.put(id, entidad);
             return Resultado.Exitoso(nombreTipo + " agregada exitosamente", entidad);
             
         } catch (Exception e) {
@@ -49,11 +221,76 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
                 return Resultado.Fallido("La entidad no tiene un ID válido");
             }
             
-            if (!almacenamiento.containsKey(id)) {
-                return Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
+            Lock candado = candado(id);
+            candado.lock();
+            try {
+                T guardada = almacenamiento.get(id);
+                if (guardada == null) {
+                    return Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
+                }
+                Resultado conflicto = conflictoDeVersion(id, entidad, guardada);
+                if (conflicto != null) {
+                    return conflicto;
+                }
+                guardarNuevaVersion(id, entidad, guardada);
+            } finally {
+                candado.unlock();
+            }
+            return Resultado.Exitoso(nombreTipo + " actualizada exitosamente", entidad);
+            
+        } catch (Exception e) {
+            return Resultado.Fallido("Error al actualizar: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Una entidad versionada solo reemplaza a la guardada si se leyó en su
+     * misma versión: una copia vieja no pisa lo que otro guardó después.
+     *
+     * @return el Resultado de conflicto, o null si se puede guardar
+     */
+    private Resultado conflictoDeVersion(String id, T entidad, T guardada) {
+        if (!(entidad instanceof IVersionada)) {
+            return null;
+        }
+        long leida = ((IVersionada) entidad).getVersion();
+        long actual = ((IVersionada) guardada).getVersion();
+        if (leida == actual) {
+            return null;
+        }
+        return Resultado.Conflicto(nombreTipo + " con ID " + id
+                + " fue modificada por otra operación (versión " + actual
+                + ", se leyó la " + leida + ")");
+    }
+    
+    @Override
+    public Resultado actualizarConVersion(T entidad, long versionEsperada) {
+        try {
+            String id = extraerId(entidad);
+            if (id == null || id.isEmpty()) {
+                return Resultado.Fallido("La entidad no tiene un ID válido");
+            }
+            if (!(entidad instanceof IVersionada)) {
+                return Resultado.Fallido(nombreTipo + " no tiene control de versión");
             }
             
-            almacenamiento.put(id, entidad);
+            Lock candado = candado(id);
+            candado.lock();
+            try {
+                T guardada = almacenamiento.get(id);
+                if (guardada == null) {
+                    return Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
+                }
+                long actual = ((IVersionada) guardada).getVersion();
+                if (actual != versionEsperada) {
+                    return Resultado.Conflicto(nombreTipo + " con ID " + id
+                            + " fue modificada por otra operación (versión " + actual
+                            + ", se esperaba " + versionEsperada + ")");
+                }
+                guardarNuevaVersion(id, entidad, guardada);
+            } finally {
+                candado.unlock();
+            }
             return Resultado.Exitoso(nombreTipo + " actualizada exitosamente", entidad);
             
         } catch (Exception e) {
@@ -61,6 +298,51 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
         }
     }
     
+    /**
+     * Guarda la entidad con la versión siguiente a la de la guardada (pueden
+     * ser el mismo objeto). Se llama con el candado del ID tomado; si la
+     * escritura falla, la versión vuelve a la anterior.
+     */
+    private void guardarNuevaVersion(String id, T entidad, T guardada) {
+        IVersionada versionada = entidad instanceof IVersionada ? (IVersionada) entidad : null;
+        long anterior = versionada != null ? versionada.getVersion() : 0;
+        if (versionada != null) {
+            versionada.setVersion(((IVersionada) guardada).getVersion() + 1);
+        }
+        try {
+            escribir(EntradaBitacora.Operacion.GUARDAR, id, entidad, () -> {
+                almacenamiento.put(id, entidad);
+                indexar(id, entidad);
+                notificarGuardado(id, entidad);
+                return entidad;
+            });
+        } catch (RuntimeException e) {
+            if (versionada != null) {
+                versionada.setVersion(anterior);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Se llama con cada entidad nueva que pasó la validación, justo antes de
+     * escribirla; las subclases completan acá lo que deba quedar en la bitácora.
+     */
+    protected void prepararNueva(T entidad) {
+    }
+    
+    private static Lock[] crearCandados(int cantidad) {
+        Lock[] candados = new Lock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            candados[i] = new ReentrantLock();
+        }
+        return candados;
+    }
+    
+    private Lock candado(String id) {
+        return candados[Math.floorMod(id.hashCode(), candados.length)];
+    }
+    
     @Override
     public Resultado eliminar(String id) {
         try {
@@ -68,7 +350,24 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
                 return Resultado.Fallido("ID no válido");
             }
             
-            T entidad = almacenamiento.remove(id);
+            T entidad;
+            Lock candado = candado(id);
+            candado.lock();
+            try {
+                // Bajo el candado: de dos bajas simultáneas, solo la primera escribe su marco
+                if (!almacenamiento.containsKey(id)) {
+                    return Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
+                }
+                entidad = escribir(EntradaBitacora.Operacion.ELIMINAR, id, null, () -> {
+                    T anterior = almacenamiento.remove(id);
+                    if (anterior != null) {
+                        retirarDeVistas(id, anterior);
+                    }
+                    return anterior;
+                });
+            } finally {
+                candado.unlock();
+            }
             if (entidad == null) {
                 return Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
             }
@@ -80,6 +379,155 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
         }
     }
     
+    @Override
+    public List<Resultado> agregarLote(List<? extends T> entidades) {
+        return escribirLote(entidades, true);
+    }
+    
+    @Override
+    public List<Resultado> actualizarLote(List<? extends T> entidades) {
+        return escribirLote(entidades, false);
+    }
+    
+    /**
+     * Valida todo el lote primero y después aplica las válidas con una sola
+     * escritura en la bitácora, en vez de un marco y un fsync por entidad.
+     * Un lote toma todos los candados (siempre en el mismo orden): así un
+     * alta no se cruza con otra del mismo ID y las versiones de una
+     * actualización no se cruzan con actualizarConVersion.
+     */
+    private List<Resultado> escribirLote(List<? extends T> entidades, boolean nuevas) {
+        for (Lock candado : candados) {
+            candado.lock();
+        }
+        try {
+            return validarYEscribirLote(entidades, nuevas);
+        } finally {
+            for (int i = candados.length - 1; i >= 0; i--) {
+                candados[i].unlock();
+            }
+        }
+    }
+    
+    private List<Resultado> validarYEscribirLote(List<? extends T> entidades, boolean nuevas) {
+        Resultado[] resultados = new Resultado[entidades.size()];
+        List<String> ids = new ArrayList<>(entidades.size());
+        List<T> validas = new ArrayList<>(entidades.size());
+        List<Integer> posiciones = new ArrayList<>(entidades.size());
+        Set<String> enLote = new HashSet<>();
+        for (int i = 0; i < resultados.length; i++) {
+            T entidad = entidades.get(i);
+            String id = extraerId(entidad);
+            if (id == null || id.isEmpty()) {
+                resultados[i] = Resultado.Fallido("La entidad no tiene un ID válido");
+            } else if (!enLote.add(id)) {
+                resultados[i] = Resultado.Fallido(nombreTipo + " con ID " + id + " repetida en el lote");
+            } else if (nuevas && almacenamiento.containsKey(id)) {
+                resultados[i] = Resultado.Fallido(nombreTipo + " con ID " + id + " ya existe");
+            } else if (!nuevas && !almacenamiento.containsKey(id)) {
+                resultados[i] = Resultado.Fallido(nombreTipo + " con ID " + id + " no encontrada");
+            } else {
+                Resultado conflicto = nuevas ? null : conflictoDeVersion(id, entidad, almacenamiento.get(id));
+                if (conflicto != null) {
+                    resultados[i] = conflicto;
+                    continue;
+                }
+                ids.add(id);
+                validas.add(entidad);
+                posiciones.add(i);
+            }
+        }
+        
+        if (nuevas) {
+            validas.forEach(this::prepararNueva);
+        }
+        long[] versionesAnteriores = nuevas ? null : avanzarVersiones(ids, validas);
+        String mensaje = nombreTipo + (nuevas ? " agregada exitosamente" : " actualizada exitosamente");
+        boolean[] aplicadas = new boolean[validas.size()];
+        Resultado fallo = null;
+        try {
+            escribirGuardados(ids, validas, aplicadas);
+        } catch (Exception e) {
+            fallo = Resultado.Fallido((nuevas ? "Error al agregar: " : "Error al actualizar: ") + e.getMessage());
+        }
+        // Solo fallan las entidades de los marcos que no llegaron a disco
+        for (int j = 0; j < validas.size(); j++) {
+            if (aplicadas[j]) {
+                resultados[posiciones.get(j)] = Resultado.Exitoso(mensaje, validas.get(j));
+                continue;
+            }
+            if (versionesAnteriores != null && validas.get(j) instanceof IVersionada) {
+                ((IVersionada) validas.get(j)).setVersion(versionesAnteriores[j]);
+            }
+            resultados[posiciones.get(j)] = fallo;
+        }
+        return Arrays.asList(resultados);
+    }
+    
+    /**
+     * Pone a cada entidad versionada la versión siguiente a la guardada.
+     * @return las versiones que tenían, para deshacerlo si la escritura falla
+     */
+    private long[] avanzarVersiones(List<String> ids, List<T> entidades) {
+        long[] anteriores = new long[entidades.size()];
+        for (int j = 0; j < entidades.size(); j++) {
+            if (entidades.get(j) instanceof IVersionada) {
+                IVersionada versionada = (IVersionada) entidades.get(j);
+                T guardada = almacenamiento.get(ids.get(j));
+                anteriores[j] = versionada.getVersion();
+                versionada.setVersion(((IVersionada) guardada).getVersion() + 1);
+            }
+        }
+        return anteriores;
+    }
+    
+    /**
+     * Como escribir, para muchas entidades guardadas de una vez: se registran
+     * en marcos de ENTRADAS_POR_MARCO entradas, y cada marco se aplica en
+     * memoria recién cuando quedó en disco. Marca en aplicadas las entidades
+     * que se aplicaron; si algún marco falla, lanza el error al final.
+     */
+    private void escribirGuardados(List<String> ids, List<T> entidades, boolean[] aplicadas) {
+        BiConsumer<Integer, Integer> aplicar = (inicio, cantidad) -> {
+            for (int i = inicio; i < inicio + cantidad; i++) {
+                almacenamiento.put(ids.get(i), entidades.get(i));
+                indexar(ids.get(i), entidades.get(i));
+                notificarGuardado(ids.get(i), entidades.get(i));
+                aplicadas[i] = true;
+            }
+        };
+        BitacoraEscritura actual = bitacora;
+        if (actual == null || ids.isEmpty()) {
+            aplicar.accept(0, ids.size());
+            return;
+        }
+        String registro = nombreRegistro;
+        
+        List<Supplier<EntradaBitacora>> diferidas = UnidadTrabajoBitacora.diferidas();
+        if (diferidas != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ids.get(i);
+                T entidad = entidades.get(i);
+                diferidas.add(() -> EntradaBitacora.guardar(registro, id, SerializadorEntidades.serializar(entidad)));
+            }
+            aplicar.accept(0, ids.size());
+            return;
+        }
+        
+        // Las entradas se serializan a medida que se arman los marcos, no todas antes
+        Iterable<EntradaBitacora> entradas = () -> IntStream.range(0, ids.size())
+                .mapToObj(i -> EntradaBitacora.guardar(registro, ids.get(i),
+                        SerializadorEntidades.serializar(entidades.get(i))))
+                .iterator();
+        Lock bloqueo = actual.bloqueoEscritura();
+        bloqueo.lock();
+        try {
+            actual.registrarEnMarcos(entradas, ENTRADAS_POR_MARCO, aplicar);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+    
     @Override
     public T obtenerPorId(String id) {
         if (id == null || id.isEmpty()) {
@@ -88,11 +536,180 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
         return almacenamiento.get(id);
     }
     
+    /**
+     * Copia profunda por serialización, la misma que se escribe en la bitácora.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T obtenerCopia(String id) {
+        T guardada = obtenerPorId(id);
+        if (guardada == null) {
+            return null;
+        }
+        return (T) SerializadorEntidades.deserializar(SerializadorEntidades.serializar(guardada));
+    }
+    
+    /**
+     * Una sola pasada por los IDs ordenados y sin repetir: es el orden en
+     * que está el almacenamiento, así las búsquedas consecutivas caen cerca.
+     */
+    @Override
+    public Map<String, T> obtenerPorIds(Collection<String> ids) {
+        Set<String> ordenados = new TreeSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isEmpty()) {
+                ordenados.add(id);
+            }
+        }
+        Map<String, T> encontradas = new LinkedHashMap<>();
+        for (String id : ordenados) {
+            T entidad = almacenamiento.get(id);
+            if (entidad != null) {
+                encontradas.put(id, entidad);
+            }
+        }
+        return encontradas;
+    }
+    
     @Override
     public List<T> obtenerTodos() {
         return new ArrayList<>(almacenamiento.values());
     }
     
+    @Override
+    public Stream<T> stream() {
+        return almacenamiento.values().stream();
+    }
+    
+    @Override
+    public void forEach(Consumer<? super T> accion) {
+        almacenamiento.values().forEach(accion);
+    }
+    
+    @Override
+    public Pagina<T> obtenerPagina(String cursor, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite de página debe ser positivo");
+        }
+        Map<String, T> desde = cursor == null ? almacenamiento : almacenamiento.tailMap(cursor, false);
+        List<T> elementos = new ArrayList<>(Math.min(limite, 64));
+        String ultimoId = null;
+        boolean hayMas = false;
+        for (Map.Entry<String, T> entrada : desde.entrySet()) {
+            if (elementos.size() == limite) {
+                hayMas = true;
+                break;
+            }
+            elementos.add(entrada.getValue());
+            ultimoId = entrada.getKey();
+        }
+        return new Pagina<>(elementos, hayMas ? ultimoId : null);
+    }
+    
+    /**
+     * Planificador simple. Los términos de igualdad o pertenencia sobre
+     * campos con índice de bits se resuelven juntos: la unión de los valores
+     * de cada término y la intersección entre términos ("DVD disponibles",
+     * "estudiantes bloqueados"). Después, entre eso y los demás términos con
+     * índice (igualdad en uno hash, rango en uno ordenado) elige el de menos
+     * candidatos; el resto de los términos (y los usados, por si la entidad
+     * cambió en sitio) se evalúan como filtro sobre los candidatos.
+     */
+    @Override
+    public ResultadoConsulta<T> buscar(Criterio<T> criterio) {
+        MapaBits bits = null;
+        List<Criterio.Termino<T>> terminosBits = new ArrayList<>();
+        for (Criterio.Termino<T> termino : criterio.getTerminos()) {
+            if (termino.esRango()) continue;
+            IndiceBits<?, T> indice = indicesBitsPorCampo.get(termino.getCampo());
+            if (indice == null) continue;
+            MapaBits filasTermino = indice.buscar(termino.getValores());
+            bits = bits == null ? filasTermino : bits.y(filasTermino);
+            terminosBits.add(termino);
+        }
+        int cantidadBits = bits != null ? bits.cardinalidad() : Integer.MAX_VALUE;
+        
+        Collection<String> candidatos = null;
+        List<Criterio.Termino<T>> usados = terminosBits;
+        String acceso = bits != null ? "BITS(" : null;
+        for (Criterio.Termino<T> termino : criterio.getTerminos()) {
+            if (!termino.esIgualdad()) continue;
+            IndiceSecundario<?, T> indice = indicesPorCampo.get(termino.getCampo());
+            if (indice == null) continue;
+            Set<String> ids = buscarEnIndice(indice, termino.getValor());
+            if (ids.size() < (candidatos != null ? candidatos.size() : cantidadBits)) {
+                candidatos = ids;
+                usados = List.of(termino);
+                acceso = "INDICE(";
+            }
+        }
+        // Los rangos se recorren después: se cortan si superan al mejor candidato
+        for (Criterio.Termino<T> termino : criterio.getTerminos()) {
+            if (!termino.esRango()) continue;
+            IndiceOrdenado<?, T> indice = indicesOrdenadosPorCampo.get(termino.getCampo());
+            if (indice == null || !indice.aplicaA(criterio)) continue;
+            int mejor = candidatos != null ? candidatos.size() : cantidadBits;
+            List<String> ids = buscarRango(indice, termino, mejor == Integer.MAX_VALUE ? mejor : mejor - 1);
+            if (ids != null) {
+                candidatos = ids;
+                usados = List.of(termino);
+                acceso = "RANGO(";
+            }
+        }
+        
+        List<T> elementos;
+        int examinados;
+        StringBuilder plan = new StringBuilder();
+        if (candidatos != null || bits != null) {
+            List<T> resueltos = candidatos != null ? resolver(candidatos) : filas.entidades(bits);
+            examinados = resueltos.size();
+            elementos = resueltos.stream().filter(criterio::cumple).collect(Collectors.toList());
+            plan.append(acceso)
+                .append(usados.stream().map(t -> t.getCampo().getNombre()).collect(Collectors.joining(", ")))
+                .append(')');
+        } else {
+            usados = List.of();
+            examinados = almacenamiento.size();
+            elementos = stream().filter(criterio::cumple).collect(Collectors.toList());
+            plan.append(ResultadoConsulta.PLAN_RECORRIDO);
+        }
+        
+        final List<Criterio.Termino<T>> indexados = usados;
+        String filtros = criterio.getTerminos().stream()
+            .filter(t -> !indexados.contains(t))
+            .map(t -> t.getCampo().getNombre())
+            .collect(Collectors.joining(", "));
+        if (!filtros.isEmpty()) {
+            plan.append(" + FILTRO(").append(filtros).append(')');
+        }
+        
+        String descripcion = plan.toString();
+        planesEjecutados.computeIfAbsent(descripcion, k -> new LongAdder()).increment();
+        return new ResultadoConsulta<>(elementos, descripcion, examinados);
+    }
+    
+    /**
+     * Cuántas veces se ejecutó cada plan de consulta en este repositorio.
+     * Sirve para detectar las consultas que todavía recorren todo.
+     */
+    public Map<String, Long> getPlanesEjecutados() {
+        Map<String, Long> copia = new TreeMap<>();
+        planesEjecutados.forEach((plan, veces) -> copia.put(plan, veces.sum()));
+        return copia;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>> List<String> buscarRango(
+            IndiceOrdenado<K, ?> indice, Criterio.Termino<?> termino, int limite) {
+        return indice.rango((K) termino.getDesde(), termino.isDesdeIncluido(),
+                (K) termino.getHasta(), termino.isHastaIncluido(), limite);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <K> Set<String> buscarEnIndice(IndiceSecundario<K, ?> indice, Object valor) {
+        return indice.buscar((K) valor);
+    }
+    
     @Override
     public boolean existe(String id) {
         return id != null && almacenamiento.containsKey(id);
@@ -104,21 +721,148 @@ public class RepositorioEnMemoria<T> implements IRepositorio<T> {
     }
     
     /**
-     * Método auxiliar para extraer el ID de la entidad usando reflexión.
-     * Las subclases pueden sobrescribir este método para mejor performance.
+     * Extrae el ID con el extractor recibido en el constructor.
      */
-    @SuppressWarnings("unchecked")
     protected String extraerId(T entidad) {
+        return entidad != null ? extractorId.apply(entidad) : null;
+    }
+    
+    private static String extraerIdPorAccesor(Object entidad) {
+        MethodHandle accesor = ACCESOR_ID.get(entidad.getClass());
+        if (accesor == null) {
+            return null;
+        }
         try {
-            var method = entidad.getClass().getMethod("getId");
-            Object idObj = method.invoke(entidad);
+            Object idObj = accesor.invokeExact(entidad);
             return idObj != null ? idObj.toString() : null;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             return null;
         }
     }
     
+    /**
+     * Conecta el repositorio a una bitácora ya reproducida.
+     * A partir de aquí agregar/actualizar/eliminar quedan registrados en disco.
+     */
+    void conectarBitacora(BitacoraEscritura bitacora, String nombreRegistro) {
+        this.bitacora = bitacora;
+        this.nombreRegistro = nombreRegistro;
+    }
+    
+    /**
+     * Aplica una entrada reproducida desde la bitácora, sin volver a registrarla.
+     */
+    @SuppressWarnings("unchecked")
+    void aplicarEntrada(EntradaBitacora entrada) {
+        String id = entrada.getId();
+        if (entrada.getOperacion() == EntradaBitacora.Operacion.ELIMINAR) {
+            T anterior = almacenamiento.remove(id);
+            if (anterior != null) {
+                retirarDeVistas(id, anterior);
+            }
+            return;
+        }
+        T entidad = (T) SerializadorEntidades.deserializar(entrada.getDatos());
+        almacenamiento.put(id, entidad);
+        indexar(id, entidad);
+        notificarGuardado(id, entidad);
+    }
+    
+    /**
+     * Vista viva del almacenamiento, para volcarla a una instantánea.
+     */
+    Map<String, T> vistaAlmacenamiento() {
+        return almacenamiento;
+    }
+    
+    /**
+     * Registra la escritura en la bitácora (si la hay) y luego la aplica en memoria.
+     * Ambas cosas ocurren bajo el bloqueo compartido de la bitácora para que
+     * una rotación nunca separe el registro de su aplicación.
+     */
+    private <R> R escribir(EntradaBitacora.Operacion operacion, String id, T entidad, Supplier<R> aplicar) {
+        BitacoraEscritura actual = bitacora;
+        if (actual == null) {
+            return aplicar.get();
+        }
+        String registro = nombreRegistro;
+        Supplier<EntradaBitacora> entrada = () -> operacion == EntradaBitacora.Operacion.GUARDAR
+                ? EntradaBitacora.guardar(registro, id, SerializadorEntidades.serializar(entidad))
+                : EntradaBitacora.eliminar(registro, id);
+        
+        List<Supplier<EntradaBitacora>> diferidas = UnidadTrabajoBitacora.diferidas();
+        if (diferidas != null) {
+            // Dentro de una unidad de trabajo: se registra todo junto al confirmar
+            diferidas.add(entrada);
+            return aplicar.get();
+        }
+        
+        Lock bloqueo = actual.bloqueoEscritura();
+        bloqueo.lock();
+        try {
+            actual.registrar(entrada.get());
+            return aplicar.get();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+    
+    @Override
+    public void agregarObservador(IObservadorRepositorio<T> observador) {
+        almacenamiento.forEach(observador::alGuardar);
+        observadores.add(observador);
+    }
+    
+    private void indexar(String id, T entidad) {
+        for (IndiceSecundario<?, T> indice : indices) {
+            indice.indexar(id, entidad);
+        }
+        if (!indicesBits.isEmpty()) {
+            int fila = filas.asignar(id, entidad);
+            for (IndiceBits<?, T> indice : indicesBits) {
+                indice.indexar(fila, entidad);
+            }
+        }
+    }
+    
+    private void retirarDeVistas(String id, T anterior) {
+        for (IndiceSecundario<?, T> indice : indices) {
+            indice.desindexar(id);
+        }
+        if (!indicesBits.isEmpty()) {
+            // Primero se vacía la fila en los índices y recién después se libera para reutilizarla
+            int fila = filas.fila(id);
+            if (fila >= 0) {
+                for (IndiceBits<?, T> indice : indicesBits) {
+                    indice.desindexar(fila);
+                }
+                filas.liberar(id);
+            }
+        }
+        for (IObservadorRepositorio<T> observador : observadores) {
+            observador.alEliminar(id, anterior);
+        }
+    }
+    
+    private void notificarGuardado(String id, T entidad) {
+        for (IObservadorRepositorio<T> observador : observadores) {
+            observador.alGuardar(id, entidad);
+        }
+    }
+    
     public void limpiar() {
+        almacenamiento.forEach((id, entidad) -> {
+            for (IObservadorRepositorio<T> observador : observadores) {
+                observador.alEliminar(id, entidad);
+            }
+        });
         almacenamiento.clear();
+        for (IndiceSecundario<?, T> indice : indices) {
+            indice.limpiar();
+        }
+        for (IndiceBits<?, T> indice : indicesBits) {
+            indice.limpiar();
+        }
+        filas.limpiar();
     }
 }
\ No newline at end of file
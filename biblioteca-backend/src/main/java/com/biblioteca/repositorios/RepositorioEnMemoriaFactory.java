@@ -1,9 +1,7 @@
 package com.biblioteca.repositorios;
 
-import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Multa;
 import com.biblioteca.dominio.entidades.Prestamo;
-import com.biblioteca.dominio.entidades.Reserva;
 import com.biblioteca.dominio.entidades.Usuario;
 
 /**
@@ -12,7 +10,7 @@ import com.biblioteca.dominio.entidades.Usuario;
 public class RepositorioEnMemoriaFactory implements IRepositorioFactory {
     
     @Override
-    public IRepositorio<Material> crearRepositorioMaterial() {
+    public IRepositorioMaterial crearRepositorioMaterial() {
         return new RepositorioMaterialEnMemoria();
     }
     
@@ -27,7 +25,7 @@ public class RepositorioEnMemoriaFactory implements IRepositorioFactory {
     }
     
     @Override
-    public IRepositorio<Reserva> crearRepositorioReserva() {
+    public IRepositorioReserva crearRepositorioReserva() {
         return new RepositorioReservaEnMemoria();
     }
     
@@ -35,4 +33,9 @@ public class RepositorioEnMemoriaFactory implements IRepositorioFactory {
     public IRepositorio<Multa> crearRepositorioMulta() {
         return new RepositorioMultaEnMemoria();
     }
+    
+    @Override
+    public IRepositorioMensajeSalida crearRepositorioMensajeSalida() {
+        return new RepositorioMensajeSalidaEnMemoria();
+    }
 }
@@ -1,57 +1,128 @@
 package com.biblioteca.repositorios;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.biblioteca.dominio.entidades.DVD;
+import com.biblioteca.dominio.entidades.Libro;
 import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Revista;
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
+import com.biblioteca.dominio.objetosvalor.BusquedaCatalogo;
+import com.biblioteca.repositorios.busqueda.IndiceInvertido;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 
-public class RepositorioMaterialEnMemoria extends RepositorioEnMemoria<Material> {
+public class RepositorioMaterialEnMemoria extends RepositorioEnMemoria<Material> implements IRepositorioMaterial {
+    
+    private final IndiceInvertido<Material> indiceTexto;
     
     public RepositorioMaterialEnMemoria() {
-        super("Material");
+        super("Material", Material::getId);
+        registrarIndiceBits(Campos.MATERIAL_TIPO, TipoMaterial.class);
+        registrarIndiceBits(Campos.MATERIAL_ESTADO, EstadoMaterial.class);
+        this.indiceTexto = new IndiceInvertido<>(List.of(
+                Material::getTitulo,
+                Material::getAutor,
+                m -> m instanceof DVD ? ((DVD) m).getDirector() : null,
+                RepositorioMaterialEnMemoria::codigos));
+        agregarObservador(indiceTexto);
+    }
+    
+    @Override
+    public List<Material> buscarTexto(String consulta, int limite) {
+        return resolver(indiceTexto.buscar(consulta, limite));
+    }
+    
+    @Override
+    public List<Material> buscarTextoAproximado(String consulta, int limite) {
+        return resolver(indiceTexto.buscarAproximado(consulta, limite, IndiceInvertido.TODOS_LOS_CAMPOS));
+    }
+    
+    @Override
+    public BusquedaCatalogo buscarTextoConFacetas(String consulta, int limite) {
+        List<String> coincidencias = new ArrayList<>();
+        List<String> mejores = indiceTexto.buscar(consulta, limite, IndiceInvertido.TODOS_LOS_CAMPOS, coincidencias::add);
+        // Las cantidades salen de cruzar las coincidencias con los índices de bits
+        MapaBits filas = filasDe(coincidencias);
+        return new BusquedaCatalogo(resolver(mejores), filas.cardinalidad(),
+                contarPor(Campos.MATERIAL_TIPO, filas), contarPor(Campos.MATERIAL_ESTADO, filas));
     }
     
     @Override
-    protected String extraerId(Material entidad) {
-        return entidad != null && entidad.getId() != null ? entidad.getId() : null;
+    public List<Material> buscarSubcadena(String texto, int limite) {
+        if (texto == null || texto.isBlank()) return List.of();
+        String busqueda = texto.trim().toLowerCase();
+        return stream()
+            .filter(m -> contiene(m.getId(), busqueda)
+                      || contiene(m.getTitulo(), busqueda)
+                      || contiene(m.getAutor(), busqueda))
+            .limit(limite)
+            .collect(Collectors.toList());
     }
     
+    /**
+     * Materiales cuyo título contiene el texto, aunque sea en medio de una
+     * palabra (sin distinguir mayúsculas). Recorre el catálogo: para buscar
+     * por palabras con relevancia está buscarTexto.
+     */
     public List<Material> buscarPorTitulo(String titulo) {
         if (titulo == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> m.getTitulo() != null && 
-                         m.getTitulo().toLowerCase().contains(titulo.toLowerCase()))
+        String busqueda = titulo.toLowerCase();
+        return stream()
+            .filter(m -> contiene(m.getTitulo(), busqueda))
             .collect(Collectors.toList());
     }
     
     public List<Material> buscarPorAutor(String autor) {
         if (autor == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> m.getAutor() != null && 
-                         m.getAutor().toLowerCase().contains(autor.toLowerCase()))
+        String busqueda = autor.toLowerCase();
+        return stream()
+            .filter(m -> contiene(m.getAutor(), busqueda))
             .collect(Collectors.toList());
     }
     
     public List<Material> buscarPorTipo(TipoMaterial tipo) {
         if (tipo == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> m.getTipo() == tipo)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.MATERIAL_TIPO, tipo)).getElementos();
     }
     
     public List<Material> buscarPorEstado(EstadoMaterial estado) {
         if (estado == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> m.getEstado() == estado)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.MATERIAL_ESTADO, estado)).getElementos();
     }
     
     public List<Material> buscarDisponibles() {
         return buscarPorEstado(EstadoMaterial.DISPONIBLE);
     }
     
+    private List<Material> resolver(List<String> ids) {
+        return ids.stream()
+            .map(this::obtenerPorId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+    
+    private static boolean contiene(String valor, String busqueda) {
+        return valor != null && valor.toLowerCase().contains(busqueda);
+    }
+    
+    private static String codigos(Material material) {
+        Stream<String> codigos = Stream.of(material.getId());
+        if (material instanceof Libro) {
+            codigos = Stream.concat(codigos, Stream.of(((Libro) material).getIsbn()));
+        } else if (material instanceof Revista) {
+            codigos = Stream.concat(codigos, Stream.of(((Revista) material).getIssn()));
+        } else if (material instanceof DVD) {
+            codigos = Stream.concat(codigos, Stream.of(((DVD) material).getCodigo()));
+        }
+        return codigos.filter(Objects::nonNull).collect(Collectors.joining(" "));
+    }
+    
     public boolean estaDisponible(String id) {
         Material material = obtenerPorId(id);
         return material != null && material.getEstado() == EstadoMaterial.DISPONIBLE;
@@ -0,0 +1,64 @@
+package com.biblioteca.repositorios;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.biblioteca.dominio.entidades.MensajeSalida;
+import com.biblioteca.dominio.objetosvalor.Resultado;
+
+public class RepositorioMensajeSalidaEnMemoria extends RepositorioEnMemoria<MensajeSalida>
+        implements IRepositorioMensajeSalida {
+    
+    // Agregados en una unidad de trabajo que todavía no escribió su marco
+    private final Set<String> sinConfirmar = ConcurrentHashMap.newKeySet();
+    
+    public RepositorioMensajeSalidaEnMemoria() {
+        super("MensajeSalida", MensajeSalida::getId);
+    }
+    
+    @Override
+    public Resultado agregar(MensajeSalida mensaje) {
+        if (mensaje == null || UnidadTrabajoBitacora.diferidas() == null) {
+            return super.agregar(mensaje);
+        }
+        String id = mensaje.getId();
+        sinConfirmar.add(id);
+        Resultado resultado = super.agregar(mensaje);
+        liberarAlConfirmar(id, resultado);
+        return resultado;
+    }
+    
+    @Override
+    public List<Resultado> agregarLote(List<? extends MensajeSalida> mensajes) {
+        if (UnidadTrabajoBitacora.diferidas() == null) {
+            return super.agregarLote(mensajes);
+        }
+        for (MensajeSalida mensaje : mensajes) {
+            if (mensaje != null) {
+                sinConfirmar.add(mensaje.getId());
+            }
+        }
+        List<Resultado> resultados = super.agregarLote(mensajes);
+        for (int i = 0; i < mensajes.size(); i++) {
+            if (mensajes.get(i) != null) {
+                liberarAlConfirmar(mensajes.get(i).getId(), resultados.get(i));
+            }
+        }
+        return resultados;
+    }
+    
+    @Override
+    public Stream<MensajeSalida> streamConfirmados() {
+        return stream().filter(m -> !sinConfirmar.contains(m.getId()));
+    }
+    
+    private void liberarAlConfirmar(String id, Resultado resultado) {
+        if (resultado.getExito()) {
+            UnidadTrabajoBitacora.alConfirmar(() -> sinConfirmar.remove(id));
+        } else {
+            sinConfirmar.remove(id);
+        }
+    }
+}
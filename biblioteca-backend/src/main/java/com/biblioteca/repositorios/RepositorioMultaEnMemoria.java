@@ -5,36 +5,33 @@ import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Multa;
 import com.biblioteca.dominio.enumeraciones.EstadoMulta;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 
 public class RepositorioMultaEnMemoria extends RepositorioEnMemoria<Multa> {
     
-    public RepositorioMultaEnMemoria() {
-        super("Multa");
-    }
+    private final IndiceSecundario<String, Multa> porUsuario;
+    private final IndiceSecundario<String, Multa> porPrestamo;
     
-    @Override
-    protected String extraerId(Multa entidad) {
-        return entidad != null ? entidad.getId() : null;
+    public RepositorioMultaEnMemoria() {
+        super("Multa", Multa::getId);
+        this.porUsuario = registrarIndice(Campos.MULTA_USUARIO);
+        this.porPrestamo = registrarIndice(Campos.MULTA_PRESTAMO);
+        registrarIndiceBits(Campos.MULTA_ESTADO, EstadoMulta.class);
     }
     
     public List<Multa> buscarPorUsuario(String idUsuario) {
         if (idUsuario == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> idUsuario.equals(m.getIdUsuario()))
-            .collect(Collectors.toList());
+        return resolver(porUsuario.buscar(idUsuario));
     }
     
     public List<Multa> buscarPorPrestamo(String idPrestamo) {
         if (idPrestamo == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(m -> idPrestamo.equals(m.getIdPrestamo()))
-            .collect(Collectors.toList());
+        return resolver(porPrestamo.buscar(idPrestamo));
     }
     
     public List<Multa> buscarPendientes() {
-        return obtenerTodos().stream()
-            .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE)).getElementos();
     }
     
     public List<Multa> buscarPendientesPorUsuario(String idUsuario) {
@@ -55,8 +52,6 @@ public class RepositorioMultaEnMemoria extends RepositorioEnMemoria<Multa> {
     }
     
     public List<Multa> buscarPagadas() {
-        return obtenerTodos().stream()
-            .filter(m -> m.getEstado() == EstadoMulta.PAGADA)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.MULTA_ESTADO, EstadoMulta.PAGADA)).getElementos();
     }
 }
\ No newline at end of file
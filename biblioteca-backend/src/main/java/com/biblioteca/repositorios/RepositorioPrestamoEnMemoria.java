@@ -6,62 +6,73 @@ import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Prestamo;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 
 public class RepositorioPrestamoEnMemoria extends RepositorioEnMemoria<Prestamo> {
     
-    public RepositorioPrestamoEnMemoria() {
-        super("Préstamo");
-    }
+    // Índices secundarios: las consultas cuestan lo que mide el resultado, no el historial
+    private final IndiceSecundario<String, Prestamo> porUsuario;
+    private final IndiceSecundario<String, Prestamo> porMaterial;
     
-    @Override
-    protected String extraerId(Prestamo entidad) {
-        return entidad != null ? entidad.getId() : null;
+    public RepositorioPrestamoEnMemoria() {
+        super("Préstamo", Prestamo::getId);
+        this.porUsuario = registrarIndice(Campos.PRESTAMO_USUARIO);
+        this.porMaterial = registrarIndice(Campos.PRESTAMO_MATERIAL);
+        registrarIndiceBits(Campos.PRESTAMO_ESTADO, EstadoTransaccion.class);
+        // Fechas ordenadas: vencidos y devoluciones por período se resuelven por rango
+        registrarIndiceOrdenado(Campos.PRESTAMO_FECHA_ESPERADA,
+                Criterio.donde(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA));
+        registrarIndiceOrdenado(Campos.PRESTAMO_FECHA_REAL, Criterio.todos());
     }
     
     public List<Prestamo> buscarPorUsuario(String idUsuario) {
         if (idUsuario == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(p -> idUsuario.equals(p.getIdUsuario()))
-            .collect(Collectors.toList());
+        return resolver(porUsuario.buscar(idUsuario));
     }
     
     public List<Prestamo> buscarPorMaterial(String idMaterial) {
         if (idMaterial == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(p -> idMaterial.equals(p.getIdMaterial()))
-            .collect(Collectors.toList());
+        return resolver(porMaterial.buscar(idMaterial));
     }
     
     public List<Prestamo> buscarActivos() {
-        return obtenerTodos().stream()
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        // buscar() vuelve a comprobar el estado: la entidad pudo cambiar en sitio sin actualizar()
+        return buscar(Criterio.donde(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA))
+            .getElementos().stream()
             .filter(p -> p.getFechaDevolucionReal() == null)
             .collect(Collectors.toList());
     }
     
     public List<Prestamo> buscarActivosPorUsuario(String idUsuario) {
         if (idUsuario == null) return List.of();
-        return buscarPorUsuario(idUsuario).stream()
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        // El planificador parte del lado más chico: los préstamos del usuario o los activos
+        return buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA))
+            .getElementos().stream()
             .filter(p -> p.getFechaDevolucionReal() == null)
             .collect(Collectors.toList());
     }
     
     public List<Prestamo> buscarVencidos() {
-        LocalDateTime ahora = LocalDateTime.now();
-        return obtenerTodos().stream()
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        return buscar(Criterio.donde(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)
+                .menorQue(Campos.PRESTAMO_FECHA_ESPERADA, LocalDateTime.now()))
+            .getElementos().stream()
             .filter(p -> p.getFechaDevolucionReal() == null)
-            .filter(p -> p.getFechaDevolucionEsperada().isBefore(ahora))
             .collect(Collectors.toList());
     }
     
+    /**
+     * Préstamos devueltos dentro del período [inicio, fin].
+     */
+    public List<Prestamo> buscarDevueltosEntre(LocalDateTime inicio, LocalDateTime fin) {
+        return buscar(Criterio.<Prestamo>todos().entre(Campos.PRESTAMO_FECHA_REAL, inicio, fin)).getElementos();
+    }
+    
     public List<Prestamo> buscarVencidosPorUsuario(String idUsuario) {
         if (idUsuario == null) return List.of();
         LocalDateTime ahora = LocalDateTime.now();
-        return buscarPorUsuario(idUsuario).stream()
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(p -> p.getFechaDevolucionReal() == null)
+        return buscarActivosPorUsuario(idUsuario).stream()
             .filter(p -> p.getFechaDevolucionEsperada().isBefore(ahora))
             .collect(Collectors.toList());
     }
@@ -1,75 +1,122 @@
 package com.biblioteca.repositorios;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Reserva;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 
-public class RepositorioReservaEnMemoria extends RepositorioEnMemoria<Reserva> {
+public class RepositorioReservaEnMemoria extends RepositorioEnMemoria<Reserva> implements IRepositorioReserva {
+    
+    private final IndiceSecundario<String, Reserva> porUsuario;
+    private final IndiceSecundario<String, Reserva> porMaterial;
+    private final ColasReservas colas;
     
     public RepositorioReservaEnMemoria() {
-        super("Reserva");
+        super("Reserva", Reserva::getId);
+        this.porUsuario = registrarIndice(Campos.RESERVA_USUARIO);
+        this.porMaterial = registrarIndice(Campos.RESERVA_MATERIAL);
+        registrarIndiceBits(Campos.RESERVA_ESTADO, EstadoTransaccion.class);
+        registrarIndiceOrdenado(Campos.RESERVA_EXPIRACION,
+                Criterio.donde(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA));
+        this.colas = new ColasReservas();
+        agregarObservador(colas);
     }
     
+    /**
+     * Asigna la secuencia de cola antes de escribir, así queda en la bitácora
+     * y el orden de llegada se conserva al reiniciar. Solo la reciben las
+     * reservas que pasaron la validación.
+     */
     @Override
-    protected String extraerId(Reserva entidad) {
-        return entidad != null ? entidad.getId() : null;
+    protected void prepararNueva(Reserva reserva) {
+        if (reserva.getSecuenciaCola() == 0) {
+            reserva.setSecuenciaCola(colas.siguienteSecuencia(reserva.getIdMaterial()));
+        }
+    }
+    
+    /**
+     * Da secuencia de cola nueva a las reservas activas recuperadas sin una
+     * propia (sin secuencia, o con una que ya tenía otra reserva del mismo
+     * material), en orden de fecha de reserva, y la persiste. Se llama una
+     * vez después de recuperar el estado.
+     *
+     * @return cantidad de reservas a las que se les asignó secuencia
+     */
+    public int asignarSecuenciasPendientes() {
+        List<Reserva> pendientes = new ArrayList<>(obtenerPorIds(colas.sinSecuencia()).values());
+        pendientes.sort(Comparator.comparing(Reserva::getFechaReserva).thenComparing(Reserva::getId));
+        for (Reserva reserva : pendientes) {
+            reserva.setSecuenciaCola(colas.siguienteSecuencia(reserva.getIdMaterial()));
+        }
+        return (int) actualizarLote(pendientes).stream().filter(Resultado::getExito).count();
     }
     
     // Métodos específicos para Reserva
     public List<Reserva> buscarPorUsuario(String idUsuario) {
-        return obtenerTodos().stream()
-            .filter(r -> r.getIdUsuario().equals(idUsuario))
-            .collect(Collectors.toList());
+        if (idUsuario == null) return List.of();
+        return resolver(porUsuario.buscar(idUsuario));
     }
     
     public List<Reserva> buscarPorMaterial(String idMaterial) {
-        return obtenerTodos().stream()
-            .filter(r -> r.getIdMaterial().equals(idMaterial))
-            .collect(Collectors.toList());
+        if (idMaterial == null) return List.of();
+        return resolver(porMaterial.buscar(idMaterial));
     }
     
     public List<Reserva> buscarActivas() {
         LocalDateTime ahora = LocalDateTime.now();
-        return obtenerTodos().stream()
+        return stream()
             .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
             .filter(r -> r.getFechaExpiracion().isAfter(ahora))
             .collect(Collectors.toList());
     }
     
+    @Override
     public List<Reserva> buscarActivasPorMaterial(String idMaterial) {
+        if (idMaterial == null) return List.of();
         LocalDateTime ahora = LocalDateTime.now();
-        return buscarPorMaterial(idMaterial).stream()
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
+        return resolver(colas.enOrden(idMaterial)).stream()
             .filter(r -> r.getFechaExpiracion().isAfter(ahora))
-            .sorted((r1, r2) -> Integer.compare(r1.getPosicionCola(), r2.getPosicionCola()))
             .collect(Collectors.toList());
     }
     
     public List<Reserva> buscarExpiradas() {
-        LocalDateTime ahora = LocalDateTime.now();
-        return obtenerTodos().stream()
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(r -> r.getFechaExpiracion().isBefore(ahora))
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)
+                .menorQue(Campos.RESERVA_EXPIRACION, LocalDateTime.now()))
+            .getElementos();
     }
     
     // CORREGIDO: Cambiado de Optional<Reserva> a Reserva (puede retornar null)
+    @Override
     public Reserva buscarPrimeraEnCola(String idMaterial) {
-        List<Reserva> activas = buscarActivasPorMaterial(idMaterial);
-        if (activas.isEmpty()) {
-            return null;
-        }
-        return activas.get(0); // La primera ya está ordenada por posición
+        if (idMaterial == null) return null;
+        LocalDateTime ahora = LocalDateTime.now();
+        String id = colas.primero(idMaterial, candidato -> {
+            Reserva reserva = obtenerPorId(candidato);
+            return reserva != null && reserva.getFechaExpiracion().isAfter(ahora);
+        });
+        return id != null ? obtenerPorId(id) : null;
+    }
+    
+    /**
+     * Las reservas expiradas que todavía no se cancelaron siguen contando
+     * hasta que limpiarReservasExpiradas las saca de la cola.
+     */
+    @Override
+    public int posicionEnCola(Reserva reserva) {
+        return reserva != null ? colas.posicion(reserva) : 0;
     }
     
     public boolean existeReservaActiva(String idUsuario, String idMaterial) {
         LocalDateTime ahora = LocalDateTime.now();
-        return obtenerTodos().stream()
-            .anyMatch(r -> r.getIdUsuario().equals(idUsuario) &&
-                          r.getIdMaterial().equals(idMaterial) &&
+        return buscarPorUsuario(idUsuario).stream()
+            .anyMatch(r -> r.getIdMaterial().equals(idMaterial) &&
                           r.getEstado() == EstadoTransaccion.ACTIVA &&
                           r.getFechaExpiracion().isAfter(ahora));
     }
@@ -84,11 +131,18 @@ public class RepositorioReservaEnMemoria extends RepositorioEnMemoria<Reserva> {
             .collect(Collectors.toList());
     }
     
+    /**
+     * Cancela sobre copias: una reserva que otra operación cambió en el
+     * medio da conflicto en actualizar y queda como la dejó esa operación.
+     */
     public void cancelarReservasExpiradas() {
         List<Reserva> expiradas = buscarExpiradas();
-        for (Reserva reserva : expiradas) {
-            reserva.setEstado(EstadoTransaccion.CANCELADA);
-            actualizar(reserva);
+        for (Reserva expirada : expiradas) {
+            Reserva reserva = obtenerCopia(expirada.getId());
+            if (reserva != null && reserva.getEstado() == EstadoTransaccion.ACTIVA) {
+                reserva.setEstado(EstadoTransaccion.CANCELADA);
+                actualizar(reserva);
+            }
         }
     }
 }
\ No newline at end of file
@@ -6,21 +6,20 @@ import java.util.stream.Collectors;
 import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 
 public class RepositorioUsuarioEnMemoria extends RepositorioEnMemoria<Usuario> {
     
     public RepositorioUsuarioEnMemoria() {
-        super("Usuario");
-    }
-    
-    @Override
-    protected String extraerId(Usuario entidad) {
-        return entidad != null && entidad.getId() != null ? entidad.getId() : null;
+        super("Usuario", Usuario::getId);
+        registrarIndiceBits(Campos.USUARIO_TIPO, TipoUsuario.class);
+        registrarIndiceBits(Campos.USUARIO_ESTADO, EstadoUsuario.class);
     }
     
     public List<Usuario> buscarPorNombre(String nombre) {
         if (nombre == null) return List.of();
-        return obtenerTodos().stream()
+        return stream()
             .filter(u -> u.getNombre() != null && 
                          u.getNombre().toLowerCase().contains(nombre.toLowerCase()))
             .collect(Collectors.toList());
@@ -29,7 +28,7 @@ public class RepositorioUsuarioEnMemoria extends RepositorioEnMemoria<Usuario> {
     // CORREGIDO: Retorna Usuario en lugar de Optional
     public Usuario buscarPorEmail(String email) {
         if (email == null) return null;
-        return obtenerTodos().stream()
+        return stream()
             .filter(u -> u.getEmail() != null && u.getEmail().equalsIgnoreCase(email))
             .findFirst()
             .orElse(null);
@@ -37,16 +36,12 @@ public class RepositorioUsuarioEnMemoria extends RepositorioEnMemoria<Usuario> {
     
     public List<Usuario> buscarPorTipo(TipoUsuario tipo) {
         if (tipo == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(u -> u.getTipo() == tipo)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.USUARIO_TIPO, tipo)).getElementos();
     }
     
     public List<Usuario> buscarPorEstado(EstadoUsuario estado) {
         if (estado == null) return List.of();
-        return obtenerTodos().stream()
-            .filter(u -> u.getEstado() == estado)
-            .collect(Collectors.toList());
+        return buscar(Criterio.donde(Campos.USUARIO_ESTADO, estado)).getElementos();
     }
     
     public List<Usuario> buscarActivos() {
@@ -54,10 +49,8 @@ public class RepositorioUsuarioEnMemoria extends RepositorioEnMemoria<Usuario> {
     }
     
     public List<Usuario> buscarBloqueados() {
-        return obtenerTodos().stream()
-            .filter(u -> u.getEstado() == EstadoUsuario.BLOQUEADO_MULTA || 
-                         u.getEstado() == EstadoUsuario.BLOQUEADO_PERDIDA)
-            .collect(Collectors.toList());
+        return buscar(Criterio.<Usuario>todos().en(Campos.USUARIO_ESTADO,
+                List.of(EstadoUsuario.BLOQUEADO_MULTA, EstadoUsuario.BLOQUEADO_PERDIDA))).getElementos();
     }
     
     public boolean emailYaRegistrado(String email) {
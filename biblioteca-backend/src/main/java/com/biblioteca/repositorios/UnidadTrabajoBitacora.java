@@ -0,0 +1,91 @@
+package com.biblioteca.repositorios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+import com.biblioteca.repositorios.persistencia.BitacoraEscritura;
+import com.biblioteca.repositorios.persistencia.EntradaBitacora;
+
+/**
+ * Unidad de trabajo sobre la bitácora compartida.
+ *
+ * Mientras la operación corre, los repositorios aplican los cambios en
+ * memoria y dejan la entrada diferida en el hilo; al terminar se escriben
+ * todas en un único marco, que al reproducirse se aplica completo o nada.
+ * Las entidades se serializan al confirmar, con su estado más reciente.
+ */
+final class UnidadTrabajoBitacora implements IUnidadTrabajo {
+
+    private static final ThreadLocal<List<Supplier<EntradaBitacora>>> EN_CURSO = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> AL_CONFIRMAR = new ThreadLocal<>();
+
+    private final BitacoraEscritura bitacora;
+
+    UnidadTrabajoBitacora(BitacoraEscritura bitacora) {
+        this.bitacora = bitacora;
+    }
+
+    /**
+     * @return entradas diferidas de la unidad en curso en este hilo, o null si no hay
+     */
+    static List<Supplier<EntradaBitacora>> diferidas() {
+        return EN_CURSO.get();
+    }
+
+    /**
+     * Deja una acción para cuando el marco de la unidad en curso quede en
+     * disco. No corre si la escritura del marco falla.
+     *
+     * @return false si en este hilo no hay unidad en curso (la acción no se guarda)
+     */
+    static boolean alConfirmar(Runnable accion) {
+        List<Runnable> acciones = AL_CONFIRMAR.get();
+        if (acciones == null) {
+            return false;
+        }
+        acciones.add(accion);
+        return true;
+    }
+
+    @Override
+    public <R> R ejecutar(Supplier<R> operacion) {
+        if (EN_CURSO.get() != null) {
+            return operacion.get(); // anidada: confirma la unidad externa
+        }
+        List<Supplier<EntradaBitacora>> entradas = new ArrayList<>();
+        List<Runnable> acciones = new ArrayList<>();
+        EN_CURSO.set(entradas);
+        AL_CONFIRMAR.set(acciones);
+        try {
+            return operacion.get();
+        } finally {
+            EN_CURSO.remove();
+            AL_CONFIRMAR.remove();
+            confirmar(entradas);
+            acciones.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Aun si la operación falló, lo que ya se aplicó en memoria se registra
+     * para que el disco no quede detrás de la memoria.
+     */
+    private void confirmar(List<Supplier<EntradaBitacora>> diferidas) {
+        if (diferidas.isEmpty()) {
+            return;
+        }
+        Lock bloqueo = bitacora.bloqueoEscritura();
+        bloqueo.lock();
+        try {
+            List<EntradaBitacora> marco = new ArrayList<>(diferidas.size());
+            for (Supplier<EntradaBitacora> entrada : diferidas) {
+                marco.add(entrada.get());
+            }
+            bitacora.registrar(marco);
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+}
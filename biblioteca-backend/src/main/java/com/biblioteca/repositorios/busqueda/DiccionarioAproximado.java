@@ -0,0 +1,286 @@
+package com.biblioteca.repositorios.busqueda;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Conjunto de términos donde se buscan los que están a pocas ediciones
+ * (distancia de Levenshtein) de uno dado, para tolerar errores de tipeo.
+ *
+ * Los términos viven en un árbol radix. La búsqueda lo recorre en
+ * profundidad llevando una fila de la matriz de distancias por carácter
+ * (lo mismo que hace un autómata de Levenshtein sobre el diccionario): los
+ * prefijos comunes se calculan una sola vez y una rama se abandona en
+ * cuanto ningún valor de la fila queda dentro de la tolerancia.
+ *
+ * Cada búsqueda calcula a lo sumo MAXIMO_FILAS filas, así su costo tiene
+ * techo aunque el vocabulario crezca (a cambio, en vocabularios enormes
+ * puede no encontrar todas las coincidencias).
+ *
+ * No es seguro entre hilos: lo protege el índice que lo contiene.
+ */
+public final class DiccionarioAproximado {
+
+    private static final int MAXIMO_FILAS = 100_000;
+
+    private final Nodo raiz = new Nodo("");
+    private int cantidad;
+
+    /**
+     * Ediciones que se toleran en una palabra según su largo: ninguna en las
+     * muy cortas (casi todo quedaría a una edición), una hasta cinco letras
+     * y dos en las más largas.
+     */
+    public static int distanciaTolerada(String palabra) {
+        if (palabra.length() < 3) {
+            return 0;
+        }
+        return palabra.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * @return false si el término ya estaba
+     */
+    public boolean agregar(String termino) {
+        Nodo nodo = raiz;
+        int i = 0;
+        while (i < termino.length()) {
+            Nodo hijo = nodo.hijo(termino.charAt(i));
+            if (hijo == null) {
+                hijo = new Nodo(termino.substring(i));
+                nodo.agregarHijo(hijo);
+            } else {
+                int comun = prefijoComun(hijo.etiqueta, termino, i);
+                if (comun < hijo.etiqueta.length()) {
+                    hijo = dividir(nodo, hijo, comun);
+                }
+            }
+            i += hijo.etiqueta.length();
+            nodo = hijo;
+        }
+        if (nodo.esTermino) {
+            return false;
+        }
+        nodo.esTermino = true;
+        cantidad++;
+        return true;
+    }
+
+    public boolean quitar(String termino) {
+        if (!quitar(raiz, termino, 0)) {
+            return false;
+        }
+        cantidad--;
+        return true;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    /**
+     * Términos a distancia entre 1 y distanciaMaxima, de los más cercanos a
+     * los más lejanos (a igual distancia, en orden alfabético).
+     */
+    public List<Coincidencia> buscar(String termino, int distanciaMaxima, int limite) {
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        if (distanciaMaxima <= 0 || limite <= 0) {
+            return coincidencias;
+        }
+        Busqueda busqueda = new Busqueda(termino, distanciaMaxima, coincidencias);
+        for (Nodo hijo : raiz.hijos) {
+            busqueda.explorar(hijo);
+        }
+        coincidencias.sort(Comparator.comparingInt(Coincidencia::getDistancia)
+                .thenComparing(Coincidencia::getTermino));
+        return coincidencias.size() > limite ? coincidencias.subList(0, limite) : coincidencias;
+    }
+
+    private static boolean quitar(Nodo nodo, String termino, int desde) {
+        if (desde == termino.length()) {
+            boolean estaba = nodo.esTermino;
+            nodo.esTermino = false;
+            return estaba;
+        }
+        Nodo hijo = nodo.hijo(termino.charAt(desde));
+        if (hijo == null || !termino.startsWith(hijo.etiqueta, desde)
+                || !quitar(hijo, termino, desde + hijo.etiqueta.length())) {
+            return false;
+        }
+        // Un nodo que ya no es término desaparece si no tiene hijos, o se une a su único hijo
+        if (!hijo.esTermino && hijo.hijos.length == 0) {
+            nodo.quitarHijo(hijo.etiqueta.charAt(0));
+        } else if (!hijo.esTermino && hijo.hijos.length == 1) {
+            Nodo nieto = hijo.hijos[0];
+            nieto.etiqueta = hijo.etiqueta + nieto.etiqueta;
+            nodo.reemplazarHijo(nieto);
+        }
+        return true;
+    }
+
+    private static Nodo dividir(Nodo padre, Nodo hijo, int corte) {
+        Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, corte));
+        padre.reemplazarHijo(intermedio);
+        hijo.etiqueta = hijo.etiqueta.substring(corte);
+        intermedio.agregarHijo(hijo);
+        return intermedio;
+    }
+
+    private static int prefijoComun(String etiqueta, String termino, int desde) {
+        int limite = Math.min(etiqueta.length(), termino.length() - desde);
+        int i = 0;
+        while (i < limite && etiqueta.charAt(i) == termino.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Estado de un recorrido: el término buscado, el camino actual con su
+     * fila por carácter y cuántas filas quedan por calcular.
+     *
+     * Una fila por profundidad alcanza (se reutilizan al volver de una rama),
+     * y en cada una solo importa la banda |i - j| <= distanciaMaxima: fuera
+     * de ella el valor ya supera la tolerancia.
+     */
+    private static final class Busqueda {
+        private final String termino;
+        private final int distanciaMaxima;
+        private final List<Coincidencia> coincidencias;
+        private final StringBuilder camino = new StringBuilder();
+        private final int[][] filas;
+        private int filasRestantes = MAXIMO_FILAS;
+
+        private Busqueda(String termino, int distanciaMaxima, List<Coincidencia> coincidencias) {
+            this.termino = termino;
+            this.distanciaMaxima = distanciaMaxima;
+            this.coincidencias = coincidencias;
+            // Más allá de largo + distanciaMaxima caracteres ninguna fila queda dentro
+            this.filas = new int[termino.length() + distanciaMaxima + 1][termino.length() + 1];
+            for (int j = 0; j <= termino.length(); j++) {
+                filas[0][j] = j;
+            }
+        }
+
+        private void explorar(Nodo nodo) {
+            int largoCamino = camino.length();
+            for (int c = 0; c < nodo.etiqueta.length(); c++) {
+                int profundidad = largoCamino + c + 1;
+                if (profundidad >= filas.length || filasRestantes-- <= 0
+                        || !calcularFila(profundidad, nodo.etiqueta.charAt(c))) {
+                    return;
+                }
+            }
+            camino.append(nodo.etiqueta);
+            int distancia = filas[camino.length()][termino.length()];
+            if (nodo.esTermino && distancia > 0 && distancia <= distanciaMaxima) {
+                coincidencias.add(new Coincidencia(camino.toString(), distancia));
+            }
+            for (Nodo hijo : nodo.hijos) {
+                explorar(hijo);
+            }
+            camino.setLength(largoCamino);
+        }
+
+        /**
+         * @return si algún valor de la fila quedó dentro de la tolerancia
+         */
+        private boolean calcularFila(int i, char letra) {
+            int[] anterior = filas[i - 1];
+            int[] fila = filas[i];
+            int fuera = distanciaMaxima + 1;
+            int desde = Math.max(1, i - distanciaMaxima);
+            int hasta = Math.min(termino.length(), i + distanciaMaxima);
+            fila[0] = i <= distanciaMaxima ? i : fuera;
+            if (desde > 1) {
+                fila[desde - 1] = fuera;
+            }
+            int minimo = fila[0];
+            for (int j = desde; j <= hasta; j++) {
+                int costo = termino.charAt(j - 1) == letra ? 0 : 1;
+                int arriba = j < i + distanciaMaxima ? anterior[j] : fuera;
+                fila[j] = Math.min(Math.min(fila[j - 1] + 1, arriba + 1), anterior[j - 1] + costo);
+                minimo = Math.min(minimo, fila[j]);
+            }
+            if (hasta < termino.length()) {
+                fila[hasta + 1] = fuera;
+            }
+            return minimo <= distanciaMaxima;
+        }
+    }
+
+    public static final class Coincidencia {
+        private final String termino;
+        private final int distancia;
+
+        private Coincidencia(String termino, int distancia) {
+            this.termino = termino;
+            this.distancia = distancia;
+        }
+
+        public String getTermino() {
+            return termino;
+        }
+
+        public int getDistancia() {
+            return distancia;
+        }
+    }
+
+    private static final class Nodo {
+        private static final Nodo[] SIN_HIJOS = new Nodo[0];
+
+        private String etiqueta;
+        private boolean esTermino;
+        // Hijos ordenados por el primer carácter de su etiqueta
+        private Nodo[] hijos = SIN_HIJOS;
+
+        private Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        private Nodo hijo(char inicial) {
+            int i = posicion(inicial);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        private void agregarHijo(Nodo hijo) {
+            int i = -posicion(hijo.etiqueta.charAt(0)) - 1;
+            Nodo[] nuevos = new Nodo[hijos.length + 1];
+            System.arraycopy(hijos, 0, nuevos, 0, i);
+            nuevos[i] = hijo;
+            System.arraycopy(hijos, i, nuevos, i + 1, hijos.length - i);
+            hijos = nuevos;
+        }
+
+        private void reemplazarHijo(Nodo hijo) {
+            hijos[posicion(hijo.etiqueta.charAt(0))] = hijo;
+        }
+
+        private void quitarHijo(char inicial) {
+            int i = posicion(inicial);
+            Nodo[] nuevos = new Nodo[hijos.length - 1];
+            System.arraycopy(hijos, 0, nuevos, 0, i);
+            System.arraycopy(hijos, i + 1, nuevos, i, hijos.length - i - 1);
+            hijos = nuevos;
+        }
+
+        private int posicion(char inicial) {
+            int bajo = 0;
+            int alto = hijos.length - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                char actual = hijos[medio].etiqueta.charAt(0);
+                if (actual < inicial) {
+                    bajo = medio + 1;
+                } else if (actual > inicial) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+    }
+}
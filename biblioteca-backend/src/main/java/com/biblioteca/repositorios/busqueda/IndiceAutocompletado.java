@@ -0,0 +1,587 @@
+package com.biblioteca.repositorios.busqueda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import com.biblioteca.repositorios.IObservadorRepositorio;
+
+/**
+ * Índice de autocompletado: árbol radix sobre el texto normalizado de
+ * algunos campos, desde el comienzo de cada palabra ("soled" encuentra
+ * "Cien años de soledad").
+ *
+ * Cada nodo guarda los mejores IDs de su subárbol según la popularidad,
+ * así completar un prefijo es bajar por el árbol y leer esa lista, sin
+ * recorrer lo que cuelga debajo. Si se piden más de los que guarda el nodo
+ * (y el subárbol tiene más), se recorre el subárbol. Guardar, borrar o
+ * cambiar la popularidad de una entidad recalcula solo los caminos de sus
+ * claves.
+ *
+ * El tamaño del índice se estima en bytes y tiene un presupuesto: si se
+ * pasa, se descartan las entidades menos populares.
+ *
+ * Las palabras indexadas se guardan también en un DiccionarioAproximado
+ * para completar con errores de tipeo: las palabras del prefijo que no
+ * existen se cambian por la más cercana antes de bajar por el árbol.
+ */
+public class IndiceAutocompletado<T> implements IObservadorRepositorio<T> {
+
+    private static final int MAXIMO_PALABRAS = 6;
+    private static final int LONGITUD_MAXIMA = 48;
+    // Estimaciones para el presupuesto de memoria (JVM de 64 bits con referencias comprimidas)
+    private static final int BYTES_NODO = 64;
+    private static final int BYTES_POR_CARACTER = 2;
+    private static final int BYTES_POR_REFERENCIA = 4;
+    private static final int BYTES_POR_ID = 48;
+    private static final int BYTES_POR_PALABRA = 96;
+    private static final int CANDIDATOS_CORRECCION = 16;
+
+    private final List<Function<T, String>> campos;
+    private final int resultadosPorNodo;
+    private final long presupuestoBytes;
+    private final Nodo raiz = new Nodo("");
+    private final Map<String, String[]> clavesPorId = new HashMap<>();
+    private final Map<String, Long> popularidades = new HashMap<>();
+    // Cuántas claves empiezan con cada palabra
+    private final Map<String, Integer> palabras = new HashMap<>();
+    private final DiccionarioAproximado vocabulario = new DiccionarioAproximado();
+    private final Comparator<String> masPopularPrimero;
+    private final TreeSet<String> menosPopularPrimero;
+    private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    private long nodos = 1;
+    private long caracteres;
+    private long referencias;
+    private long descartados;
+
+    /**
+     * @param resultadosPorNodo cuántas completaciones se guardan por prefijo (más que eso recorre el subárbol)
+     * @param presupuestoBytes  tamaño estimado máximo del índice
+     */
+    public IndiceAutocompletado(List<Function<T, String>> campos, int resultadosPorNodo, long presupuestoBytes) {
+        this.campos = List.copyOf(campos);
+        this.resultadosPorNodo = resultadosPorNodo;
+        this.presupuestoBytes = presupuestoBytes;
+        this.masPopularPrimero = Comparator.<String>comparingLong(this::popularidad).reversed()
+                .thenComparing(Comparator.naturalOrder());
+        // Orden inverso al de las completaciones: se descarta primero lo que menos aparece
+        this.menosPopularPrimero = new TreeSet<>(masPopularPrimero.reversed());
+    }
+
+    @Override
+    public void alGuardar(String id, T entidad) {
+        String[] claves = claves(entidad);
+        bloqueo.writeLock().lock();
+        try {
+            quitar(id);
+            clavesPorId.put(id, claves);
+            menosPopularPrimero.add(id);
+            for (String clave : claves) {
+                caracteres += clave.length();
+                insertar(raiz, clave, 0, id);
+                if (palabras.merge(primeraPalabra(clave), 1, Integer::sum) == 1) {
+                    vocabulario.agregar(primeraPalabra(clave));
+                }
+            }
+            ajustarAlPresupuesto();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alEliminar(String id, T entidad) {
+        bloqueo.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cambia la popularidad (por ejemplo, cantidad de préstamos) y reordena
+     * las completaciones donde aparece la entidad.
+     */
+    public void actualizarPopularidad(String id, long popularidad) {
+        bloqueo.writeLock().lock();
+        try {
+            long anterior = popularidad(id);
+            boolean indexado = menosPopularPrimero.remove(id);
+            popularidades.put(id, popularidad);
+            if (indexado) {
+                menosPopularPrimero.add(id);
+                for (String clave : clavesPorId.get(id)) {
+                    // Si sube solo puede entrar o subir en las listas; si baja, otro puede pasarla
+                    recalcularCamino(raiz, clave, 0, id, popularidad >= anterior);
+                }
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return IDs cuyo texto tiene alguna palabra (y las siguientes) que
+     *         empieza con el prefijo, de la más popular a la menos
+     */
+    public List<String> completar(String prefijo, int limite) {
+        String clave = String.join(" ", NormalizadorTexto.palabras(prefijo));
+        if (clave.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        bloqueo.readLock().lock();
+        try {
+            return mejores(buscarNodo(clave), limite);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Como completar, tolerando errores de tipeo: cada palabra del prefijo
+     * que no está indexada se cambia por la más cercana (a igual distancia,
+     * la que empieza más claves). La última se deja si todavía es el
+     * comienzo de alguna palabra, porque puede estar a medio escribir.
+     */
+    public List<String> completarAproximado(String prefijo, int limite) {
+        List<String> palabrasPrefijo = NormalizadorTexto.palabras(prefijo);
+        if (palabrasPrefijo.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        bloqueo.readLock().lock();
+        try {
+            List<String> corregidas = new ArrayList<>(palabrasPrefijo.size());
+            for (int i = 0; i < palabrasPrefijo.size(); i++) {
+                String palabra = palabrasPrefijo.get(i);
+                boolean ultima = i == palabrasPrefijo.size() - 1;
+                if (palabras.containsKey(palabra) || ultima && buscarNodo(palabra) != null) {
+                    corregidas.add(palabra);
+                    continue;
+                }
+                String reemplazo = corregir(palabra);
+                if (reemplazo == null) {
+                    return List.of();
+                }
+                corregidas.add(reemplazo);
+            }
+            return mejores(buscarNodo(String.join(" ", corregidas)), limite);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    public long getMemoriaEstimada() {
+        bloqueo.readLock().lock();
+        try {
+            return memoriaEstimada();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memoria estimada y presupuesto (bytes), entidades indexadas, nodos
+     * del árbol, palabras distintas y entidades descartadas por falta de
+     * presupuesto.
+     */
+    public Map<String, Long> getMetricas() {
+        bloqueo.readLock().lock();
+        try {
+            Map<String, Long> metricas = new LinkedHashMap<>();
+            metricas.put("memoriaBytes", memoriaEstimada());
+            metricas.put("presupuestoBytes", presupuestoBytes);
+            metricas.put("entradas", (long) clavesPorId.size());
+            metricas.put("nodos", nodos);
+            metricas.put("palabras", (long) palabras.size());
+            metricas.put("descartados", descartados);
+            return metricas;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Texto de cada campo desde el comienzo de sus primeras palabras (salvo
+     * las vacías), recortado a LONGITUD_MAXIMA.
+     */
+    private String[] claves(T entidad) {
+        Set<String> claves = new LinkedHashSet<>();
+        for (Function<T, String> campo : campos) {
+            List<String> palabras = NormalizadorTexto.palabras(campo.apply(entidad));
+            int comienzos = 0;
+            for (int i = 0; i < palabras.size() && comienzos < MAXIMO_PALABRAS; i++) {
+                if (i > 0 && NormalizadorTexto.esPalabraVacia(palabras.get(i))) {
+                    continue;
+                }
+                String clave = String.join(" ", palabras.subList(i, palabras.size()));
+                claves.add(clave.length() > LONGITUD_MAXIMA ? clave.substring(0, LONGITUD_MAXIMA) : clave);
+                comienzos++;
+            }
+        }
+        return claves.toArray(new String[0]);
+    }
+
+    private static String primeraPalabra(String clave) {
+        int espacio = clave.indexOf(' ');
+        return espacio < 0 ? clave : clave.substring(0, espacio);
+    }
+
+    /**
+     * Nodo donde termina la clave (o el primero cuya etiqueta la continúa); null si no hay.
+     */
+    private Nodo buscarNodo(String clave) {
+        Nodo nodo = raiz;
+        int i = 0;
+        while (i < clave.length()) {
+            Nodo hijo = nodo.hijo(clave.charAt(i));
+            if (hijo == null) {
+                return null;
+            }
+            int comun = prefijoComun(hijo.etiqueta, clave, i);
+            if (i + comun < clave.length() && comun < hijo.etiqueta.length()) {
+                return null;
+            }
+            i += comun;
+            nodo = hijo;
+        }
+        return nodo;
+    }
+
+    /**
+     * Una lista de menos de resultadosPorNodo ya tiene todo el subárbol; si
+     * está llena y se piden más, se juntan los IDs de todo el subárbol.
+     */
+    private List<String> mejores(Nodo nodo, int limite) {
+        if (nodo == null) {
+            return List.of();
+        }
+        if (limite <= nodo.mejores.length || nodo.mejores.length < resultadosPorNodo) {
+            return List.of(Arrays.copyOf(nodo.mejores, Math.min(limite, nodo.mejores.length)));
+        }
+        PriorityQueue<String> mejores = new PriorityQueue<>(limite + 1, masPopularPrimero.reversed());
+        juntar(nodo, mejores, new HashSet<>(), limite);
+        String[] resultado = new String[mejores.size()];
+        for (int i = resultado.length - 1; i >= 0; i--) {
+            resultado[i] = mejores.poll();
+        }
+        return List.of(resultado);
+    }
+
+    private void juntar(Nodo nodo, PriorityQueue<String> mejores, Set<String> vistos, int limite) {
+        for (String id : nodo.ids) {
+            considerar(mejores, vistos, id, limite);
+        }
+        for (int i = 0; i < nodo.cantidadHijos(); i++) {
+            juntar(nodo.hijos[i], mejores, vistos, limite);
+        }
+    }
+
+    private String corregir(String palabra) {
+        String mejor = null;
+        int mejorDistancia = Integer.MAX_VALUE;
+        int mejorCantidad = 0;
+        int tolerancia = DiccionarioAproximado.distanciaTolerada(palabra);
+        for (DiccionarioAproximado.Coincidencia c : vocabulario.buscar(palabra, tolerancia, CANDIDATOS_CORRECCION)) {
+            int cantidad = palabras.get(c.getTermino());
+            if (c.getDistancia() < mejorDistancia
+                    || c.getDistancia() == mejorDistancia && cantidad > mejorCantidad) {
+                mejor = c.getTermino();
+                mejorDistancia = c.getDistancia();
+                mejorCantidad = cantidad;
+            }
+        }
+        return mejor;
+    }
+
+    private long popularidad(String id) {
+        return popularidades.getOrDefault(id, 0L);
+    }
+
+    private long memoriaEstimada() {
+        return nodos * (BYTES_NODO + (long) resultadosPorNodo * BYTES_POR_REFERENCIA)
+                + caracteres * BYTES_POR_CARACTER
+                + referencias * BYTES_POR_ID
+                + clavesPorId.size() * (long) BYTES_POR_ID
+                + palabras.size() * (long) BYTES_POR_PALABRA;
+    }
+
+    private void ajustarAlPresupuesto() {
+        while (memoriaEstimada() > presupuestoBytes && !menosPopularPrimero.isEmpty()) {
+            quitar(menosPopularPrimero.first());
+            descartados++;
+        }
+    }
+
+    private void quitar(String id) {
+        String[] claves = clavesPorId.remove(id);
+        if (claves == null) {
+            return;
+        }
+        menosPopularPrimero.remove(id);
+        for (String clave : claves) {
+            caracteres -= clave.length();
+            quitarClave(raiz, clave, 0, id);
+            String palabra = primeraPalabra(clave);
+            if (palabras.merge(palabra, -1, Integer::sum) == 0) {
+                palabras.remove(palabra);
+                vocabulario.quitar(palabra);
+            }
+        }
+    }
+
+    /**
+     * Agregar un ID a un subárbol solo puede sumarlo a las listas del
+     * camino: alcanza con ofrecerlo a cada una.
+     */
+    private void insertar(Nodo nodo, String clave, int desde, String id) {
+        if (desde == clave.length()) {
+            if (nodo.ids.add(id)) {
+                referencias++;
+            }
+        } else {
+            Nodo hijo = nodo.hijo(clave.charAt(desde));
+            if (hijo == null) {
+                hijo = new Nodo(clave.substring(desde));
+                nodo.agregarHijo(hijo);
+                nodos++;
+                caracteres += hijo.etiqueta.length();
+            } else {
+                int comun = prefijoComun(hijo.etiqueta, clave, desde);
+                if (comun < hijo.etiqueta.length()) {
+                    hijo = dividir(nodo, hijo, comun);
+                }
+            }
+            insertar(hijo, clave, desde + hijo.etiqueta.length(), id);
+        }
+        ofrecer(nodo, id);
+    }
+
+    private void quitarClave(Nodo nodo, String clave, int desde, String id) {
+        if (desde == clave.length()) {
+            if (nodo.ids.remove(id)) {
+                referencias--;
+            }
+        } else {
+            Nodo hijo = nodo.hijo(clave.charAt(desde));
+            if (hijo == null || !clave.startsWith(hijo.etiqueta, desde)) {
+                return;
+            }
+            quitarClave(hijo, clave, desde + hijo.etiqueta.length(), id);
+            compactar(nodo, hijo);
+        }
+        if (nodo.estaEntreMejores(id)) {
+            recalcular(nodo);
+        }
+    }
+
+    /**
+     * @return si cambió la lista del nodo. Al bajar la popularidad también se
+     *         recalcula el padre de una lista que cambió: puede venir de otra
+     *         clave de la misma entidad que dejó al padre desactualizado.
+     */
+    private boolean recalcularCamino(Nodo nodo, String clave, int desde, String id, boolean subio) {
+        boolean cambioHijo = false;
+        if (desde < clave.length()) {
+            Nodo hijo = nodo.hijo(clave.charAt(desde));
+            if (hijo == null || !clave.startsWith(hijo.etiqueta, desde)) {
+                return false;
+            }
+            cambioHijo = recalcularCamino(hijo, clave, desde + hijo.etiqueta.length(), id, subio);
+        }
+        String[] antes = nodo.mejores;
+        if (subio) {
+            ofrecer(nodo, id);
+        } else if (cambioHijo || nodo.estaEntreMejores(id)) {
+            recalcular(nodo);
+        }
+        return !Arrays.equals(antes, nodo.mejores);
+    }
+
+    /**
+     * Parte la etiqueta del hijo: el nuevo nodo intermedio queda con los
+     * primeros caracteres y el hijo con el resto.
+     */
+    private Nodo dividir(Nodo padre, Nodo hijo, int corte) {
+        Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, corte));
+        intermedio.mejores = hijo.mejores;
+        padre.reemplazarHijo(intermedio);
+        hijo.etiqueta = hijo.etiqueta.substring(corte);
+        intermedio.agregarHijo(hijo);
+        nodos++;
+        return intermedio;
+    }
+
+    /**
+     * Un nodo sin IDs desaparece si no tiene hijos, o se une a su único hijo.
+     */
+    private void compactar(Nodo padre, Nodo hijo) {
+        if (!hijo.ids.isEmpty()) {
+            return;
+        }
+        if (hijo.cantidadHijos() == 0) {
+            padre.quitarHijo(hijo.etiqueta.charAt(0));
+            nodos--;
+            caracteres -= hijo.etiqueta.length();
+        } else if (hijo.cantidadHijos() == 1) {
+            Nodo nieto = hijo.hijos[0];
+            nieto.etiqueta = hijo.etiqueta + nieto.etiqueta;
+            padre.reemplazarHijo(nieto);
+            nodos--;
+        }
+    }
+
+    /**
+     * Ubica el ID en la lista del nodo si le corresponde (o lo reubica si ya
+     * estaba). Las listas se reemplazan, nunca se modifican: dividir un nodo
+     * comparte la del hijo.
+     */
+    private void ofrecer(Nodo nodo, String id) {
+        String[] mejores = nodo.mejores;
+        if (!nodo.estaEntreMejores(id) && mejores.length == resultadosPorNodo
+                && masPopularPrimero.compare(id, mejores[mejores.length - 1]) > 0) {
+            return;
+        }
+        List<String> lista = new ArrayList<>(mejores.length + 1);
+        for (String otro : mejores) {
+            if (!otro.equals(id)) {
+                lista.add(otro);
+            }
+        }
+        int posicion = 0;
+        while (posicion < lista.size() && masPopularPrimero.compare(lista.get(posicion), id) < 0) {
+            posicion++;
+        }
+        lista.add(posicion, id);
+        if (lista.size() > resultadosPorNodo) {
+            lista.remove(lista.size() - 1);
+        }
+        nodo.mejores = lista.toArray(new String[0]);
+    }
+
+    /**
+     * Los mejores del nodo salen de sus propios IDs y de las listas de sus hijos.
+     */
+    private void recalcular(Nodo nodo) {
+        PriorityQueue<String> mejores = new PriorityQueue<>(resultadosPorNodo + 1, masPopularPrimero.reversed());
+        Set<String> vistos = new HashSet<>();
+        for (String id : nodo.ids) {
+            considerar(mejores, vistos, id, resultadosPorNodo);
+        }
+        for (int i = 0; i < nodo.cantidadHijos(); i++) {
+            for (String id : nodo.hijos[i].mejores) {
+                considerar(mejores, vistos, id, resultadosPorNodo);
+            }
+        }
+        String[] resultado = new String[mejores.size()];
+        for (int i = resultado.length - 1; i >= 0; i--) {
+            resultado[i] = mejores.poll();
+        }
+        nodo.mejores = resultado;
+    }
+
+    private void considerar(PriorityQueue<String> mejores, Set<String> vistos, String id, int cantidad) {
+        if (!vistos.add(id)) {
+            return;
+        }
+        if (mejores.size() < cantidad) {
+            mejores.add(id);
+        } else if (masPopularPrimero.compare(id, mejores.peek()) < 0) {
+            mejores.poll();
+            mejores.add(id);
+        }
+    }
+
+    private static int prefijoComun(String etiqueta, String clave, int desde) {
+        int limite = Math.min(etiqueta.length(), clave.length() - desde);
+        int i = 0;
+        while (i < limite && etiqueta.charAt(i) == clave.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Nodo {
+        private static final Nodo[] SIN_HIJOS = new Nodo[0];
+        private static final String[] VACIO = new String[0];
+
+        private String etiqueta;
+        // Hijos ordenados por el primer carácter de su etiqueta
+        private Nodo[] hijos = SIN_HIJOS;
+        private final Set<String> ids = new HashSet<>(2);
+        private String[] mejores = VACIO;
+
+        private Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        private boolean estaEntreMejores(String id) {
+            for (String mejor : mejores) {
+                if (mejor.equals(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int cantidadHijos() {
+            return hijos.length;
+        }
+
+        private Nodo hijo(char inicial) {
+            int i = posicion(inicial);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        private void agregarHijo(Nodo hijo) {
+            int i = -posicion(hijo.etiqueta.charAt(0)) - 1;
+            Nodo[] nuevos = new Nodo[hijos.length + 1];
+            System.arraycopy(hijos, 0, nuevos, 0, i);
+            nuevos[i] = hijo;
+            System.arraycopy(hijos, i, nuevos, i + 1, hijos.length - i);
+            hijos = nuevos;
+        }
+
+        private void reemplazarHijo(Nodo hijo) {
+            hijos[posicion(hijo.etiqueta.charAt(0))] = hijo;
+        }
+
+        private void quitarHijo(char inicial) {
+            int i = posicion(inicial);
+            Nodo[] nuevos = new Nodo[hijos.length - 1];
+            System.arraycopy(hijos, 0, nuevos, 0, i);
+            System.arraycopy(hijos, i + 1, nuevos, i, hijos.length - i - 1);
+            hijos = nuevos;
+        }
+
+        private int posicion(char inicial) {
+            int bajo = 0;
+            int alto = hijos.length - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                char actual = hijos[medio].etiqueta.charAt(0);
+                if (actual < inicial) {
+                    bajo = medio + 1;
+                } else if (actual > inicial) {
+                    alto = medio - 1;
+                } else {
+                    return medio;
+                }
+            }
+            return -(bajo + 1);
+        }
+    }
+}
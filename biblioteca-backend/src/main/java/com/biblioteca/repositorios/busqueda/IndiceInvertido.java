@@ -0,0 +1,360 @@
+package com.biblioteca.repositorios.busqueda;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.biblioteca.repositorios.IObservadorRepositorio;
+
+/**
+ * Índice invertido de texto completo sobre algunos campos de una entidad.
+ *
+ * Cada término apunta a los IDs que lo contienen, agrupados por su
+ * frecuencia y los campos donde aparece (una máscara de bits según el orden
+ * de los campos); los grupos van de mayor a menor frecuencia. Como
+ * observador del repositorio se mantiene al día en cada escritura.
+ *
+ * Una búsqueda exige todos los términos de la consulta: recorre el grupo
+ * más corto y consulta los demás, puntúa por frecuencia (saturada) ponderada
+ * por rareza del término (tf-idf) y se queda con los mejores en un montículo
+ * de tamaño fijo. Las combinaciones de grupos se visitan de mayor a menor
+ * puntaje y el recorrido termina en cuanto ninguna restante puede superar
+ * al peor de los guardados: un término muy común no se recorre entero.
+ *
+ * El vocabulario vive además en un DiccionarioAproximado para la búsqueda
+ * aproximada: los términos de la consulta que no están en el índice se
+ * cambian por el indexado más cercano y se busca con la consulta corregida.
+ */
+public class IndiceInvertido<T> implements IObservadorRepositorio<T> {
+
+    public static final int TODOS_LOS_CAMPOS = -1;
+
+    private static final int BITS_CAMPOS = 8;
+    private static final int MASCARA_CAMPOS = (1 << BITS_CAMPOS) - 1;
+    // En textos cortos repetir una palabra más veces no la hace más relevante,
+    // y con pocos niveles de frecuencia hay pocos grupos por término
+    private static final int FRECUENCIA_MAXIMA = 2;
+    private static final int CANDIDATOS_CORRECCION = 16;
+
+    private final List<Function<T, String>> campos;
+    private final Map<String, Lista> apariciones = new HashMap<>();
+    private final Map<String, Documento> documentos = new HashMap<>();
+    private final DiccionarioAproximado vocabulario = new DiccionarioAproximado();
+    private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    public IndiceInvertido(List<Function<T, String>> campos) {
+        if (campos.size() > BITS_CAMPOS) {
+            throw new IllegalArgumentException("A lo sumo " + BITS_CAMPOS + " campos");
+        }
+        this.campos = List.copyOf(campos);
+    }
+
+    /**
+     * Bit de la máscara que corresponde al campo en esa posición.
+     */
+    public static int campo(int posicion) {
+        return 1 << posicion;
+    }
+
+    @Override
+    public void alGuardar(String id, T entidad) {
+        Map<String, Integer> nuevos = new HashMap<>();
+        for (int i = 0; i < campos.size(); i++) {
+            int bit = campo(i);
+            for (String termino : NormalizadorTexto.tokenizar(campos.get(i).apply(entidad))) {
+                nuevos.merge(termino, (1 << BITS_CAMPOS) | bit, IndiceInvertido::sumar);
+            }
+        }
+        Documento documento = new Documento(nuevos);
+        bloqueo.writeLock().lock();
+        try {
+            quitar(id);
+            for (int i = 0; i < documento.terminos.length; i++) {
+                apariciones.computeIfAbsent(documento.terminos[i], this::nuevaLista)
+                        .agregar(id, documento.valores[i]);
+            }
+            documentos.put(id, documento);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alEliminar(String id, T entidad) {
+        bloqueo.writeLock().lock();
+        try {
+            quitar(id);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param consulta texto libre; se tokeniza igual que los campos
+     * @param limite   cantidad máxima de resultados
+     * @param mascara  campos donde debe aparecer cada término (TODOS_LOS_CAMPOS o una suma de campo(i))
+     * @return IDs ordenados de mayor a menor puntaje; a igual puntaje, en orden de recorrido
+     */
+    public List<String> buscar(String consulta, int limite, int mascara) {
+        return buscar(consulta, limite, mascara, null);
+    }
+
+    /**
+     * Como buscar, pero además entrega cada ID que cumple la consulta (no
+     * solo los mejores) en la misma pasada, por ejemplo para contarlos. En
+     * ese caso no se puede cortar el recorrido antes.
+     *
+     * @param coincidencias recibe todos los IDs que cumplen, sin orden; null si no interesa
+     */
+    public List<String> buscar(String consulta, int limite, int mascara, Consumer<String> coincidencias) {
+        Set<String> terminos = NormalizadorTexto.terminosConsulta(consulta);
+        if (terminos.isEmpty() || (limite <= 0 && coincidencias == null)) {
+            return List.of();
+        }
+        bloqueo.readLock().lock();
+        try {
+            List<Lista> listas = new ArrayList<>(terminos.size());
+            for (String termino : terminos) {
+                Lista lista = apariciones.get(termino);
+                if (lista == null) {
+                    return List.of();
+                }
+                listas.add(lista);
+            }
+            double[] pesos = new double[listas.size()];
+            for (int i = 0; i < pesos.length; i++) {
+                pesos[i] = Math.log(1.0 + (double) documentos.size() / listas.get(i).tamanio);
+            }
+
+            // Dentro de una combinación de grupos (uno por término) todos los
+            // IDs valen lo mismo, así que se recorren de la mejor a la peor
+            List<Combinacion> combinaciones = new ArrayList<>();
+            combinar(listas, pesos, mascara, 0, new ArrayList<>(), 0, combinaciones);
+            combinaciones.sort(Comparator.comparingDouble((Combinacion c) -> c.puntaje).reversed());
+
+            PriorityQueue<Puntaje> mejores = new PriorityQueue<>(Puntaje.PEOR_PRIMERO);
+            int orden = 0;
+            for (Combinacion combinacion : combinaciones) {
+                boolean puedeEntrar = limite > 0
+                        && (mejores.size() < limite || combinacion.puntaje > mejores.peek().puntaje);
+                if (!puedeEntrar && coincidencias == null) {
+                    break;
+                }
+                List<Set<String>> grupos = combinacion.grupos;
+                grupos.sort(Comparator.comparingInt(Set::size));
+                candidatos:
+                for (String id : grupos.get(0)) {
+                    for (int i = 1; i < grupos.size(); i++) {
+                        if (!grupos.get(i).contains(id)) {
+                            continue candidatos;
+                        }
+                    }
+                    if (coincidencias != null) {
+                        coincidencias.accept(id);
+                    }
+                    if (!puedeEntrar) {
+                        continue;
+                    }
+                    if (mejores.size() == limite) {
+                        // Todo lo que queda en esta combinación empata con el peor
+                        if (combinacion.puntaje <= mejores.peek().puntaje) {
+                            puedeEntrar = false;
+                            if (coincidencias == null) {
+                                break;
+                            }
+                            continue;
+                        }
+                        mejores.poll();
+                    }
+                    mejores.add(new Puntaje(id, combinacion.puntaje, orden++));
+                }
+            }
+
+            List<String> ids = new ArrayList<>(mejores.size());
+            while (!mejores.isEmpty()) {
+                ids.add(mejores.poll().id);
+            }
+            Collections.reverse(ids);
+            return ids;
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    public List<String> buscar(String consulta, int limite) {
+        return buscar(consulta, limite, TODOS_LOS_CAMPOS);
+    }
+
+    /**
+     * Como buscar, pero tolerando errores de tipeo: cada término que no está
+     * en el índice se reemplaza por el indexado a menos ediciones (a igual
+     * distancia, el que aparece en más documentos). Si alguno no tiene
+     * reemplazo no hay resultados.
+     */
+    public List<String> buscarAproximado(String consulta, int limite, int mascara) {
+        Set<String> terminos = NormalizadorTexto.terminosConsulta(consulta);
+        if (terminos.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        StringBuilder corregida = new StringBuilder();
+        bloqueo.readLock().lock();
+        try {
+            for (String termino : terminos) {
+                String reemplazo = apariciones.containsKey(termino) ? termino : corregir(termino);
+                if (reemplazo == null) {
+                    return List.of();
+                }
+                corregida.append(reemplazo).append(' ');
+            }
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+        return buscar(corregida.toString(), limite, mascara);
+    }
+
+    public int cantidadTerminos() {
+        bloqueo.readLock().lock();
+        try {
+            return apariciones.size();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    private String corregir(String termino) {
+        String mejor = null;
+        int mejorDistancia = Integer.MAX_VALUE;
+        int mejorTamanio = 0;
+        int tolerancia = DiccionarioAproximado.distanciaTolerada(termino);
+        for (DiccionarioAproximado.Coincidencia c : vocabulario.buscar(termino, tolerancia, CANDIDATOS_CORRECCION)) {
+            int tamanio = apariciones.get(c.getTermino()).tamanio;
+            if (c.getDistancia() < mejorDistancia
+                    || c.getDistancia() == mejorDistancia && tamanio > mejorTamanio) {
+                mejor = c.getTermino();
+                mejorDistancia = c.getDistancia();
+                mejorTamanio = tamanio;
+            }
+        }
+        return mejor;
+    }
+
+    private Lista nuevaLista(String termino) {
+        vocabulario.agregar(termino);
+        return new Lista();
+    }
+
+    private static void combinar(List<Lista> listas, double[] pesos, int mascara, int i,
+                                 List<Set<String>> elegidos, double puntaje, List<Combinacion> salida) {
+        if (i == listas.size()) {
+            salida.add(new Combinacion(new ArrayList<>(elegidos), puntaje));
+            return;
+        }
+        for (Map.Entry<Integer, Set<String>> grupo : listas.get(i).porValor.entrySet()) {
+            if ((grupo.getKey() & mascara & MASCARA_CAMPOS) != 0) {
+                elegidos.add(grupo.getValue());
+                combinar(listas, pesos, mascara, i + 1, elegidos,
+                        puntaje + (grupo.getKey() >>> BITS_CAMPOS) * pesos[i], salida);
+                elegidos.remove(elegidos.size() - 1);
+            }
+        }
+    }
+
+    /** Suma frecuencias (hasta FRECUENCIA_MAXIMA) y une las máscaras de campos. */
+    private static int sumar(int a, int b) {
+        int frecuencia = Math.min((a >>> BITS_CAMPOS) + (b >>> BITS_CAMPOS), FRECUENCIA_MAXIMA);
+        return frecuencia << BITS_CAMPOS | (a | b) & MASCARA_CAMPOS;
+    }
+
+    private void quitar(String id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (int i = 0; i < anterior.terminos.length; i++) {
+            Lista lista = apariciones.get(anterior.terminos[i]);
+            if (lista != null && lista.quitar(id, anterior.valores[i])) {
+                apariciones.remove(anterior.terminos[i]);
+                vocabulario.quitar(anterior.terminos[i]);
+            }
+        }
+    }
+
+    /**
+     * IDs de un término agrupados por valor (frecuencia << BITS_CAMPOS | campos),
+     * de mayor a menor. Casi siempre hay uno o dos grupos.
+     */
+    private static final class Lista {
+        private final TreeMap<Integer, Set<String>> porValor = new TreeMap<>(Comparator.reverseOrder());
+        private int tamanio;
+
+        private void agregar(String id, int valor) {
+            porValor.computeIfAbsent(valor, k -> new HashSet<>()).add(id);
+            tamanio++;
+        }
+
+        /** @return true si la lista quedó vacía */
+        private boolean quitar(String id, int valor) {
+            Set<String> grupo = porValor.get(valor);
+            if (grupo != null && grupo.remove(id)) {
+                tamanio--;
+                if (grupo.isEmpty()) {
+                    porValor.remove(valor);
+                }
+            }
+            return tamanio == 0;
+        }
+    }
+
+    private static final class Documento {
+        private final String[] terminos;
+        private final int[] valores;
+
+        private Documento(Map<String, Integer> valoresPorTermino) {
+            this.terminos = new String[valoresPorTermino.size()];
+            this.valores = new int[valoresPorTermino.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> entrada : valoresPorTermino.entrySet()) {
+                terminos[i] = entrada.getKey();
+                valores[i++] = entrada.getValue();
+            }
+        }
+    }
+
+    private static final class Combinacion {
+        private final List<Set<String>> grupos;
+        private final double puntaje;
+
+        private Combinacion(List<Set<String>> grupos, double puntaje) {
+            this.grupos = grupos;
+            this.puntaje = puntaje;
+        }
+    }
+
+    private static final class Puntaje {
+        // Menor puntaje primero; a igual puntaje, el encontrado después
+        private static final Comparator<Puntaje> PEOR_PRIMERO = Comparator
+                .comparingDouble((Puntaje p) -> p.puntaje)
+                .thenComparing(p -> p.orden, Comparator.reverseOrder());
+
+        private final String id;
+        private final double puntaje;
+        private final int orden;
+
+        private Puntaje(String id, double puntaje, int orden) {
+            this.id = id;
+            this.puntaje = puntaje;
+            this.orden = orden;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.biblioteca.repositorios.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalización y tokenización de texto en español para las búsquedas.
+ *
+ * - Minúsculas y sin tildes ni diéresis ("Márquez" -> "marquez"), pero la
+ *   ñ se conserva: "año" y "ano" son palabras distintas.
+ * - Separa por todo lo que no sea letra o dígito; un guion entre dígitos
+ *   une (ISBN e ISSN quedan como un solo término).
+ * - Descarta las palabras vacías más comunes (artículos, preposiciones...).
+ */
+public final class NormalizadorTexto {
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "e", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "se", "sin", "su", "sus", "u", "un", "una", "unos", "unas", "y");
+
+    private NormalizadorTexto() {
+    }
+
+    /**
+     * Texto en minúsculas y sin marcas diacríticas, salvo la tilde de la ñ.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            } else if (c == '\u0303' && sb.length() > 0 && sb.charAt(sb.length() - 1) == 'n') {
+                sb.setCharAt(sb.length() - 1, 'ñ');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Términos del texto en orden de aparición (con repeticiones), sin palabras vacías.
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> terminos = palabras(texto);
+        terminos.removeIf(NormalizadorTexto::esPalabraVacia);
+        return terminos;
+    }
+
+    /**
+     * Todas las palabras normalizadas del texto, incluidas las vacías.
+     */
+    public static List<String> palabras(String texto) {
+        List<String> palabras = new ArrayList<>();
+        String normalizado = normalizar(texto);
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < normalizado.length(); i++) {
+            char c = normalizado.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(c);
+            } else if (c == '-' && actual.length() > 0
+                    && Character.isDigit(actual.charAt(actual.length() - 1))
+                    && i + 1 < normalizado.length() && Character.isDigit(normalizado.charAt(i + 1))) {
+                continue;
+            } else if (actual.length() > 0) {
+                palabras.add(actual.toString());
+                actual.setLength(0);
+            }
+        }
+        if (actual.length() > 0) {
+            palabras.add(actual.toString());
+        }
+        return palabras;
+    }
+
+    public static boolean esPalabraVacia(String palabra) {
+        return PALABRAS_VACIAS.contains(palabra);
+    }
+
+    /**
+     * Términos distintos de una consulta, en el orden en que se escribieron.
+     */
+    public static Set<String> terminosConsulta(String consulta) {
+        return new LinkedHashSet<>(tokenizar(consulta));
+    }
+}
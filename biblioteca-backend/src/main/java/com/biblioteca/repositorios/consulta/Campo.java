@@ -0,0 +1,35 @@
+package com.biblioteca.repositorios.consulta;
+
+import java.util.function.Function;
+
+/**
+ * Campo consultable de una entidad: un nombre y cómo leerlo.
+ * Se comparan por identidad, así un repositorio sabe si tiene
+ * un índice para exactamente ese campo.
+ */
+public final class Campo<T, V> {
+    private final String nombre;
+    private final Function<T, V> extractor;
+
+    private Campo(String nombre, Function<T, V> extractor) {
+        this.nombre = nombre;
+        this.extractor = extractor;
+    }
+
+    public static <T, V> Campo<T, V> de(String nombre, Function<T, V> extractor) {
+        return new Campo<>(nombre, extractor);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public V leer(T entidad) {
+        return extractor.apply(entidad);
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
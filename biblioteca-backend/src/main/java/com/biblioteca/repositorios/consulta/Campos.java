@@ -0,0 +1,65 @@
+package com.biblioteca.repositorios.consulta;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Multa;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.entidades.Reserva;
+import com.biblioteca.dominio.entidades.Usuario;
+import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
+import com.biblioteca.dominio.enumeraciones.EstadoMulta;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
+import com.biblioteca.dominio.enumeraciones.TipoMaterial;
+import com.biblioteca.dominio.enumeraciones.TipoUsuario;
+
+/**
+ * Campos conocidos de las entidades, compartidos por los servicios
+ * (que arman criterios) y los repositorios (que indexan).
+ */
+public final class Campos {
+
+    private Campos() {
+    }
+
+    // Materiales
+    public static final Campo<Material, TipoMaterial> MATERIAL_TIPO = Campo.de("tipo", Material::getTipo);
+    public static final Campo<Material, EstadoMaterial> MATERIAL_ESTADO = Campo.de("estado", Material::getEstado);
+
+    // Usuarios
+    public static final Campo<Usuario, TipoUsuario> USUARIO_TIPO = Campo.de("tipo", Usuario::getTipo);
+    public static final Campo<Usuario, EstadoUsuario> USUARIO_ESTADO = Campo.de("estado", Usuario::getEstado);
+    // ID, nombre y email en líneas separadas, para buscar una subcadena en cualquiera
+    public static final Campo<Usuario, String> USUARIO_TEXTO = Campo.de("texto", Campos::textoUsuario);
+
+    // Préstamos
+    public static final Campo<Prestamo, String> PRESTAMO_USUARIO = Campo.de("idUsuario", Prestamo::getIdUsuario);
+    public static final Campo<Prestamo, String> PRESTAMO_MATERIAL = Campo.de("idMaterial", Prestamo::getIdMaterial);
+    public static final Campo<Prestamo, EstadoTransaccion> PRESTAMO_ESTADO = Campo.de("estado", Prestamo::getEstado);
+    public static final Campo<Prestamo, LocalDateTime> PRESTAMO_FECHA_ESPERADA =
+            Campo.de("fechaDevolucionEsperada", Prestamo::getFechaDevolucionEsperada);
+    public static final Campo<Prestamo, LocalDateTime> PRESTAMO_FECHA_REAL =
+            Campo.de("fechaDevolucionReal", Prestamo::getFechaDevolucionReal);
+
+    // Reservas
+    public static final Campo<Reserva, String> RESERVA_USUARIO = Campo.de("idUsuario", Reserva::getIdUsuario);
+    public static final Campo<Reserva, String> RESERVA_MATERIAL = Campo.de("idMaterial", Reserva::getIdMaterial);
+    public static final Campo<Reserva, EstadoTransaccion> RESERVA_ESTADO = Campo.de("estado", Reserva::getEstado);
+    public static final Campo<Reserva, LocalDateTime> RESERVA_EXPIRACION =
+            Campo.de("fechaExpiracion", Reserva::getFechaExpiracion);
+
+    // Multas
+    public static final Campo<Multa, String> MULTA_USUARIO = Campo.de("idUsuario", Multa::getIdUsuario);
+    public static final Campo<Multa, String> MULTA_PRESTAMO = Campo.de("idPrestamo", Multa::getIdPrestamo);
+    public static final Campo<Multa, EstadoMulta> MULTA_ESTADO = Campo.de("estado", Multa::getEstado);
+
+    private static String textoUsuario(Usuario usuario) {
+        return Stream.of(usuario.getId(), usuario.getNombre(), usuario.getEmail())
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining("\n"));
+    }
+}
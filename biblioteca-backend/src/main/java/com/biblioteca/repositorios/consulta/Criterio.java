@@ -0,0 +1,211 @@
+package com.biblioteca.repositorios.consulta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Conjunción de términos (igualdad, pertenencia, rango o subcadena) sobre campos conocidos.
+ * Es inmutable: cada método devuelve un criterio nuevo con el término agregado.
+ *
+ * Ejemplo:
+ *   Criterio.donde(Campos.MULTA_USUARIO, idUsuario)
+ *           .y(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE)
+ *   Criterio.<Usuario>todos()
+ *           .en(Campos.USUARIO_ESTADO, List.of(BLOQUEADO_MULTA, BLOQUEADO_PERDIDA))
+ */
+public final class Criterio<T> {
+    private final List<Termino<T>> terminos;
+
+    private Criterio(List<Termino<T>> terminos) {
+        this.terminos = terminos;
+    }
+
+    public static <T> Criterio<T> todos() {
+        return new Criterio<>(List.of());
+    }
+
+    public static <T, V> Criterio<T> donde(Campo<T, V> campo, V valor) {
+        return Criterio.<T>todos().y(campo, valor);
+    }
+
+    public <V> Criterio<T> y(Campo<T, V> campo, V valor) {
+        return con(new Termino<>(campo, valor, null, null, false, null, false, null));
+    }
+
+    /**
+     * El campo tiene alguno de los valores.
+     */
+    public <V> Criterio<T> en(Campo<T, V> campo, Collection<? extends V> valores) {
+        return con(new Termino<>(campo, null, Collections.unmodifiableSet(new LinkedHashSet<>(valores)),
+                null, false, null, false, null));
+    }
+
+    public <V extends Comparable<? super V>> Criterio<T> mayorQue(Campo<T, V> campo, V desde) {
+        return con(new Termino<>(campo, null, null, desde, false, null, false, null));
+    }
+
+    public <V extends Comparable<? super V>> Criterio<T> menorQue(Campo<T, V> campo, V hasta) {
+        return con(new Termino<>(campo, null, null, null, false, hasta, false, null));
+    }
+
+    /**
+     * Rango cerrado [desde, hasta].
+     */
+    public <V extends Comparable<? super V>> Criterio<T> entre(Campo<T, V> campo, V desde, V hasta) {
+        return con(new Termino<>(campo, null, null, desde, true, hasta, true, null));
+    }
+
+    /**
+     * El texto del campo contiene el dado, sin distinguir mayúsculas.
+     * Ningún índice lo resuelve: siempre se evalúa como filtro.
+     */
+    public Criterio<T> contiene(Campo<T, String> campo, String texto) {
+        return con(new Termino<>(campo, null, null, null, false, null, false, texto.toLowerCase()));
+    }
+
+    public List<Termino<T>> getTerminos() {
+        return terminos;
+    }
+
+    public boolean cumple(T entidad) {
+        for (Termino<T> termino : terminos) {
+            if (!termino.cumple(entidad)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Criterio<T> con(Termino<T> termino) {
+        List<Termino<T>> nuevos = new ArrayList<>(terminos.size() + 1);
+        nuevos.addAll(terminos);
+        nuevos.add(termino);
+        return new Criterio<>(Collections.unmodifiableList(nuevos));
+    }
+
+    @Override
+    public String toString() {
+        return terminos.toString();
+    }
+
+    /**
+     * Un término: pertenencia si tiene un conjunto de valores, subcadena si
+     * tiene texto, igualdad si no tiene cotas, rango en caso contrario.
+     */
+    public static final class Termino<T> {
+        private final Campo<T, ?> campo;
+        private final Object valor;
+        private final Comparable<Object> desde;
+        private final boolean desdeIncluido;
+        private final Comparable<Object> hasta;
+        private final boolean hastaIncluido;
+        private final Set<Object> valores;
+        private final String subcadena;
+
+        @SuppressWarnings("unchecked")
+        private Termino(Campo<T, ?> campo, Object valor, Set<Object> valores,
+                        Comparable<?> desde, boolean desdeIncluido,
+                        Comparable<?> hasta, boolean hastaIncluido, String subcadena) {
+            this.campo = campo;
+            this.valor = valor;
+            this.valores = valores;
+            this.desde = (Comparable<Object>) desde;
+            this.desdeIncluido = desdeIncluido;
+            this.hasta = (Comparable<Object>) hasta;
+            this.hastaIncluido = hastaIncluido;
+            this.subcadena = subcadena;
+        }
+
+        public Campo<T, ?> getCampo() {
+            return campo;
+        }
+
+        public boolean esIgualdad() {
+            return valores == null && desde == null && hasta == null && subcadena == null;
+        }
+
+        public boolean esPertenencia() {
+            return valores != null;
+        }
+
+        public boolean esRango() {
+            return desde != null || hasta != null;
+        }
+
+        public boolean esSubcadena() {
+            return subcadena != null;
+        }
+
+        public Object getValor() {
+            return valor;
+        }
+
+        /**
+         * Valores aceptados: los de la pertenencia, o solo el de la igualdad.
+         */
+        public Set<Object> getValores() {
+            return valores != null ? valores : Collections.singleton(valor);
+        }
+
+        public Comparable<Object> getDesde() {
+            return desde;
+        }
+
+        public boolean isDesdeIncluido() {
+            return desdeIncluido;
+        }
+
+        public Comparable<Object> getHasta() {
+            return hasta;
+        }
+
+        public boolean isHastaIncluido() {
+            return hastaIncluido;
+        }
+
+        public boolean cumple(T entidad) {
+            Object actual = campo.leer(entidad);
+            if (esPertenencia()) {
+                return valores.contains(actual);
+            }
+            if (esIgualdad()) {
+                return Objects.equals(actual, valor);
+            }
+            if (actual == null) {
+                return false;
+            }
+            if (esSubcadena()) {
+                return actual.toString().toLowerCase().contains(subcadena);
+            }
+            if (desde != null) {
+                int c = desde.compareTo(actual);
+                if (c > 0 || (c == 0 && !desdeIncluido)) return false;
+            }
+            if (hasta != null) {
+                int c = hasta.compareTo(actual);
+                if (c < 0 || (c == 0 && !hastaIncluido)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            if (esPertenencia()) {
+                return campo + " en " + valores;
+            }
+            if (esIgualdad()) {
+                return campo + " = " + valor;
+            }
+            if (esSubcadena()) {
+                return campo + " contiene '" + subcadena + "'";
+            }
+            return campo + " en " + (desdeIncluido ? "[" : "(") + (desde != null ? desde : "-∞")
+                    + ", " + (hasta != null ? hasta : "+∞") + (hastaIncluido ? "]" : ")");
+        }
+    }
+}
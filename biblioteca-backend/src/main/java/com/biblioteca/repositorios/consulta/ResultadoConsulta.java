@@ -0,0 +1,52 @@
+package com.biblioteca.repositorios.consulta;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de buscar(Criterio) junto con el plan que se usó para obtenerlo.
+ */
+public final class ResultadoConsulta<T> {
+
+    public static final String PLAN_RECORRIDO = "RECORRIDO";
+
+    private final List<T> elementos;
+    private final String plan;
+    private final int examinados;
+
+    public ResultadoConsulta(List<T> elementos, String plan, int examinados) {
+        this.elementos = Collections.unmodifiableList(elementos);
+        this.plan = plan;
+        this.examinados = examinados;
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    /**
+     * Descripción del plan, ej. "INDICE(idUsuario) + FILTRO(estado)" o "RECORRIDO + FILTRO(...)".
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    public boolean usoIndice() {
+        return !plan.startsWith(PLAN_RECORRIDO);
+    }
+
+    /**
+     * Cantidad de entidades que hubo que evaluar para responder.
+     */
+    public int getExaminados() {
+        return examinados;
+    }
+
+    public boolean estaVacio() {
+        return elementos.isEmpty();
+    }
+
+    public int cantidad() {
+        return elementos.size();
+    }
+}
@@ -0,0 +1,179 @@
+package com.biblioteca.repositorios.persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Formato binario compacto de la instantánea de un repositorio.
+ *
+ * [magia int][versión int] y luego, por entidad, [1 byte][id UTF][longitud int][bytes];
+ * termina con [0 byte][cantidad long][crc32 long] para detectar archivos incompletos.
+ */
+public final class ArchivoInstantanea {
+
+    private static final int MAGIA = 0x454C5953; // "ELYS"
+    private static final int VERSION = 1;
+    private static final String MANIFIESTO = "instantanea.actual";
+
+    private ArchivoInstantanea() {
+    }
+
+    /**
+     * Escribe todas las entidades del mapa. El mapa puede seguir recibiendo
+     * escrituras mientras se recorre: lo que cambie después de la rotación
+     * queda en el segmento nuevo de la bitácora y se reproduce encima.
+     * Vuelve cuando el contenido ya está en disco; la entrada del archivo
+     * en su directorio la asegura sincronizarDirectorio.
+     *
+     * @return cantidad de entidades escritas
+     */
+    public static long escribir(Path archivo, Map<String, ?> entidades) throws IOException {
+        CRC32 crc = new CRC32();
+        long cantidad = 0;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream salida = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(canal)), crc))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            for (Map.Entry<String, ?> entrada : entidades.entrySet()) {
+                byte[] datos = SerializadorEntidades.serializar(entrada.getValue());
+                salida.writeByte(1);
+                salida.writeUTF(entrada.getKey());
+                salida.writeInt(datos.length);
+                salida.write(datos);
+                cantidad++;
+            }
+            salida.writeByte(0);
+            salida.writeLong(cantidad);
+            salida.flush();
+            salida.writeLong(crc.getValue());
+            salida.flush();
+            canal.force(true);
+        }
+        return cantidad;
+    }
+
+    /**
+     * Lee la instantánea y entrega cada (id, entidad serializada).
+     * Falla si el archivo está incompleto o su checksum no coincide.
+     */
+    public static void leer(Path archivo, BiConsumer<String, byte[]> consumidor) throws IOException {
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream verificado = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo)), crc);
+             DataInputStream entrada = new DataInputStream(verificado)) {
+
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION) {
+                throw new IOException("Formato de instantánea desconocido: " + archivo);
+            }
+
+            long leidas = 0;
+            while (entrada.readByte() == 1) {
+                String id = entrada.readUTF();
+                byte[] datos = new byte[entrada.readInt()];
+                entrada.readFully(datos);
+                consumidor.accept(id, datos);
+                leidas++;
+            }
+
+            long cantidad = entrada.readLong();
+            long crcCalculado = crc.getValue();
+            long crcEsperado = entrada.readLong();
+            if (cantidad != leidas || crcCalculado != crcEsperado) {
+                throw new IOException("Instantánea corrupta: " + archivo);
+            }
+        }
+    }
+
+    /**
+     * Directorio donde se guardan los archivos de la instantánea de un segmento.
+     */
+    public static Path directorioInstantanea(Path base, long segmento) {
+        return base.resolve(String.format("instantanea-%06d", segmento));
+    }
+
+    /**
+     * Publica la instantánea de forma atómica: hasta que el manifiesto se
+     * reemplaza, el arranque sigue usando la instantánea anterior. Al volver,
+     * el manifiesto nuevo ya está en disco y se pueden borrar los segmentos
+     * que cubre.
+     */
+    public static void publicar(Path base, long segmento) throws IOException {
+        Path temporal = base.resolve(MANIFIESTO + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer contenido = ByteBuffer.wrap(Long.toString(segmento).getBytes(StandardCharsets.UTF_8));
+            while (contenido.hasRemaining()) {
+                canal.write(contenido);
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, base.resolve(MANIFIESTO),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        sincronizarDirectorio(base);
+    }
+
+    /**
+     * Hace fsync del directorio para que las altas, renombres y bajas de
+     * archivos dentro de él sobrevivan a una caída. En Windows no se puede
+     * abrir un directorio como canal; ahí el sistema de archivos ya registra
+     * esos cambios por su cuenta y no se hace nada.
+     */
+    public static void sincronizarDirectorio(Path directorio) throws IOException {
+        if (System.getProperty("os.name", "").startsWith("Windows")) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * @return segmento de la última instantánea publicada, o 0 si no hay ninguna
+     */
+    public static long segmentoPublicado(Path base) throws IOException {
+        Path manifiesto = base.resolve(MANIFIESTO);
+        if (!Files.exists(manifiesto)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(manifiesto).trim());
+    }
+
+    /**
+     * Borra las instantáneas de segmentos anteriores al publicado.
+     */
+    public static void eliminarAnteriores(Path base, long segmento) throws IOException {
+        try (Stream<Path> entradas = Files.list(base)) {
+            for (Path directorio : (Iterable<Path>) entradas::iterator) {
+                String nombre = directorio.getFileName().toString();
+                if (nombre.startsWith("instantanea-") && Files.isDirectory(directorio)
+                        && directorio.compareTo(directorioInstantanea(base, segmento)) < 0) {
+                    try (Stream<Path> archivos = Files.list(directorio)) {
+                        for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                            Files.delete(archivo);
+                        }
+                    }
+                    Files.delete(directorio);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.biblioteca.repositorios.persistencia;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora de escritura anticipada (write-ahead log) de solo anexado.
+ *
+ * Formato de cada marco: [longitud int][crc32 int][cuerpo], y el cuerpo
+ * contiene una o más entradas. Un marco se aplica completo o no se aplica.
+ *
+ * Commit agrupado: los hilos que escriben encolan su marco y esperan;
+ * un único hilo escritor vacía la cola, escribe todo lo acumulado en
+ * secuencia y hace un solo fsync para el lote completo.
+ *
+ * La bitácora se divide en segmentos numerados (bitacora-000001.log, ...).
+ * Tras una instantánea se rota a un segmento nuevo y los anteriores se borran.
+ */
+public class BitacoraEscritura implements AutoCloseable {
+
+    private static final int TAMANO_CABECERA = 8;
+    private static final int MAXIMO_LOTE = 1024;
+    private static final Pattern NOMBRE_SEGMENTO = Pattern.compile("bitacora-(\\d+)\\.log");
+
+    private final Path directorio;
+    private volatile FileChannel canal;
+    private volatile long segmentoActual;
+    private final BlockingQueue<Solicitud> pendientes;
+    private final Thread escritor;
+    private final ReadWriteLock bloqueoRotacion;
+    private volatile boolean abierta;
+    // Error que dejó el archivo con un lote a medias que no se pudo quitar
+    private volatile IOException falla;
+
+    private static final class Solicitud {
+        private final ByteBuffer marco;
+        private final CompletableFuture<Void> confirmacion = new CompletableFuture<>();
+
+        private Solicitud(ByteBuffer marco) {
+            this.marco = marco;
+        }
+    }
+
+    private static final Solicitud FIN = new Solicitud(ByteBuffer.allocate(0));
+
+    private BitacoraEscritura(Path directorio, FileChannel canal, long segmentoActual) {
+        this.directorio = directorio;
+        this.canal = canal;
+        this.segmentoActual = segmentoActual;
+        this.pendientes = new LinkedBlockingQueue<>();
+        this.bloqueoRotacion = new ReentrantReadWriteLock();
+        this.abierta = true;
+        this.escritor = new Thread(this::bucleEscritura, "bitacora-" + directorio.getFileName());
+        this.escritor.setDaemon(true);
+    }
+
+    /**
+     * Abre (o crea) la bitácora del directorio, reproduce en orden los
+     * segmentos desde primerSegmento y la deja lista para anexar.
+     * Si el último marco del último segmento quedó cortado por una caída,
+     * se descarta y el archivo se trunca al último marco válido. Un marco
+     * inválido seguido de otros válidos no es un corte sino corrupción: en
+     * ese caso no se trunca nada y la apertura falla.
+     */
+    public static BitacoraEscritura abrir(Path directorio, long primerSegmento,
+                                          Consumer<EntradaBitacora> reproductor) throws IOException {
+        Files.createDirectories(directorio);
+        List<Long> segmentos = listarSegmentos(directorio).stream()
+                .filter(n -> n >= primerSegmento)
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < segmentos.size() - 1; i++) {
+            try (FileChannel anterior = FileChannel.open(rutaSegmento(directorio, segmentos.get(i)), StandardOpenOption.READ)) {
+                if (reproducir(anterior, reproductor) < anterior.size()) {
+                    throw new IOException("Segmento intermedio corrupto: " + segmentos.get(i));
+                }
+            }
+        }
+
+        long ultimo = segmentos.isEmpty() ? primerSegmento : segmentos.get(segmentos.size() - 1);
+        Path archivo = rutaSegmento(directorio, ultimo);
+        FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long finValido = reproducir(canal, reproductor);
+        if (finValido < canal.size()) {
+            long siguienteValido = buscarMarcoValido(canal, finValido + 1);
+            if (siguienteValido >= 0) {
+                canal.close();
+                throw new IOException("Bitácora " + archivo.getFileName() + " corrupta: marco inválido en la posición "
+                        + finValido + " seguido de un marco válido en " + siguienteValido);
+            }
+            System.out.println("Bitácora " + archivo.getFileName() + ": descartando "
+                    + (canal.size() - finValido) + " bytes incompletos al final");
+            canal.truncate(finValido);
+            canal.force(true);
+        }
+        canal.position(finValido);
+        // El segmento pudo haberse creado recién: su entrada también debe quedar en disco
+        ArchivoInstantanea.sincronizarDirectorio(directorio);
+
+        BitacoraEscritura bitacora = new BitacoraEscritura(directorio, canal, ultimo);
+        bitacora.escritor.start();
+        return bitacora;
+    }
+
+    public long getSegmentoActual() {
+        return segmentoActual;
+    }
+
+    /**
+     * Bloqueo compartido por quienes registran y aplican una escritura.
+     * La rotación toma la parte exclusiva, así ninguna escritura queda a
+     * medias entre el segmento viejo y la memoria mientras se rota.
+     */
+    public Lock bloqueoEscritura() {
+        return bloqueoRotacion.readLock();
+    }
+
+    /**
+     * Cierra el segmento actual y abre el siguiente.
+     * @return número del nuevo segmento (el primero que hay que reproducir
+     *         sobre una instantánea tomada a partir de ahora)
+     */
+    public long rotar() throws IOException {
+        bloqueoRotacion.writeLock().lock();
+        try {
+            long siguiente = segmentoActual + 1;
+            FileChannel nuevo = FileChannel.open(rutaSegmento(directorio, siguiente),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Lo que se confirme en el segmento nuevo no puede perderse con su entrada de directorio
+            ArchivoInstantanea.sincronizarDirectorio(directorio);
+            FileChannel viejo = canal;
+            viejo.force(true);
+            canal = nuevo;
+            segmentoActual = siguiente;
+            viejo.close();
+            return siguiente;
+        } finally {
+            bloqueoRotacion.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Borra los segmentos anteriores al indicado (ya cubiertos por una instantánea).
+     */
+    public void eliminarSegmentosAnteriores(long segmento) throws IOException {
+        for (long numero : listarSegmentos(directorio)) {
+            if (numero < segmento) {
+                Files.deleteIfExists(rutaSegmento(directorio, numero));
+            }
+        }
+    }
+
+    public void registrar(EntradaBitacora entrada) {
+        registrar(List.of(entrada));
+    }
+
+    /**
+     * Anexa las entradas como un único marco atómico y espera a que
+     * el lote que lo contiene quede en disco.
+     */
+    public void registrar(List<EntradaBitacora> entradas) {
+        esperar(encolar(entradas));
+    }
+
+    /**
+     * Anexa una carga grande en marcos de hasta entradasPorMarco entradas.
+     * Los marcos se encolan a medida que se arman, sin esperar a cada uno,
+     * así el escritor los vuelca juntos con pocos fsync. Después se espera a
+     * cada marco en orden y, si quedó en disco, se avisa a alConfirmar con su
+     * primera entrada y su cantidad. Cada marco es atómico por separado, no
+     * la carga completa: si uno falla, los demás encolados se siguen
+     * esperando y no se arman más.
+     *
+     * @throws RuntimeException el primer error, después de avisar de todos
+     *         los marcos que sí se confirmaron
+     */
+    public void registrarEnMarcos(Iterable<EntradaBitacora> entradas, int entradasPorMarco,
+                                  BiConsumer<Integer, Integer> alConfirmar) {
+        List<Solicitud> solicitudes = new ArrayList<>();
+        List<Integer> inicios = new ArrayList<>();
+        List<Integer> cantidades = new ArrayList<>();
+        List<EntradaBitacora> marco = new ArrayList<>(entradasPorMarco);
+        RuntimeException error = null;
+        int armadas = 0;
+        try {
+            for (EntradaBitacora entrada : entradas) {
+                marco.add(entrada);
+                if (marco.size() == entradasPorMarco) {
+                    solicitudes.add(encolar(marco));
+                    inicios.add(armadas);
+                    cantidades.add(marco.size());
+                    armadas += marco.size();
+                    marco.clear();
+                }
+            }
+            if (!marco.isEmpty()) {
+                solicitudes.add(encolar(marco));
+                inicios.add(armadas);
+                cantidades.add(marco.size());
+            }
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        for (int i = 0; i < solicitudes.size(); i++) {
+            try {
+                esperar(solicitudes.get(i));
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                }
+                continue;
+            }
+            alConfirmar.accept(inicios.get(i), cantidades.get(i));
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private Solicitud encolar(List<EntradaBitacora> entradas) {
+        if (!abierta) {
+            throw new IllegalStateException("La bitácora está cerrada");
+        }
+        if (falla != null) {
+            throw new IllegalStateException("La bitácora no acepta escrituras: " + falla.getMessage(), falla);
+        }
+        Solicitud solicitud = new Solicitud(codificarMarco(entradas));
+        pendientes.add(solicitud);
+        return solicitud;
+    }
+
+    private static void esperar(Solicitud solicitud) {
+        try {
+            solicitud.confirmacion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando la escritura en bitácora", e);
+        } catch (ExecutionException e) {
+            throw new UncheckedIOException("Error escribiendo en bitácora",
+                    e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+        }
+    }
+
+    @Override
+    public void close() {
+        cerrar();
+    }
+
+    public void cerrar() {
+        if (!abierta) return;
+        abierta = false;
+        pendientes.add(FIN);
+        try {
+            escritor.join();
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("Error cerrando bitácora: " + e.getMessage());
+        }
+    }
+
+    private void bucleEscritura() {
+        List<Solicitud> lote = new ArrayList<>(MAXIMO_LOTE);
+        boolean terminar = false;
+        while (!terminar) {
+            try {
+                lote.add(pendientes.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            pendientes.drainTo(lote, MAXIMO_LOTE - 1);
+
+            int fin = lote.indexOf(FIN);
+            if (fin >= 0) {
+                terminar = true;
+                lote.remove(fin);
+            }
+
+            IOException previa = falla;
+            if (previa != null) {
+                lote.forEach(s -> s.confirmacion.completeExceptionally(previa));
+                lote.clear();
+                continue;
+            }
+            FileChannel actual = canal;
+            long confirmado = -1;
+            try {
+                confirmado = actual.position();
+                for (Solicitud solicitud : lote) {
+                    while (solicitud.marco.hasRemaining()) {
+                        actual.write(solicitud.marco);
+                    }
+                }
+                actual.force(false);
+                lote.forEach(s -> s.confirmacion.complete(null));
+            } catch (IOException e) {
+                lote.forEach(s -> s.confirmacion.completeExceptionally(e));
+                descartarLote(actual, confirmado, e);
+            }
+            lote.clear();
+        }
+
+        // Escrituras que llegaron después del cierre: no se aceptan
+        pendientes.drainTo(lote);
+        lote.forEach(s -> s.confirmacion.completeExceptionally(new IOException("La bitácora está cerrada")));
+    }
+
+    /**
+     * Quita del archivo lo que alcanzó a escribir un lote fallido, así el
+     * siguiente queda pegado al último marco confirmado y no detrás de uno a
+     * medias (que al reabrir se tomaría por corrupción). Si no se puede, la
+     * bitácora rechaza desde ahora todas las escrituras.
+     */
+    private void descartarLote(FileChannel actual, long confirmado, IOException causa) {
+        if (confirmado < 0) {
+            falla = causa;
+            return;
+        }
+        try {
+            actual.truncate(confirmado);
+            actual.position(confirmado);
+            actual.force(false);
+        } catch (IOException e) {
+            e.addSuppressed(causa);
+            falla = e;
+        }
+    }
+
+    private static Path rutaSegmento(Path directorio, long numero) {
+        return directorio.resolve(String.format("bitacora-%06d.log", numero));
+    }
+
+    private static List<Long> listarSegmentos(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                    .map(a -> NOMBRE_SEGMENTO.matcher(a.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(m -> Long.parseLong(m.group(1)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // ===== Formato binario =====
+
+    static ByteBuffer codificarMarco(List<EntradaBitacora> entradas) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream salida = new DataOutputStream(bytes);
+            salida.writeInt(entradas.size());
+            for (EntradaBitacora entrada : entradas) {
+                salida.writeByte(entrada.getOperacion().ordinal());
+                salida.writeUTF(entrada.getRepositorio());
+                salida.writeUTF(entrada.getId());
+                byte[] datos = entrada.getDatos();
+                salida.writeInt(datos != null ? datos.length : -1);
+                if (datos != null) {
+                    salida.write(datos);
+                }
+            }
+            salida.flush();
+            byte[] cuerpo = bytes.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(cuerpo);
+
+            ByteBuffer marco = ByteBuffer.allocate(TAMANO_CABECERA + cuerpo.length);
+            marco.putInt(cuerpo.length);
+            marco.putInt((int) crc.getValue());
+            marco.put(cuerpo);
+            marco.flip();
+            return marco;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lee marcos desde el inicio del canal y entrega sus entradas.
+     * @return posición del final del último marco válido
+     */
+    static long reproducir(FileChannel canal, Consumer<EntradaBitacora> reproductor) throws IOException {
+        long posicion = 0;
+        long tamano = canal.size();
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+
+        while (posicion + TAMANO_CABECERA <= tamano) {
+            cabecera.clear();
+            leerCompleto(canal, cabecera, posicion);
+            cabecera.flip();
+            int longitud = cabecera.getInt();
+            int crcEsperado = cabecera.getInt();
+
+            if (longitud < 0 || posicion + TAMANO_CABECERA + longitud > tamano) {
+                break; // marco cortado
+            }
+
+            ByteBuffer cuerpo = ByteBuffer.allocate(longitud);
+            leerCompleto(canal, cuerpo, posicion + TAMANO_CABECERA);
+            CRC32 crc = new CRC32();
+            crc.update(cuerpo.array());
+            if ((int) crc.getValue() != crcEsperado) {
+                break; // marco corrupto: quien llama decide si es un corte o no
+            }
+
+            decodificarCuerpo(cuerpo.array()).forEach(reproductor);
+            posicion += TAMANO_CABECERA + longitud;
+        }
+        return posicion;
+    }
+
+    /**
+     * Busca, byte a byte desde la posición dada, una cabecera cuya longitud
+     * quepa en el archivo y cuyo CRC coincida con el cuerpo que la sigue.
+     * Solo se usa al abrir, cuando reproducir se detuvo antes del final.
+     * @return posición del primer marco válido encontrado, o -1 si no hay
+     */
+    static long buscarMarcoValido(FileChannel canal, long desde) throws IOException {
+        long tamano = canal.size();
+        if (desde + TAMANO_CABECERA > tamano) {
+            return -1;
+        }
+        ByteBuffer resto = canal.map(FileChannel.MapMode.READ_ONLY, desde, tamano - desde);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i + TAMANO_CABECERA <= resto.limit(); i++) {
+            int longitud = resto.getInt(i);
+            // Todo cuerpo empieza con la cantidad de entradas: nunca mide menos de 4
+            if (longitud < Integer.BYTES || longitud > resto.limit() - i - TAMANO_CABECERA) {
+                continue;
+            }
+            crc.reset();
+            crc.update(resto.slice(i + TAMANO_CABECERA, longitud));
+            if ((int) crc.getValue() == resto.getInt(i + Integer.BYTES)) {
+                return desde + i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<EntradaBitacora> decodificarCuerpo(byte[] cuerpo) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(cuerpo));
+        int cantidad = entrada.readInt();
+        List<EntradaBitacora> entradas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            EntradaBitacora.Operacion operacion = EntradaBitacora.Operacion.values()[entrada.readByte()];
+            String repositorio = entrada.readUTF();
+            String id = entrada.readUTF();
+            int longitud = entrada.readInt();
+            byte[] datos = null;
+            if (longitud >= 0) {
+                datos = new byte[longitud];
+                entrada.readFully(datos);
+            }
+            entradas.add(operacion == EntradaBitacora.Operacion.GUARDAR
+                    ? EntradaBitacora.guardar(repositorio, id, datos)
+                    : EntradaBitacora.eliminar(repositorio, id));
+        }
+        return entradas;
+    }
+
+    private static void leerCompleto(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            int leidos = canal.read(destino, posicion + destino.position());
+            if (leidos < 0) {
+                throw new IOException("Fin de archivo inesperado en la bitácora");
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.biblioteca.repositorios.persistencia;
+
+/**
+ * Registro individual de la bitácora: una escritura sobre un repositorio.
+ * Los datos son la entidad serializada (nulos en una eliminación).
+ */
+public final class EntradaBitacora {
+
+    public enum Operacion {
+        GUARDAR,
+        ELIMINAR
+    }
+
+    private final Operacion operacion;
+    private final String repositorio;
+    private final String id;
+    private final byte[] datos;
+
+    private EntradaBitacora(Operacion operacion, String repositorio, String id, byte[] datos) {
+        this.operacion = operacion;
+        this.repositorio = repositorio;
+        this.id = id;
+        this.datos = datos;
+    }
+
+    public static EntradaBitacora guardar(String repositorio, String id, byte[] datos) {
+        return new EntradaBitacora(Operacion.GUARDAR, repositorio, id, datos);
+    }
+
+    public static EntradaBitacora eliminar(String repositorio, String id) {
+        return new EntradaBitacora(Operacion.ELIMINAR, repositorio, id, null);
+    }
+
+    public Operacion getOperacion() { return operacion; }
+    public String getRepositorio() { return repositorio; }
+    public String getId() { return id; }
+    public byte[] getDatos() { return datos; }
+}
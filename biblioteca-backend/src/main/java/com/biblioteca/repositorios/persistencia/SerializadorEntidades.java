@@ -0,0 +1,37 @@
+package com.biblioteca.repositorios.persistencia;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Convierte entidades a bytes y viceversa con la serialización estándar de Java.
+ */
+public final class SerializadorEntidades {
+
+    private SerializadorEntidades() {
+    }
+
+    public static byte[] serializar(Object entidad) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream salida = new ObjectOutputStream(bytes)) {
+            salida.writeObject(entidad);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo serializar la entidad", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Object deserializar(byte[] datos) {
+        try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(datos))) {
+            return entrada.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo deserializar la entidad", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Clase de entidad desconocida: " + e.getMessage(), e);
+        }
+    }
+}
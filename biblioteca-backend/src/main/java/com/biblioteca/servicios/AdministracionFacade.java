@@ -31,6 +31,11 @@ public class AdministracionFacade implements IAdministracionFacade {
         return repoMaterial.agregar(material);
     }
 
+    @Override
+    public Material obtenerMaterialParaEditar(String id) {
+        return repoMaterial.obtenerCopia(id);
+    }
+
     @Override
     public Resultado actualizarMaterial(Material material) {
         return repoMaterial.actualizar(material);
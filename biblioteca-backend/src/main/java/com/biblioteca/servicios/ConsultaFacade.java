@@ -1,7 +1,12 @@
 package com.biblioteca.servicios;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Material;
@@ -14,29 +19,37 @@ import com.biblioteca.dominio.enumeraciones.EstadoMulta;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
+import com.biblioteca.dominio.objetosvalor.BusquedaCatalogo;
+import com.biblioteca.dominio.objetosvalor.Pagina;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.IRepositorioMaterial;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
+import com.biblioteca.servicios.interfaces.IAutocompletadoService;
 import com.biblioteca.servicios.interfaces.IConsultaFacade;
 import com.biblioteca.servicios.interfaces.IDisponibilidadService;
 import com.biblioteca.servicios.interfaces.IServicioReportes;
 
 public class ConsultaFacade implements IConsultaFacade {
 
-    private final IRepositorio<Material> repoMaterial;
+    private final IRepositorioMaterial repoMaterial;
     private final IRepositorio<Usuario> repoUsuario;
     private final IRepositorio<Prestamo> repoPrestamo;
     private final IRepositorio<Reserva> repoReserva;
     private final IRepositorio<Multa> repoMulta;
     private final IDisponibilidadService disponibilidadService;
     private final IServicioReportes servicioReportes;
+    private final IAutocompletadoService autocompletado;
 
     public ConsultaFacade(
-            IRepositorio<Material> repoMaterial,
+            IRepositorioMaterial repoMaterial,
             IRepositorio<Usuario> repoUsuario,
             IRepositorio<Prestamo> repoPrestamo,
             IRepositorio<Reserva> repoReserva,
             IRepositorio<Multa> repoMulta,
             IDisponibilidadService disponibilidadService,
-            IServicioReportes servicioReportes) {
+            IServicioReportes servicioReportes,
+            IAutocompletadoService autocompletado) {
         this.repoMaterial = repoMaterial;
         this.repoUsuario = repoUsuario;
         this.repoPrestamo = repoPrestamo;
@@ -44,22 +57,54 @@ public class ConsultaFacade implements IConsultaFacade {
         this.repoMulta = repoMulta;
         this.disponibilidadService = disponibilidadService;
         this.servicioReportes = servicioReportes;
+        this.autocompletado = autocompletado;
     }
 
     @Override
-    public List<Material> listarMateriales() {
-        return repoMaterial.obtenerTodos();
+    public Pagina<Material> listarMateriales(String cursor, int limite) {
+        return repoMaterial.obtenerPagina(cursor, limite);
     }
 
     @Override
     public List<Material> buscarMateriales(String criterio) {
-        String busqueda = criterio.toLowerCase();
-        return repoMaterial.obtenerTodos().stream()
-                .filter(m ->
-                        m.getId().toLowerCase().contains(busqueda) ||
-                        m.getTitulo().toLowerCase().contains(busqueda) ||
-                        m.getAutor().toLowerCase().contains(busqueda))
-                .collect(Collectors.toList());
+        Material porId = repoMaterial.obtenerPorId(criterio.trim());
+        if (porId != null) {
+            return List.of(porId);
+        }
+        List<Material> resultados = repoMaterial.buscarTexto(criterio, LIMITE_BUSQUEDA);
+        return resultados.isEmpty() ? respaldos(criterio, LIMITE_BUSQUEDA) : resultados;
+    }
+
+    @Override
+    public BusquedaCatalogo buscarMaterialesConFacetas(String criterio, int limite) {
+        Material porId = repoMaterial.obtenerPorId(criterio.trim());
+        if (porId != null) {
+            return BusquedaCatalogo.de(List.of(porId));
+        }
+        BusquedaCatalogo busqueda = repoMaterial.buscarTextoConFacetas(criterio, limite);
+        if (!busqueda.estaVacia()) {
+            return busqueda;
+        }
+        // Los respaldos ya vienen acotados: se cuenta sobre lo que devuelven
+        return BusquedaCatalogo.de(respaldos(criterio, limite));
+    }
+
+    /**
+     * Cuando ninguna palabra completa coincide: el criterio como texto a
+     * medio escribir, después como parte de un ID, título o autor, y por
+     * último como texto con errores de tipeo.
+     */
+    private List<Material> respaldos(String criterio, int limite) {
+        List<Material> resultados = autocompletarMateriales(criterio, limite);
+        if (resultados.isEmpty()) {
+            resultados = repoMaterial.buscarSubcadena(criterio, limite);
+        }
+        return resultados.isEmpty() ? repoMaterial.buscarTextoAproximado(criterio, limite) : resultados;
+    }
+
+    @Override
+    public List<Material> autocompletarMateriales(String prefijo, int limite) {
+        return autocompletado.completarMateriales(prefijo, limite);
     }
 
     @Override
@@ -67,18 +112,19 @@ public class ConsultaFacade implements IConsultaFacade {
         return repoMaterial.obtenerPorId(id);
     }
 
+    @Override
+    public Map<String, Material> obtenerMaterialesPorIds(Collection<String> ids) {
+        return repoMaterial.obtenerPorIds(ids);
+    }
+
     @Override
     public List<Material> obtenerMaterialesDisponibles() {
-        return repoMaterial.obtenerTodos().stream()
-                .filter(m -> m.getEstado() == EstadoMaterial.DISPONIBLE)
-                .collect(Collectors.toList());
+        return repoMaterial.buscar(Criterio.donde(Campos.MATERIAL_ESTADO, EstadoMaterial.DISPONIBLE)).getElementos();
     }
 
     @Override
     public List<Material> obtenerMaterialesPrestados() {
-        return repoMaterial.obtenerTodos().stream()
-                .filter(m -> m.getEstado() == EstadoMaterial.PRESTADO)
-                .collect(Collectors.toList());
+        return repoMaterial.buscar(Criterio.donde(Campos.MATERIAL_ESTADO, EstadoMaterial.PRESTADO)).getElementos();
     }
 
     @Override
@@ -97,19 +143,44 @@ public class ConsultaFacade implements IConsultaFacade {
     }
 
     @Override
-    public List<Usuario> listarUsuarios() {
-        return repoUsuario.obtenerTodos();
+    public Pagina<Usuario> listarUsuarios(String cursor, int limite) {
+        return repoUsuario.obtenerPagina(cursor, limite);
     }
 
     @Override
     public List<Usuario> buscarUsuarios(String criterio) {
-        String busqueda = criterio.toLowerCase();
-        return repoUsuario.obtenerTodos().stream()
-                .filter(u ->
-                        u.getId().toLowerCase().contains(busqueda) ||
-                        u.getNombre().toLowerCase().contains(busqueda) ||
-                        u.getEmail().toLowerCase().contains(busqueda))
-                .collect(Collectors.toList());
+        Usuario porId = repoUsuario.obtenerPorId(criterio.trim());
+        if (porId != null) {
+            return List.of(porId);
+        }
+        List<Usuario> resultados = new ArrayList<>(autocompletarUsuarios(criterio, LIMITE_BUSQUEDA));
+        // El índice no ve partes de palabras ni de IDs, ni a los que descartó por memoria
+        if (resultados.size() < LIMITE_BUSQUEDA) {
+            completarPorSubcadena(resultados, criterio);
+        }
+        return resultados.isEmpty() ? autocompletado.completarUsuariosAproximado(criterio, LIMITE_BUSQUEDA) : resultados;
+    }
+
+    /**
+     * Agrega, hasta LIMITE_BUSQUEDA, los usuarios cuyo ID, nombre o email
+     * contiene el criterio y que todavía no están en la lista.
+     */
+    private void completarPorSubcadena(List<Usuario> resultados, String criterio) {
+        String busqueda = criterio.trim().toLowerCase();
+        if (busqueda.isEmpty()) {
+            return;
+        }
+        Set<String> vistos = resultados.stream().map(Usuario::getId).collect(Collectors.toSet());
+        repoUsuario.buscar(Criterio.<Usuario>todos().contiene(Campos.USUARIO_TEXTO, busqueda))
+                .getElementos().stream()
+                .filter(u -> !vistos.contains(u.getId()))
+                .limit(LIMITE_BUSQUEDA - resultados.size())
+                .forEach(resultados::add);
+    }
+
+    @Override
+    public List<Usuario> autocompletarUsuarios(String prefijo, int limite) {
+        return autocompletado.completarUsuarios(prefijo, limite);
     }
 
     @Override
@@ -119,42 +190,35 @@ public class ConsultaFacade implements IConsultaFacade {
 
     @Override
     public List<Usuario> obtenerUsuariosActivos() {
-        return repoUsuario.obtenerTodos().stream()
-                .filter(u -> u.getEstado() == EstadoUsuario.ACTIVO)
-                .collect(Collectors.toList());
+        return repoUsuario.buscar(Criterio.donde(Campos.USUARIO_ESTADO, EstadoUsuario.ACTIVO)).getElementos();
     }
 
     @Override
     public List<Usuario> obtenerUsuariosBloqueados() {
-        return repoUsuario.obtenerTodos().stream()
-                .filter(u -> u.getEstado() == EstadoUsuario.BLOQUEADO_MULTA ||
-                             u.getEstado() == EstadoUsuario.BLOQUEADO_PERDIDA)
-                .collect(Collectors.toList());
+        return repoUsuario.buscar(Criterio.<Usuario>todos().en(Campos.USUARIO_ESTADO,
+                List.of(EstadoUsuario.BLOQUEADO_MULTA, EstadoUsuario.BLOQUEADO_PERDIDA))).getElementos();
     }
 
     @Override
     public List<Prestamo> listarPrestamosActivos() {
-        return repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-                .collect(Collectors.toList());
+        return repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)).getElementos();
     }
 
     @Override
     public List<Prestamo> obtenerPrestamosVencidos() {
         LocalDateTime ahora = LocalDateTime.now();
-        return repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        return repoPrestamo.buscar(
+                    Criterio.donde(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)
+                        .menorQue(Campos.PRESTAMO_FECHA_ESPERADA, ahora))
+                .getElementos().stream()
                 .filter(p -> p.getFechaDevolucionReal() == null)
-                .filter(p -> p.getFechaDevolucionEsperada().isBefore(ahora))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Prestamo> obtenerPrestamosPorUsuario(String idUsuario) {
-        return repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getIdUsuario().equals(idUsuario))
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-                .collect(Collectors.toList());
+        return repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)).getElementos();
     }
 
     @Override
@@ -165,47 +229,39 @@ public class ConsultaFacade implements IConsultaFacade {
     @Override
     public List<Reserva> listarReservasActivas() {
         LocalDateTime ahora = LocalDateTime.now();
-        return repoReserva.obtenerTodos().stream()
-                .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(r -> r.getFechaExpiracion().isAfter(ahora))
-                .collect(Collectors.toList());
+        return repoReserva.buscar(Criterio.donde(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)
+                .mayorQue(Campos.RESERVA_EXPIRACION, ahora)).getElementos();
     }
 
     @Override
     public List<Reserva> obtenerReservasPorUsuario(String idUsuario) {
-        return repoReserva.obtenerTodos().stream()
-                .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(r -> r.getIdUsuario().equals(idUsuario))
-                .collect(Collectors.toList());
+        return repoReserva.buscar(Criterio.donde(Campos.RESERVA_USUARIO, idUsuario)
+                .y(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)).getElementos();
     }
 
     @Override
     public List<Reserva> obtenerReservasPorMaterial(String idMaterial) {
-        return repoReserva.obtenerTodos().stream()
-                .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(r -> r.getIdMaterial().equals(idMaterial))
+        return repoReserva.buscar(Criterio.donde(Campos.RESERVA_MATERIAL, idMaterial)
+                .y(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)).getElementos().stream()
+                .sorted(Comparator.comparingLong(Reserva::getSecuenciaCola))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<Multa> listarMultasPendientes() {
-        return repoMulta.obtenerTodos().stream()
-                .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-                .collect(Collectors.toList());
+        return repoMulta.buscar(Criterio.donde(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE)).getElementos();
     }
 
     @Override
     public List<Multa> obtenerMultasPorUsuario(String idUsuario) {
-        return repoMulta.obtenerTodos().stream()
-                .filter(m -> m.getIdUsuario().equals(idUsuario))
-                .collect(Collectors.toList());
+        return repoMulta.buscar(Criterio.donde(Campos.MULTA_USUARIO, idUsuario)).getElementos();
     }
 
     @Override
     public List<Prestamo> verHistorialDevoluciones() {
-        return repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getFechaDevolucionReal() != null)
-                .collect(Collectors.toList());
+        // Toda fecha de devolución real: el índice ordenado solo tiene los devueltos
+        return repoPrestamo.buscar(Criterio.<Prestamo>todos()
+                .mayorQue(Campos.PRESTAMO_FECHA_REAL, LocalDateTime.MIN)).getElementos();
     }
 
     @Override
@@ -233,4 +289,4 @@ public class ConsultaFacade implements IConsultaFacade {
         return servicioReportes.generarReporteCompleto();
     }
 }
-
+
@@ -25,6 +25,7 @@ public class CalculadorMultaPorDano implements ICalculadorMulta {
             contexto.getIdUsuario(),
             contexto.getEvaluacion().getDanos()
         );
+        multa.setCalculadorCosto(calculadorCosto);
         
         return multa;
     }
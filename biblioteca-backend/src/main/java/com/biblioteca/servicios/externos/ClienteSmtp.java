@@ -0,0 +1,84 @@
+package com.biblioteca.servicios.externos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Envío por SMTP simple, una conexión por correo. Cualquier respuesta
+ * inesperada del servidor se informa como excepción para que el despacho
+ * lo cuente como fallo y el mensaje se reintente.
+ */
+public class ClienteSmtp extends SistemaEmailExterno {
+
+    private static final int TIEMPO_ESPERA_MS = 10_000;
+    private static final String REMITENTE = "biblioteca@localhost";
+
+    private final String host;
+    private final int puerto;
+
+    public ClienteSmtp(String host, int puerto) {
+        this.host = host;
+        this.puerto = puerto;
+    }
+
+    @Override
+    public void enviarCorreo(String destinatario, String asunto, String cuerpo) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, puerto), TIEMPO_ESPERA_MS);
+            socket.setSoTimeout(TIEMPO_ESPERA_MS);
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer salida = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            esperar(entrada, 220);
+            comando(salida, entrada, "EHLO biblioteca", 250);
+            comando(salida, entrada, "MAIL FROM:<" + REMITENTE + ">", 250);
+            comando(salida, entrada, "RCPT TO:<" + destinatario + ">", 250);
+            comando(salida, entrada, "DATA", 354);
+            StringBuilder datos = new StringBuilder()
+                    .append("From: ").append(REMITENTE).append("\r\n")
+                    .append("To: ").append(destinatario).append("\r\n")
+                    .append("Subject: ").append(asunto).append("\r\n\r\n");
+            for (String linea : cuerpo.split("\r?\n", -1)) {
+                // Una línea que empieza con punto se duplica (RFC 5321, 4.5.2)
+                datos.append(linea.startsWith(".") ? "." : "").append(linea).append("\r\n");
+            }
+            salida.write(datos.toString());
+            comando(salida, entrada, ".", 250);
+            comando(salida, entrada, "QUIT", 221);
+        } catch (IOException e) {
+            throw new UncheckedIOException("SMTP " + host + ":" + puerto + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void comando(Writer salida, BufferedReader entrada, String comando, int esperado)
+            throws IOException {
+        salida.write(comando + "\r\n");
+        salida.flush();
+        esperar(entrada, esperado);
+    }
+
+    /**
+     * Lee la respuesta completa (las líneas "250-..." continúan) y compara
+     * el código.
+     */
+    private static void esperar(BufferedReader entrada, int esperado) throws IOException {
+        String linea;
+        do {
+            linea = entrada.readLine();
+            if (linea == null || linea.length() < 3) {
+                throw new IOException("respuesta incompleta del servidor");
+            }
+        } while (linea.length() > 3 && linea.charAt(3) == '-');
+        if (!linea.startsWith(String.valueOf(esperado))) {
+            throw new IOException("se esperaba " + esperado + " y llegó: " + linea);
+        }
+    }
+}
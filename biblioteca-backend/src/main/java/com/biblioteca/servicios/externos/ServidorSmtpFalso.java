@@ -0,0 +1,129 @@
+package com.biblioteca.servicios.externos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor SMTP que acepta todo y no entrega nada, para medir el
+ * rendimiento del despacho de notificaciones sin un servidor real.
+ * Uso: java ... ServidorSmtpFalso [puerto] y arrancar la biblioteca con
+ * -Dbiblioteca.smtp=localhost:puerto.
+ */
+public class ServidorSmtpFalso implements AutoCloseable {
+
+    private final ServerSocket socket;
+    private final ExecutorService atencion;
+    private final Thread aceptador;
+    private final LongAdder conexiones = new LongAdder();
+    private final LongAdder mensajes = new LongAdder();
+
+    public ServidorSmtpFalso(int puerto) throws IOException {
+        this.socket = new ServerSocket(puerto);
+        this.atencion = Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "smtp-falso");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.aceptador = new Thread(this::aceptar, "smtp-falso-aceptador");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    public int getPuerto() {
+        return socket.getLocalPort();
+    }
+
+    public long getConexiones() {
+        return conexiones.sum();
+    }
+
+    public long getMensajes() {
+        return mensajes.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        atencion.shutdownNow();
+    }
+
+    private void aceptar() {
+        while (!socket.isClosed()) {
+            try {
+                Socket cliente = socket.accept();
+                conexiones.increment();
+                atencion.execute(() -> atender(cliente));
+            } catch (SocketException e) {
+                return; // close()
+            } catch (IOException e) {
+                System.err.println("SMTP falso: " + e.getMessage());
+            }
+        }
+    }
+
+    private void atender(Socket cliente) {
+        try (cliente) {
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(cliente.getInputStream(), StandardCharsets.UTF_8));
+            Writer salida = new OutputStreamWriter(cliente.getOutputStream(), StandardCharsets.UTF_8);
+            responder(salida, "220 smtp-falso listo");
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                String verbo = linea.length() >= 4 ? linea.substring(0, 4).toUpperCase(Locale.ROOT) : linea;
+                switch (verbo) {
+                    case "EHLO", "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> responder(salida, "250 OK");
+                    case "DATA" -> {
+                        responder(salida, "354 terminar con <CRLF>.<CRLF>");
+                        while ((linea = entrada.readLine()) != null && !linea.equals(".")) {
+                            // el contenido se descarta
+                        }
+                        mensajes.increment();
+                        responder(salida, "250 OK aceptado");
+                    }
+                    case "QUIT" -> {
+                        responder(salida, "221 adiós");
+                        return;
+                    }
+                    default -> responder(salida, "502 comando no implementado");
+                }
+            }
+        } catch (IOException e) {
+            // el cliente cortó la conexión
+        }
+    }
+
+    private static void responder(Writer salida, String respuesta) throws IOException {
+        salida.write(respuesta + "\r\n");
+        salida.flush();
+    }
+
+    /**
+     * Arranca el servidor e imprime cada segundo los mensajes aceptados por
+     * segundo, hasta que se corte el proceso.
+     */
+    public static void main(String[] args) throws Exception {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : 2525;
+        try (ServidorSmtpFalso servidor = new ServidorSmtpFalso(puerto)) {
+            System.out.println("SMTP falso escuchando en el puerto " + servidor.getPuerto());
+            long anteriores = 0;
+            while (true) {
+                Thread.sleep(1_000);
+                long total = servidor.getMensajes();
+                System.out.println((total - anteriores) + " mensajes/s (" + total + " en total, "
+                        + servidor.getConexiones() + " conexiones)");
+                anteriores = total;
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.entidades.Usuario;
+import com.biblioteca.repositorios.IObservadorRepositorio;
+import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.busqueda.IndiceAutocompletado;
+import com.biblioteca.servicios.interfaces.IAutocompletadoService;
+
+/**
+ * Autocompletado sobre índices de prefijos que se mantienen observando los
+ * repositorios. La popularidad es la cantidad de préstamos del material o
+ * del usuario, contada observando el repositorio de préstamos.
+ *
+ * El presupuesto de memoria (-Dbiblioteca.autocompletado.memoriaMb) se
+ * reparte por mitades entre materiales y usuarios.
+ */
+public class AutocompletadoService implements IAutocompletadoService {
+
+    private static final long PRESUPUESTO_BYTES = Long.getLong("biblioteca.autocompletado.memoriaMb", 64) << 20;
+    private static final int RESULTADOS_POR_PREFIJO = 10;
+
+    private final IRepositorio<Material> repoMaterial;
+    private final IRepositorio<Usuario> repoUsuario;
+    private final IndiceAutocompletado<Material> materiales;
+    private final IndiceAutocompletado<Usuario> usuarios;
+
+    public AutocompletadoService(
+            IRepositorio<Material> repoMaterial,
+            IRepositorio<Usuario> repoUsuario,
+            IRepositorio<Prestamo> repoPrestamo) {
+        this.repoMaterial = repoMaterial;
+        this.repoUsuario = repoUsuario;
+        this.materiales = new IndiceAutocompletado<>(
+                List.of(Material::getTitulo, Material::getAutor),
+                RESULTADOS_POR_PREFIJO, PRESUPUESTO_BYTES / 2);
+        this.usuarios = new IndiceAutocompletado<>(
+                List.of(Usuario::getNombre, Usuario::getEmail),
+                RESULTADOS_POR_PREFIJO, PRESUPUESTO_BYTES / 2);
+
+        repoMaterial.agregarObservador(materiales);
+        repoUsuario.agregarObservador(usuarios);
+        repoPrestamo.agregarObservador(new ContadorPrestamos());
+    }
+
+    @Override
+    public List<Material> completarMateriales(String prefijo, int limite) {
+        return resolver(repoMaterial, materiales.completar(prefijo, limite));
+    }
+
+    @Override
+    public List<Usuario> completarUsuarios(String prefijo, int limite) {
+        return resolver(repoUsuario, usuarios.completar(prefijo, limite));
+    }
+
+    @Override
+    public List<Usuario> completarUsuariosAproximado(String prefijo, int limite) {
+        return resolver(repoUsuario, usuarios.completarAproximado(prefijo, limite));
+    }
+
+    @Override
+    public Map<String, Long> getMetricas() {
+        Map<String, Long> metricas = new LinkedHashMap<>();
+        materiales.getMetricas().forEach((clave, valor) -> metricas.put("materiales." + clave, valor));
+        usuarios.getMetricas().forEach((clave, valor) -> metricas.put("usuarios." + clave, valor));
+        return metricas;
+    }
+
+    /**
+     * Las sugerencias en el orden del índice, pidiendo las entidades de una vez.
+     */
+    private static <T> List<T> resolver(IRepositorio<T> repositorio, List<String> ids) {
+        Map<String, T> entidades = repositorio.obtenerPorIds(ids);
+        return ids.stream()
+                .map(entidades::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cuenta cada préstamo una vez (el observador también ve las
+     * actualizaciones) por material y por usuario.
+     */
+    private final class ContadorPrestamos implements IObservadorRepositorio<Prestamo> {
+        private final Set<String> contados = ConcurrentHashMap.newKeySet();
+        private final Map<String, Long> porMaterial = new ConcurrentHashMap<>();
+        private final Map<String, Long> porUsuario = new ConcurrentHashMap<>();
+
+        @Override
+        public void alGuardar(String id, Prestamo prestamo) {
+            if (contados.add(id)) {
+                sumar(prestamo, 1);
+            }
+        }
+
+        @Override
+        public void alEliminar(String id, Prestamo prestamo) {
+            if (contados.remove(id)) {
+                sumar(prestamo, -1);
+            }
+        }
+
+        private void sumar(Prestamo prestamo, long delta) {
+            materiales.actualizarPopularidad(prestamo.getIdMaterial(),
+                    porMaterial.merge(prestamo.getIdMaterial(), delta, Long::sum));
+            usuarios.actualizarPopularidad(prestamo.getIdUsuario(),
+                    porUsuario.merge(prestamo.getIdUsuario(), delta, Long::sum));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.biblioteca.servicios.implementaciones;
+
+import com.biblioteca.dominio.entidades.MensajeSalida;
+import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.servicios.interfaces.INotificacionService;
+
+/**
+ * Notificación vía bandeja de salida (patrón Outbox).
+ *
+ * No envía nada: guarda el mensaje como una entidad más, así dentro de una
+ * unidad de trabajo queda confirmado junto con el cambio que lo origina.
+ * RelayBandejaSalida se encarga de entregarlo después.
+ */
+public class BandejaSalidaNotificacionService implements INotificacionService {
+
+    private final IRepositorio<MensajeSalida> repoMensajeSalida;
+
+    public BandejaSalidaNotificacionService(IRepositorio<MensajeSalida> repoMensajeSalida) {
+        this.repoMensajeSalida = repoMensajeSalida;
+    }
+
+    @Override
+    public Resultado enviarNotificacion(String idUsuario, String mensaje) {
+        try {
+            Resultado resultado = repoMensajeSalida.agregar(new MensajeSalida(idUsuario, mensaje));
+            if (!resultado.getExito()) {
+                return resultado;
+            }
+            return Resultado.Exitoso("Notificación registrada para envío", resultado.getData());
+
+        } catch (Exception e) {
+            return Resultado.Fallido("Error al registrar notificación: " + e.getMessage());
+        }
+    }
+}
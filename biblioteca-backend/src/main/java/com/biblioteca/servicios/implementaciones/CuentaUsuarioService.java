@@ -0,0 +1,171 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.biblioteca.dominio.entidades.Multa;
+import com.biblioteca.dominio.entidades.MultaPorPerdida;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.enumeraciones.EstadoMulta;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.objetosvalor.CuentaUsuario;
+import com.biblioteca.repositorios.IObservadorRepositorio;
+import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.servicios.interfaces.ICuentaUsuarioService;
+
+/**
+ * Mantiene incrementalmente los totales por usuario observando
+ * los repositorios de multas y préstamos.
+ *
+ * Las entidades se modifican en sitio antes de guardarse, por eso se
+ * recuerda el último aporte de cada multa/préstamo: al volver a guardarse
+ * se resta lo anterior y se suma lo nuevo.
+ */
+public class CuentaUsuarioService implements ICuentaUsuarioService {
+
+    private final Map<String, Acumulado> cuentas = new ConcurrentHashMap<>();
+    private final Map<String, AporteMulta> aportesMulta = new ConcurrentHashMap<>();
+    private final Map<String, AportePrestamo> aportesPrestamo = new ConcurrentHashMap<>();
+
+    public CuentaUsuarioService(IRepositorio<Multa> repoMulta, IRepositorio<Prestamo> repoPrestamo) {
+        repoMulta.agregarObservador(new IObservadorRepositorio<>() {
+            @Override
+            public void alGuardar(String id, Multa multa) {
+                aportesMulta.compute(id, (k, anterior) -> reemplazar(anterior, aporteDe(multa)));
+            }
+
+            @Override
+            public void alEliminar(String id, Multa multa) {
+                aportesMulta.compute(id, (k, anterior) -> reemplazar(anterior, null));
+            }
+        });
+        repoPrestamo.agregarObservador(new IObservadorRepositorio<>() {
+            @Override
+            public void alGuardar(String id, Prestamo prestamo) {
+                aportesPrestamo.compute(id, (k, anterior) -> reemplazar(id, anterior, aporteDe(prestamo)));
+            }
+
+            @Override
+            public void alEliminar(String id, Prestamo prestamo) {
+                aportesPrestamo.compute(id, (k, anterior) -> reemplazar(id, anterior, null));
+            }
+        });
+    }
+
+    @Override
+    public CuentaUsuario obtenerCuenta(String idUsuario) {
+        Acumulado acumulado = idUsuario != null ? cuentas.get(idUsuario) : null;
+        return acumulado != null ? acumulado.foto(idUsuario) : CuentaUsuario.vacia(idUsuario);
+    }
+
+    // ==================== MULTAS ====================
+
+    private static AporteMulta aporteDe(Multa multa) {
+        if (multa.getEstado() != EstadoMulta.PENDIENTE || multa.getIdUsuario() == null) {
+            return null;
+        }
+        return new AporteMulta(multa.getIdUsuario(),
+                BigDecimal.valueOf(multa.calcularMontoTotal()),
+                multa instanceof MultaPorPerdida);
+    }
+
+    private AporteMulta reemplazar(AporteMulta anterior, AporteMulta nuevo) {
+        if (anterior != null) {
+            acumulado(anterior.idUsuario).quitarMulta(anterior);
+        }
+        if (nuevo != null) {
+            acumulado(nuevo.idUsuario).sumarMulta(nuevo);
+        }
+        return nuevo;
+    }
+
+    // ==================== PRÉSTAMOS ====================
+
+    private static AportePrestamo aporteDe(Prestamo prestamo) {
+        if (prestamo.getEstado() != EstadoTransaccion.ACTIVA
+                || prestamo.getFechaDevolucionReal() != null
+                || prestamo.getFechaDevolucionEsperada() == null
+                || prestamo.getIdUsuario() == null) {
+            return null;
+        }
+        return new AportePrestamo(prestamo.getIdUsuario(), prestamo.getFechaDevolucionEsperada());
+    }
+
+    private AportePrestamo reemplazar(String idPrestamo, AportePrestamo anterior, AportePrestamo nuevo) {
+        if (anterior != null) {
+            acumulado(anterior.idUsuario).quitarPrestamo(idPrestamo);
+        }
+        if (nuevo != null) {
+            acumulado(nuevo.idUsuario).sumarPrestamo(idPrestamo, nuevo.vencimiento);
+        }
+        return nuevo;
+    }
+
+    private Acumulado acumulado(String idUsuario) {
+        return cuentas.computeIfAbsent(idUsuario, k -> new Acumulado());
+    }
+
+    private static final class AporteMulta {
+        final String idUsuario;
+        final BigDecimal monto;
+        final boolean porPerdida;
+
+        AporteMulta(String idUsuario, BigDecimal monto, boolean porPerdida) {
+            this.idUsuario = idUsuario;
+            this.monto = monto;
+            this.porPerdida = porPerdida;
+        }
+    }
+
+    private static final class AportePrestamo {
+        final String idUsuario;
+        final LocalDateTime vencimiento;
+
+        AportePrestamo(String idUsuario, LocalDateTime vencimiento) {
+            this.idUsuario = idUsuario;
+            this.vencimiento = vencimiento;
+        }
+    }
+
+    /**
+     * Estado mutable de una cuenta; pocas entradas por usuario.
+     */
+    private static final class Acumulado {
+        private BigDecimal montoMultas = BigDecimal.ZERO;
+        private int cantidadMultas;
+        private int multasPorPerdida;
+        private final Map<String, LocalDateTime> vencimientos = new HashMap<>();
+
+        synchronized void sumarMulta(AporteMulta aporte) {
+            montoMultas = montoMultas.add(aporte.monto);
+            cantidadMultas++;
+            if (aporte.porPerdida) multasPorPerdida++;
+        }
+
+        synchronized void quitarMulta(AporteMulta aporte) {
+            montoMultas = montoMultas.subtract(aporte.monto);
+            cantidadMultas--;
+            if (aporte.porPerdida) multasPorPerdida--;
+        }
+
+        synchronized void sumarPrestamo(String idPrestamo, LocalDateTime vencimiento) {
+            vencimientos.put(idPrestamo, vencimiento);
+        }
+
+        synchronized void quitarPrestamo(String idPrestamo) {
+            vencimientos.remove(idPrestamo);
+        }
+
+        synchronized CuentaUsuario foto(String idUsuario) {
+            List<LocalDateTime> ordenados = new ArrayList<>(vencimientos.values());
+            Collections.sort(ordenados);
+            return new CuentaUsuario(idUsuario, montoMultas, cantidadMultas, multasPorPerdida > 0, ordenados);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.servicios.interfaces.INotificacionService;
+
+/**
+ * Despacho asíncrono y por tandas hacia un INotificacionService.
+ *
+ * despachar solo encola y devuelve un futuro que se completa con el
+ * resultado de la entrega. Unos hilos vacían la cola por tandas y agrupan
+ * los mensajes por destinatario: un solo enviarLote por usuario. La cola es
+ * acotada; si está llena, despachar devuelve null y quien llama conserva el
+ * mensaje para más tarde (contrapresión sin perder nada).
+ */
+public class DespachadorNotificaciones implements AutoCloseable {
+
+    private static final int CAPACIDAD = Integer.getInteger("biblioteca.notificaciones.capacidad", 10_000);
+    private static final int HILOS = Integer.getInteger("biblioteca.notificaciones.hilos", 2);
+    private static final int MAXIMO_POR_TANDA = 256;
+    private static final long ESPERA_CIERRE_MS = 5_000;
+
+    private final INotificacionService destino;
+    private final BlockingQueue<Pendiente> cola;
+    private final List<Thread> despachadores;
+    private volatile boolean cerrado;
+    // Encolar toma la parte compartida y close() la exclusiva: nada entra en la cola después del cierre
+    private final ReadWriteLock bloqueoCierre = new ReentrantReadWriteLock();
+
+    private final LongAdder encolados = new LongAdder();
+    private final LongAdder entregados = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final LongAdder envios = new LongAdder();
+    private final LongAdder rechazados = new LongAdder();
+
+    public DespachadorNotificaciones(INotificacionService destino) {
+        this(destino, CAPACIDAD, HILOS);
+    }
+
+    public DespachadorNotificaciones(INotificacionService destino, int capacidad, int hilos) {
+        this.destino = destino;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.despachadores = new ArrayList<>(hilos);
+        for (int i = 0; i < hilos; i++) {
+            Thread hilo = crearHilo(this::vaciarCola, "notificaciones-" + i);
+            despachadores.add(hilo);
+            hilo.start();
+        }
+    }
+
+    /**
+     * @return futuro con el resultado de la entrega, o null si la cola está
+     *         llena o el despachador cerrado (el mensaje no se tomó)
+     */
+    public CompletableFuture<Resultado> despachar(String idUsuario, String mensaje) {
+        Pendiente pendiente = new Pendiente(idUsuario, mensaje);
+        bloqueoCierre.readLock().lock();
+        try {
+            if (cerrado || !cola.offer(pendiente)) {
+                rechazados.increment();
+                return null;
+            }
+        } finally {
+            bloqueoCierre.readLock().unlock();
+        }
+        encolados.increment();
+        return pendiente.entrega;
+    }
+
+    /**
+     * Contadores de entrega (encolados, entregados, fallidos, envíos
+     * agrupados, rechazados por cola llena y tamaño actual de la cola).
+     */
+    public Map<String, Long> getMetricas() {
+        Map<String, Long> metricas = new LinkedHashMap<>();
+        metricas.put("encolados", encolados.sum());
+        metricas.put("entregados", entregados.sum());
+        metricas.put("fallidos", fallidos.sum());
+        metricas.put("envios", envios.sum());
+        metricas.put("rechazados", rechazados.sum());
+        metricas.put("enCola", (long) cola.size());
+        return metricas;
+    }
+
+    /**
+     * Deja de aceptar mensajes y entrega los que ya estaban en la cola.
+     */
+    @Override
+    public void close() {
+        bloqueoCierre.writeLock().lock();
+        try {
+            cerrado = true;
+        } finally {
+            bloqueoCierre.writeLock().unlock();
+        }
+        despachadores.forEach(Thread::interrupt);
+        long limite = System.currentTimeMillis() + ESPERA_CIERRE_MS;
+        for (Thread hilo : despachadores) {
+            try {
+                hilo.join(Math.max(1, limite - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Lo que los hilos no alcanzaron a entregar antes del límite de espera
+        List<Pendiente> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        if (!restantes.isEmpty()) {
+            entregar(restantes);
+        }
+    }
+
+    private void vaciarCola() {
+        List<Pendiente> tanda = new ArrayList<>(MAXIMO_POR_TANDA);
+        while (true) {
+            try {
+                if (cerrado) {
+                    if (cola.drainTo(tanda, MAXIMO_POR_TANDA) == 0) {
+                        return;
+                    }
+                } else {
+                    tanda.add(cola.take());
+                    cola.drainTo(tanda, MAXIMO_POR_TANDA - 1);
+                }
+            } catch (InterruptedException e) {
+                // close(): se sigue drenando lo que quede con cerrado = true
+                continue;
+            }
+            entregar(tanda);
+            tanda.clear();
+        }
+    }
+
+    private void entregar(List<Pendiente> tanda) {
+        Map<String, List<Pendiente>> porDestinatario = new LinkedHashMap<>();
+        for (Pendiente pendiente : tanda) {
+            porDestinatario.computeIfAbsent(pendiente.idUsuario, k -> new ArrayList<>()).add(pendiente);
+        }
+        porDestinatario.forEach((idUsuario, pendientes) -> {
+            List<String> mensajes = new ArrayList<>(pendientes.size());
+            pendientes.forEach(p -> mensajes.add(p.mensaje));
+            Resultado resultado;
+            try {
+                resultado = destino.enviarLote(idUsuario, mensajes);
+            } catch (RuntimeException e) {
+                resultado = Resultado.Fallido(e.getMessage());
+            }
+            envios.increment();
+            (resultado.getExito() ? entregados : fallidos).add(pendientes.size());
+            for (Pendiente pendiente : pendientes) {
+                pendiente.entrega.complete(resultado);
+            }
+        });
+    }
+
+    /**
+     * Hilo virtual si el JDK los tiene (21 o posterior); si no, un hilo de
+     * plataforma daemon.
+     */
+    private static Thread crearHilo(Runnable tarea, String nombre) {
+        try {
+            Object constructor = Thread.class.getMethod("ofVirtual").invoke(null);
+            Thread hilo = (Thread) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("unstarted", Runnable.class)
+                    .invoke(constructor, tarea);
+            hilo.setName(nombre);
+            return hilo;
+        } catch (ReflectiveOperationException e) {
+            Thread hilo = new Thread(tarea, nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+
+    private static final class Pendiente {
+        private final String idUsuario;
+        private final String mensaje;
+        private final CompletableFuture<Resultado> entrega = new CompletableFuture<>();
+
+        private Pendiente(String idUsuario, String mensaje) {
+            this.idUsuario = idUsuario;
+            this.mensaje = mensaje;
+        }
+    }
+}
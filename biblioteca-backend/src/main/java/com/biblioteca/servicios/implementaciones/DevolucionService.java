@@ -14,6 +14,9 @@ import com.biblioteca.dominio.objetosvalor.ContextoMulta;
 import com.biblioteca.dominio.objetosvalor.Evaluacion;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.IUnidadTrabajo;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.IDevolucionService;
 import com.biblioteca.servicios.interfaces.IGestorBloqueoService;
 import com.biblioteca.servicios.interfaces.IGestorMultasService;
@@ -32,9 +35,9 @@ public class DevolucionService implements IDevolucionService {
     private final IReservaService reservas;
     private final INotificacionService notificador;
     private final IGestorBloqueoService gestorBloqueo;
+    private final IUnidadTrabajo unidadTrabajo;
     
     public DevolucionService(
-
             IGestorMultasService gestorMultas,
             IRepositorio<Prestamo> repoPrestamo,
             IRepositorio<Material> repoMaterial,
@@ -43,6 +46,21 @@ public class DevolucionService implements IDevolucionService {
             IReservaService reservas,
             INotificacionService notificador,
             IGestorBloqueoService gestorBloqueo) {
+        this(gestorMultas, repoPrestamo, repoMaterial, repoUsuario, repoMulta,
+                reservas, notificador, gestorBloqueo, IUnidadTrabajo.DIRECTA);
+    }
+    
+    public DevolucionService(
+
+            IGestorMultasService gestorMultas,
+            IRepositorio<Prestamo> repoPrestamo,
+            IRepositorio<Material> repoMaterial,
+            IRepositorio<Usuario> repoUsuario,
+            IRepositorio<Multa> repoMulta,
+            IReservaService reservas,
+            INotificacionService notificador,
+            IGestorBloqueoService gestorBloqueo,
+            IUnidadTrabajo unidadTrabajo) {
         
 
         this.gestorMultas = gestorMultas;
@@ -53,34 +71,49 @@ public class DevolucionService implements IDevolucionService {
         this.reservas = reservas;
         this.notificador = notificador;
         this.gestorBloqueo = gestorBloqueo;
+        this.unidadTrabajo = unidadTrabajo;
     }
     
+    /**
+     * El préstamo, las multas, el material y la notificación se confirman
+     * juntos: una caída no puede dejar la devolución sin su aviso.
+     */
     @Override
     public Resultado registrarDevolucion(String idPrestamo, Evaluacion evaluacion) {
+        return unidadTrabajo.ejecutar(() -> procesarDevolucion(idPrestamo, evaluacion));
+    }
+    
+    private Resultado procesarDevolucion(String idPrestamo, Evaluacion evaluacion) {
         try {
             // 1. Obtener el préstamo
-            Prestamo prestamo = repoPrestamo.obtenerPorId(idPrestamo);
-            if (prestamo == null) {
+            Prestamo leido = repoPrestamo.obtenerPorId(idPrestamo);
+            if (leido == null) {
                 return Resultado.Fallido("Préstamo no encontrado");
             }
             
-            if (prestamo.getFechaDevolucionReal() != null) {
-                return Resultado.Fallido("Este préstamo ya fue devuelto");
-            }
-            
             // 2. Obtener material y usuario
-            Material material = repoMaterial.obtenerPorId(prestamo.getIdMaterial());
-            Usuario usuario = repoUsuario.obtenerPorId(prestamo.getIdUsuario());
+            Material material = repoMaterial.obtenerPorId(leido.getIdMaterial());
+            Usuario usuario = repoUsuario.obtenerPorId(leido.getIdUsuario());
             
             if (material == null) {
                 return Resultado.Fallido("Material no encontrado");
             }
             
-            // 3. Registrar fecha de devolución
+            // 3. Registrar fecha de devolución sobre una copia: de dos
+            // devoluciones simultáneas del mismo préstamo, solo una la guarda
             LocalDateTime fechaDevolucion = LocalDateTime.now();
-            prestamo.setFechaDevolucionReal(fechaDevolucion);
-            prestamo.setEstado(EstadoTransaccion.COMPLETADA);
-            repoPrestamo.actualizar(prestamo);
+            Resultado cierre = ReintentoOptimista.modificar(repoPrestamo, idPrestamo, copia -> {
+                if (copia.getFechaDevolucionReal() != null) {
+                    return Resultado.Fallido("Este préstamo ya fue devuelto");
+                }
+                copia.setFechaDevolucionReal(fechaDevolucion);
+                copia.setEstado(EstadoTransaccion.COMPLETADA);
+                return Resultado.Exitoso("Préstamo cerrado", copia);
+            });
+            if (!cierre.getExito()) {
+                return cierre;
+            }
+            Prestamo prestamo = (Prestamo) cierre.getData();
             
             // 4. Procesar multas
             StringBuilder mensajeMultas = new StringBuilder();
@@ -126,18 +159,18 @@ public class DevolucionService implements IDevolucionService {
                                     .append("\n");
                     }
                 }
-                
-                // Actualizar estado del material según evaluación
-                if (evaluacion.esUsable()) {
-                    material.marcarComoDisponible();
-                } else {
-                    material.marcarComoEnReparacion("Daños detectados en inspección");
-                }
-            } else {
-                material.marcarComoDisponible();
             }
             
-            repoMaterial.actualizar(material);
+            // Actualizar estado del material según evaluación
+            boolean usable = evaluacion == null || evaluacion.esUsable();
+            ReintentoOptimista.modificar(repoMaterial, material.getId(), copia -> {
+                if (usable) {
+                    copia.marcarComoDisponible();
+                } else {
+                    copia.marcarComoEnReparacion("Daños detectados en inspección");
+                }
+                return Resultado.Exitoso("Material actualizado", copia);
+            });
             
             // 6. Verificar si debe bloquearse por multas
             if (totalMultasCalculado > 0) {
@@ -160,7 +193,7 @@ public class DevolucionService implements IDevolucionService {
             // 8. Preparar resultado - usando nombres diferentes para evitar self-reference
             final double totalMultasFinal = totalMultasCalculado; // Variable final para el objeto anónimo
             final String detalleMultasFinal = mensajeMultas.toString();
-            final boolean materialUsableFinal = evaluacion != null ? evaluacion.esUsable() : true;
+            final boolean materialUsableFinal = usable;
             
             Object data = new Object() {
                 public final Prestamo prestamoDevuelto = prestamo;
@@ -182,9 +215,9 @@ public class DevolucionService implements IDevolucionService {
 
     
     private double calcularTotalMultasPendientes(String idUsuario) {
-        return repoMulta.obtenerTodos().stream()
-            .filter(m -> m.getIdUsuario().equals(idUsuario))
-            .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
+        return repoMulta.buscar(Criterio.donde(Campos.MULTA_USUARIO, idUsuario)
+                .y(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE))
+            .getElementos().stream()
             .mapToDouble(Multa::calcularMontoTotal)
             .sum();
     }
@@ -213,17 +246,14 @@ public class DevolucionService implements IDevolucionService {
     }
     
     public long contarDevolucionesPorUsuario(String idUsuario) {
-        return repoPrestamo.obtenerTodos().stream()
-            .filter(p -> p.getIdUsuario().equals(idUsuario))
-            .filter(p -> p.getFechaDevolucionReal() != null)
-            .count();
+        // Cualquier fecha de devolución real: solo se excluyen los que no la tienen
+        return repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .mayorQue(Campos.PRESTAMO_FECHA_REAL, LocalDateTime.MIN))
+            .cantidad();
     }
     
     public long contarDevolucionesEnRango(LocalDateTime inicio, LocalDateTime fin) {
-        return repoPrestamo.obtenerTodos().stream()
-            .filter(p -> p.getFechaDevolucionReal() != null)
-            .filter(p -> !p.getFechaDevolucionReal().isBefore(inicio))
-            .filter(p -> !p.getFechaDevolucionReal().isAfter(fin))
-            .count();
+        return repoPrestamo.buscar(Criterio.<Prestamo>todos().entre(Campos.PRESTAMO_FECHA_REAL, inicio, fin))
+            .cantidad();
     }
 }
\ No newline at end of file
@@ -11,6 +11,8 @@ import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 import com.biblioteca.dominio.excepciones.MaterialNoDisponibleException;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.IDisponibilidadService;
 
 public class DisponibilidadStandardService implements IDisponibilidadService {
@@ -45,6 +47,16 @@ public class DisponibilidadStandardService implements IDisponibilidadService {
         return material.getEstado() == EstadoMaterial.DISPONIBLE;
     }
     
+    @Override
+    public boolean verificarDisponibilidad(Material material) {
+        return material != null && material.getEstado() == EstadoMaterial.DISPONIBLE;
+    }
+    
+    @Override
+    public boolean materialEsPrestable(Material material) {
+        return material != null && !materialesNoPrestables.contains(material.getTipo());
+    }
+    
     @Override
     public EstadoMaterial obtenerEstadoActual(String idMaterial) {
         Material material = repoMaterial.obtenerPorId(idMaterial);
@@ -103,9 +115,9 @@ public class DisponibilidadStandardService implements IDisponibilidadService {
         }
         
         // Buscar préstamo activo para calcular fecha estimada
-        return repoPrestamo.obtenerTodos().stream()
-            .filter(p -> p.getIdMaterial().equals(idMaterial))
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        return repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_MATERIAL, idMaterial)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA))
+            .getElementos().stream()
             .filter(p -> p.getFechaDevolucionReal() == null)
             .map(Prestamo::getFechaDevolucionEsperada)
             .max(LocalDateTime::compareTo)
@@ -0,0 +1,288 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Multa;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.entidades.Reserva;
+import com.biblioteca.dominio.entidades.Usuario;
+import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
+import com.biblioteca.dominio.enumeraciones.EstadoMulta;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
+import com.biblioteca.dominio.objetosvalor.ReporteSistema;
+import com.biblioteca.repositorios.IObservadorRepositorio;
+import com.biblioteca.repositorios.IRepositorio;
+
+/**
+ * Contadores materializados para el tablero: cantidades por estado de cada
+ * repositorio y el monto de multas por estado, siempre al día.
+ *
+ * Cada contador observa su repositorio y recuerda con qué aportó cada
+ * entidad (estado y monto); al guardarse se resta el aporte anterior y se
+ * suma el nuevo, así que las transiciones de estado se reflejan solas y
+ * leer el reporte no recorre nada. Los contadores son LongAdder/DoubleAdder
+ * para no competir entre hilos que escriben a la vez.
+ *
+ * Una tarea periódica reconcilia contra un recuento completo: corrige lo que
+ * cambió sin pasar por el repositorio y las reservas que expiraron por el
+ * paso del tiempo.
+ */
+public class EstadisticasEnVivo implements AutoCloseable {
+
+    private static final long RECONCILIACION_MS = Long.getLong("biblioteca.estadisticas.reconciliacionMs", 60_000);
+
+    private final Contador<Material, EstadoMaterial> materiales;
+    private final Contador<Usuario, EstadoUsuario> usuarios;
+    private final Contador<Prestamo, EstadoTransaccion> prestamos;
+    private final Contador<Reserva, EstadoTransaccion> reservas;
+    private final Contador<Multa, EstadoMulta> multas;
+    private final ScheduledExecutorService programador;
+
+    private final LongAdder reconciliaciones = new LongAdder();
+    private final LongAdder correcciones = new LongAdder();
+
+    public EstadisticasEnVivo(
+            IRepositorio<Material> repoMaterial,
+            IRepositorio<Usuario> repoUsuario,
+            IRepositorio<Prestamo> repoPrestamo,
+            IRepositorio<Reserva> repoReserva,
+            IRepositorio<Multa> repoMulta) {
+        this.materiales = new Contador<>(repoMaterial, EstadoMaterial.class, Material::getId,
+                (m, ahora) -> m.getEstado(), m -> 0);
+        this.usuarios = new Contador<>(repoUsuario, EstadoUsuario.class, Usuario::getId,
+                (u, ahora) -> u.getEstado(), u -> 0);
+        this.prestamos = new Contador<>(repoPrestamo, EstadoTransaccion.class, Prestamo::getId,
+                (p, ahora) -> estadoPrestamo(p), p -> 0);
+        this.reservas = new Contador<>(repoReserva, EstadoTransaccion.class, Reserva::getId,
+                EstadisticasEnVivo::estadoReserva, r -> 0);
+        this.multas = new Contador<>(repoMulta, EstadoMulta.class, Multa::getId,
+                (m, ahora) -> m.getEstado(), Multa::calcularMontoTotal);
+
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "estadisticas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::reconciliarProgramado,
+                RECONCILIACION_MS, RECONCILIACION_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lectura O(1) (por cantidad de estados) de todos los contadores.
+     */
+    public ReporteSistema instantanea() {
+        return new ReporteSistema(LocalDateTime.now(), materiales.total(), usuarios.total(),
+                materiales.cantidades(), usuarios.cantidades(),
+                prestamos.cantidades(), prestamos.sinEstado(),
+                reservas.cantidades(), reservas.sinEstado(),
+                multas.cantidades(), multas.montos());
+    }
+
+    /**
+     * Recuenta cada repositorio y corrige los aportes que no coinciden.
+     *
+     * @return cantidad de entidades corregidas
+     */
+    public synchronized long reconciliar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        long corregidas = materiales.reconciliar(ahora)
+                + usuarios.reconciliar(ahora)
+                + prestamos.reconciliar(ahora)
+                + reservas.reconciliar(ahora)
+                + multas.reconciliar(ahora);
+        reconciliaciones.increment();
+        correcciones.add(corregidas);
+        return corregidas;
+    }
+
+    public Map<String, Long> getMetricas() {
+        Map<String, Long> metricas = new LinkedHashMap<>();
+        metricas.put("reconciliaciones", reconciliaciones.sum());
+        metricas.put("correcciones", correcciones.sum());
+        return metricas;
+    }
+
+    @Override
+    public void close() {
+        programador.shutdownNow();
+    }
+
+    /**
+     * Un préstamo ACTIVA que ya tiene fecha de devolución no cuenta como
+     * activo: queda sin estado (el reporte lo muestra aparte).
+     */
+    static EstadoTransaccion estadoPrestamo(Prestamo prestamo) {
+        return prestamo.getEstado() == EstadoTransaccion.ACTIVA && prestamo.getFechaDevolucionReal() != null
+                ? null : prestamo.getEstado();
+    }
+
+    /**
+     * Ni una reserva ACTIVA que ya expiró.
+     */
+    static EstadoTransaccion estadoReserva(Reserva reserva, LocalDateTime ahora) {
+        return reserva.getEstado() == EstadoTransaccion.ACTIVA && !reserva.getFechaExpiracion().isAfter(ahora)
+                ? null : reserva.getEstado();
+    }
+
+    private void reconciliarProgramado() {
+        try {
+            reconciliar();
+        } catch (RuntimeException e) {
+            System.err.println("No se pudieron reconciliar las estadísticas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Contador por estado de un repositorio. Una clave nula se cuenta aparte, en sinEstado.
+     */
+    private static final class Contador<T, E extends Enum<E>> implements IObservadorRepositorio<T> {
+        private final IRepositorio<T> repositorio;
+        private final Class<E> tipo;
+        private final Function<T, String> id;
+        private final BiFunction<T, LocalDateTime, E> clasificar;
+        private final ToDoubleFunction<T> monto;
+        private final LongAdder[] cantidades;
+        private final DoubleAdder[] montos;
+        private final LongAdder sinEstado = new LongAdder();
+        private final Map<String, Aporte<E>> aportes = new ConcurrentHashMap<>();
+
+        private Contador(IRepositorio<T> repositorio, Class<E> tipo, Function<T, String> id,
+                         BiFunction<T, LocalDateTime, E> clasificar, ToDoubleFunction<T> monto) {
+            this.repositorio = repositorio;
+            this.tipo = tipo;
+            this.id = id;
+            this.clasificar = clasificar;
+            this.monto = monto;
+            int estados = tipo.getEnumConstants().length;
+            this.cantidades = new LongAdder[estados];
+            this.montos = new DoubleAdder[estados];
+            for (int i = 0; i < estados; i++) {
+                cantidades[i] = new LongAdder();
+                montos[i] = new DoubleAdder();
+            }
+            // Al registrarse recibe lo ya cargado: arranca con el recuento inicial
+            repositorio.agregarObservador(this);
+        }
+
+        @Override
+        public void alGuardar(String id, T entidad) {
+            registrar(id, aporte(entidad, LocalDateTime.now()));
+        }
+
+        @Override
+        public void alEliminar(String id, T entidad) {
+            aplicar(aportes.remove(id), -1);
+        }
+
+        private long reconciliar(LocalDateTime ahora) {
+            long corregidas = 0;
+            for (T entidad : (Iterable<T>) repositorio.stream()::iterator) {
+                String clave = id.apply(entidad);
+                Aporte<E> actual = aporte(entidad, ahora);
+                if (!actual.equals(aportes.get(clave))) {
+                    registrar(clave, actual);
+                    corregidas++;
+                }
+            }
+            for (String clave : aportes.keySet()) {
+                if (!repositorio.existe(clave)) {
+                    Aporte<E> anterior = aportes.remove(clave);
+                    if (anterior != null) {
+                        aplicar(anterior, -1);
+                        corregidas++;
+                    }
+                }
+            }
+            return corregidas;
+        }
+
+        /**
+         * Restar lo anterior y sumar lo nuevo conmuta, así que dos guardados
+         * simultáneos de la misma entidad dejan el aporte del último.
+         */
+        private void registrar(String clave, Aporte<E> nuevo) {
+            Aporte<E> anterior = aportes.put(clave, nuevo);
+            aplicar(anterior, -1);
+            aplicar(nuevo, 1);
+        }
+
+        private Aporte<E> aporte(T entidad, LocalDateTime ahora) {
+            return new Aporte<>(clasificar.apply(entidad, ahora), monto.applyAsDouble(entidad));
+        }
+
+        private void aplicar(Aporte<E> aporte, int signo) {
+            if (aporte == null) {
+                return;
+            }
+            if (aporte.estado == null) {
+                sinEstado.add(signo);
+                return;
+            }
+            cantidades[aporte.estado.ordinal()].add(signo);
+            montos[aporte.estado.ordinal()].add(signo * aporte.monto);
+        }
+
+        private long total() {
+            return repositorio.contar();
+        }
+
+        private long sinEstado() {
+            return sinEstado.sum();
+        }
+
+        private EnumMap<E, Long> cantidades() {
+            EnumMap<E, Long> resultado = new EnumMap<>(tipo);
+            for (E estado : tipo.getEnumConstants()) {
+                resultado.put(estado, cantidades[estado.ordinal()].sum());
+            }
+            return resultado;
+        }
+
+        private EnumMap<E, Double> montos() {
+            EnumMap<E, Double> resultado = new EnumMap<>(tipo);
+            for (E estado : tipo.getEnumConstants()) {
+                resultado.put(estado, montos[estado.ordinal()].sum());
+            }
+            return resultado;
+        }
+    }
+
+    private static final class Aporte<E> {
+        private final E estado;
+        private final double monto;
+
+        private Aporte(E estado, double monto) {
+            this.estado = estado;
+            this.monto = monto;
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (!(otro instanceof Aporte)) {
+                return false;
+            }
+            Aporte<?> aporte = (Aporte<?>) otro;
+            return estado == aporte.estado && Double.compare(monto, aporte.monto) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(estado, monto);
+        }
+    }
+}
@@ -4,25 +4,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Multa;
 import com.biblioteca.dominio.entidades.Prestamo;
 import com.biblioteca.dominio.entidades.Usuario;
-import com.biblioteca.dominio.enumeraciones.EstadoMulta;
-import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
+import com.biblioteca.dominio.objetosvalor.CuentaUsuario;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.servicios.interfaces.ICuentaUsuarioService;
 import com.biblioteca.servicios.interfaces.IGestorBloqueoService;
 
 
 public class GestorBloqueoService implements IGestorBloqueoService {
     
     private final IRepositorio<Usuario> repositorioUsuario;
-    private final IRepositorio<Multa> repositorioMulta;
-    private final IRepositorio<Prestamo> repositorioPrestamo;
+    private final ICuentaUsuarioService cuentaUsuarioService;
     
     // Configuraciones de umbrales
     private final BigDecimal UMBRAL_MONTO_MULTA;        // Monto máximo de multas antes de bloquear
@@ -38,6 +36,13 @@ public class GestorBloqueoService implements IGestorBloqueoService {
              new BigDecimal("50000"), 30, 3); // Valores por defecto
     }
 
+    public GestorBloqueoService(
+            IRepositorio<Usuario> repositorioUsuario,
+            ICuentaUsuarioService cuentaUsuarioService) {
+        
+        this(repositorioUsuario, cuentaUsuarioService, new BigDecimal("50000"), 30, 3);
+    }
+
     public GestorBloqueoService(
             IRepositorio<Usuario> repositorioUsuario,
             IRepositorio<Multa> repositorioMulta,
@@ -46,13 +51,27 @@ public class GestorBloqueoService implements IGestorBloqueoService {
             int umbralDiasVencimiento,
             int umbralCantidadMultas) {
         
-        if (repositorioUsuario == null || repositorioMulta == null || repositorioPrestamo == null) {
-            throw new IllegalArgumentException("Ningún repositorio puede ser nulo");
+        this(repositorioUsuario, crearCuentas(repositorioMulta, repositorioPrestamo),
+             umbralMontoMulta, umbralDiasVencimiento, umbralCantidadMultas);
+    }
+
+    /**
+     * @param cuentaUsuarioService totales por usuario mantenidos al escribir,
+     *                             así verificar un bloqueo no recorre multas ni préstamos
+     */
+    public GestorBloqueoService(
+            IRepositorio<Usuario> repositorioUsuario,
+            ICuentaUsuarioService cuentaUsuarioService,
+            BigDecimal umbralMontoMulta,
+            int umbralDiasVencimiento,
+            int umbralCantidadMultas) {
+        
+        if (repositorioUsuario == null || cuentaUsuarioService == null) {
+            throw new IllegalArgumentException("El repositorio de usuarios y el servicio de cuentas no pueden ser nulos");
         }
         
         this.repositorioUsuario = repositorioUsuario;
-        this.repositorioMulta = repositorioMulta;
-        this.repositorioPrestamo = repositorioPrestamo;
+        this.cuentaUsuarioService = cuentaUsuarioService;
         this.UMBRAL_MONTO_MULTA = umbralMontoMulta;
         this.UMBRAL_DIAS_VENCIMIENTO = umbralDiasVencimiento;
         this.UMBRAL_CANTIDAD_MULTAS = umbralCantidadMultas;
@@ -68,10 +87,22 @@ public class GestorBloqueoService implements IGestorBloqueoService {
             );
         }
 
+        return evaluarCuenta(cuentaUsuarioService.obtenerCuenta(idUsuario));
+    }
+
+    @Override
+    public ResultadoValidacion verificarSiDebeBloquear(Usuario usuario) {
+        if (usuario == null) {
+            return ResultadoValidacion.Invalido(List.of("El usuario no existe"));
+        }
+        return evaluarCuenta(cuentaUsuarioService.obtenerCuenta(usuario.getId()));
+    }
+
+    private ResultadoValidacion evaluarCuenta(CuentaUsuario cuenta) {
         List<String> motivosBloqueo = new ArrayList<>();
 
         // CRITERIO 1: Multas pendientes exceden el umbral de monto
-        BigDecimal totalMultasPendientes = calcularTotalMultasPendientes(idUsuario);
+        BigDecimal totalMultasPendientes = cuenta.getMontoMultasPendientes();
         
         if (totalMultasPendientes.compareTo(UMBRAL_MONTO_MULTA) > 0) {
             motivosBloqueo.add(
@@ -81,7 +112,7 @@ public class GestorBloqueoService implements IGestorBloqueoService {
         }
 
         // CRITERIO 2: Número de multas pendientes excede el umbral
-        long cantidadMultasPendientes = contarMultasPendientes(idUsuario);
+        long cantidadMultasPendientes = cuenta.getCantidadMultasPendientes();
         
         if (cantidadMultasPendientes >= UMBRAL_CANTIDAD_MULTAS) {
             motivosBloqueo.add(
@@ -91,19 +122,19 @@ public class GestorBloqueoService implements IGestorBloqueoService {
         }
 
         // CRITERIO 3: Tiene multas por pérdida de material
-        boolean tieneMultaPorPerdida = tieneMultaPorPerdidaPendiente(idUsuario);
+        boolean tieneMultaPorPerdida = cuenta.tieneMultaPorPerdida();
         
         if (tieneMultaPorPerdida) {
             motivosBloqueo.add("Tiene materiales reportados como perdidos sin resolver");
         }
 
         // CRITERIO 4: Tiene préstamos muy vencidos
-        List<Prestamo> prestamosVencidos = obtenerPrestamosVencidos(idUsuario, UMBRAL_DIAS_VENCIMIENTO);
+        int prestamosVencidos = contarPrestamosVencidos(cuenta, UMBRAL_DIAS_VENCIMIENTO);
         
-        if (!prestamosVencidos.isEmpty()) {
+        if (prestamosVencidos > 0) {
             motivosBloqueo.add(
                 String.format("Tiene %d préstamo(s) vencido(s) hace más de %d días",
-                    prestamosVencidos.size(), UMBRAL_DIAS_VENCIMIENTO)
+                    prestamosVencidos, UMBRAL_DIAS_VENCIMIENTO)
             );
         }
 
@@ -115,14 +146,25 @@ public class GestorBloqueoService implements IGestorBloqueoService {
         return ResultadoValidacion.Valido();
     }
 
+    /**
+     * Guarda con control de versión: si otra operación (por ejemplo, un pago
+     * que desbloquea) actualizó al usuario en el medio, se vuelve a decidir
+     * sobre su estado nuevo en vez de pisarlo. Se trabaja sobre una copia:
+     * el usuario guardado no cambia hasta que la versión se confirma.
+     */
     @Override
     public Resultado bloquearUsuario(String idUsuario, String motivo) {
+        return ReintentoOptimista.ejecutar(() -> intentarBloquear(idUsuario, motivo));
+    }
+
+    private Resultado intentarBloquear(String idUsuario, String motivo) {
         try {
-            Usuario usuario = repositorioUsuario.obtenerPorId(idUsuario);
+            Usuario usuario = repositorioUsuario.obtenerCopia(idUsuario);
             
             if (usuario == null) {
                 return Resultado.Fallido("Usuario no encontrado");
             }
+            long version = usuario.getVersion();
 
             // Determinar tipo de bloqueo según el motivo
             EstadoUsuario nuevoEstado = determinarTipoBloqueo(idUsuario, motivo);
@@ -140,8 +182,11 @@ public class GestorBloqueoService implements IGestorBloqueoService {
             } else {
                 usuario.suspender();
             }
-            Resultado resultadoActualizacion = repositorioUsuario.actualizar(usuario);
+            Resultado resultadoActualizacion = repositorioUsuario.actualizarConVersion(usuario, version);
             
+            if (resultadoActualizacion.esConflicto()) {
+                return resultadoActualizacion;
+            }
             if (!resultadoActualizacion.getExito()) {
                 return Resultado.Fallido("Error al bloquear usuario: " + resultadoActualizacion.getMensaje());
             }
@@ -160,12 +205,17 @@ public class GestorBloqueoService implements IGestorBloqueoService {
 
     @Override
     public Resultado desbloquearUsuario(String idUsuario) {
+        return ReintentoOptimista.ejecutar(() -> intentarDesbloquear(idUsuario));
+    }
+
+    private Resultado intentarDesbloquear(String idUsuario) {
         try {
-            Usuario usuario = repositorioUsuario.obtenerPorId(idUsuario);
+            Usuario usuario = repositorioUsuario.obtenerCopia(idUsuario);
             
             if (usuario == null) {
                 return Resultado.Fallido("Usuario no encontrado");
             }
+            long version = usuario.getVersion();
 
             // Ya está activo
             if (usuario.getEstado() == EstadoUsuario.ACTIVO) {
@@ -183,8 +233,11 @@ public class GestorBloqueoService implements IGestorBloqueoService {
 
             // Desbloquear
             usuario.reactivar();
-            Resultado resultadoActualizacion = repositorioUsuario.actualizar(usuario);
+            Resultado resultadoActualizacion = repositorioUsuario.actualizarConVersion(usuario, version);
             
+            if (resultadoActualizacion.esConflicto()) {
+                return resultadoActualizacion;
+            }
             if (!resultadoActualizacion.getExito()) {
                 return Resultado.Fallido("Error al desbloquear usuario: " + resultadoActualizacion.getMensaje());
             }
@@ -209,57 +262,41 @@ public class GestorBloqueoService implements IGestorBloqueoService {
         return Resultado.Exitoso("El usuario no requiere bloqueo", null);
     }
 
+    private static ICuentaUsuarioService crearCuentas(
+            IRepositorio<Multa> repositorioMulta,
+            IRepositorio<Prestamo> repositorioPrestamo) {
+        if (repositorioMulta == null || repositorioPrestamo == null) {
+            throw new IllegalArgumentException("Ningún repositorio puede ser nulo");
+        }
+        return new CuentaUsuarioService(repositorioMulta, repositorioPrestamo);
+    }
+
     /**
      * Calcula el monto total de multas pendientes de un usuario.
      */
     private BigDecimal calcularTotalMultasPendientes(String idUsuario) {
-        return repositorioMulta.obtenerTodos().stream()
-                .filter(m -> m.getIdUsuario().equals(idUsuario))
-                .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-                .map(m -> BigDecimal.valueOf(m.calcularMontoTotal()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return cuentaUsuarioService.obtenerCuenta(idUsuario).getMontoMultasPendientes();
     }
 
     public BigDecimal obtenerTotalMultasPendientes(String idUsuario) {
     return calcularTotalMultasPendientes(idUsuario);
 }
-    /**
-     * Cuenta cuántas multas pendientes tiene un usuario.
-     */
-    private long contarMultasPendientes(String idUsuario) {
-        return repositorioMulta.obtenerTodos().stream()
-                .filter(m -> m.getIdUsuario().equals(idUsuario))
-                .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-                .count();
-    }
 
     /**
-     * Verifica si el usuario tiene multas por pérdida pendientes.
+     * Cuenta los préstamos activos vencidos hace más de X días.
      */
-    private boolean tieneMultaPorPerdidaPendiente(String idUsuario) {
-        return repositorioMulta.obtenerTodos().stream()
-                .filter(m -> m.getIdUsuario().equals(idUsuario))
-                .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-                .anyMatch(m -> m instanceof com.biblioteca.dominio.entidades.MultaPorPerdida);
-    }
-
-    /**
-     * Obtiene préstamos activos vencidos hace más de X días.
-     */
-    private List<Prestamo> obtenerPrestamosVencidos(String idUsuario, int diasUmbral) {
+    private int contarPrestamosVencidos(CuentaUsuario cuenta, int diasUmbral) {
+        LocalDateTime vencimiento = cuenta.getVencimientoMasProximo();
         LocalDateTime fechaLimite = LocalDateTime.now().minusDays(diasUmbral);
-        
-        return repositorioPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getIdUsuario().equals(idUsuario))
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(p -> p.getFechaDevolucionEsperada() != null)
-                .filter(p -> p.getFechaDevolucionEsperada().isBefore(fechaLimite))
-                .collect(Collectors.toList());
+        if (vencimiento == null || !vencimiento.isBefore(fechaLimite)) {
+            return 0;
+        }
+        return cuenta.contarVencidosAntesDe(fechaLimite);
     }
 
     public boolean tienePrestamosVencidos(String idUsuario) {
         // Un préstamo vencido es cualquier préstamo cuya fecha de devolución esperada ya pasó
-        return obtenerPrestamosVencidos(idUsuario, 0).size() > 0;
+        return contarPrestamosVencidos(cuentaUsuarioService.obtenerCuenta(idUsuario), 0) > 0;
     }
 
     /**
@@ -267,7 +304,7 @@ public class GestorBloqueoService implements IGestorBloqueoService {
      */
     private EstadoUsuario determinarTipoBloqueo(String idUsuario, String motivo) {
         // Si tiene multa por pérdida, bloqueo por pérdida
-        if (tieneMultaPorPerdidaPendiente(idUsuario)) {
+        if (cuentaUsuarioService.obtenerCuenta(idUsuario).tieneMultaPorPerdida()) {
             return EstadoUsuario.BLOQUEADO_PERDIDA;
         }
         
@@ -295,15 +332,13 @@ public class GestorBloqueoService implements IGestorBloqueoService {
         StringBuilder detalle = new StringBuilder();
         detalle.append("Estado actual: ").append(usuario.getEstado()).append("\n");
         
-        BigDecimal totalMultas = calcularTotalMultasPendientes(idUsuario);
-        long cantidadMultas = contarMultasPendientes(idUsuario);
+        CuentaUsuario cuenta = cuentaUsuarioService.obtenerCuenta(idUsuario);
         
-        detalle.append("Multas pendientes: ").append(cantidadMultas).append("\n");
-        detalle.append("Monto total multas: $").append(totalMultas).append("\n");
+        detalle.append("Multas pendientes: ").append(cuenta.getCantidadMultasPendientes()).append("\n");
+        detalle.append("Monto total multas: $").append(cuenta.getMontoMultasPendientes()).append("\n");
         
-        List<Prestamo> prestamosVencidos = obtenerPrestamosVencidos(idUsuario, UMBRAL_DIAS_VENCIMIENTO);
         detalle.append("Préstamos vencidos (>").append(UMBRAL_DIAS_VENCIMIENTO).append(" días): ")
-               .append(prestamosVencidos.size()).append("\n");
+               .append(contarPrestamosVencidos(cuenta, UMBRAL_DIAS_VENCIMIENTO)).append("\n");
         
         return detalle.toString();
     }
@@ -322,4 +357,4 @@ public class GestorBloqueoService implements IGestorBloqueoService {
     public int getUmbralCantidadMultas() {
         return UMBRAL_CANTIDAD_MULTAS;
     }
-}
+}
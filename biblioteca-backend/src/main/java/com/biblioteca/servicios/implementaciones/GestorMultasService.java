@@ -11,6 +11,8 @@ import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
 import com.biblioteca.dominio.objetosvalor.ContextoMulta;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.ICalculadorMulta;
 import com.biblioteca.servicios.interfaces.IGestorBloqueoService;
 import com.biblioteca.servicios.interfaces.IGestorMultasService;
@@ -46,9 +48,18 @@ public class GestorMultasService implements IGestorMultasService {
         throw new IllegalArgumentException("No hay calculador disponible para el tipo de multa: " + contexto.getTipoMulta());
     }
 
+    /**
+     * Dos pagos simultáneos de la misma multa no pueden registrarse ambos:
+     * el que guarda segundo choca con la versión, relee y la ve ya pagada.
+     * El pago se marca sobre una copia, así el perdedor no toca la guardada.
+     */
     @Override
     public Resultado pagarMulta(String idMulta) {
-        Multa multa = repoMulta.obtenerPorId(idMulta);
+        return ReintentoOptimista.ejecutar(() -> intentarPagar(idMulta));
+    }
+
+    private Resultado intentarPagar(String idMulta) {
+        Multa multa = repoMulta.obtenerCopia(idMulta);
         if (multa == null) {
             return Resultado.Fallido("Multa no encontrada");
         }
@@ -57,15 +68,19 @@ public class GestorMultasService implements IGestorMultasService {
             return Resultado.Fallido("Esta multa ya está pagada o condonada");
         }
 
+        long version = multa.getVersion();
         multa.setFechaPago(LocalDateTime.now());
-        repoMulta.actualizar(multa);
+        Resultado guardado = repoMulta.actualizarConVersion(multa, version);
+        if (!guardado.getExito()) {
+            return guardado;
+        }
 
         // Verificar si el usuario puede ser desbloqueado
         Usuario usuario = repoUsuario.obtenerPorId(multa.getIdUsuario());
         if (usuario != null && usuario.getEstado() == EstadoUsuario.BLOQUEADO_MULTA) {
-            double totalPendiente = repoMulta.obtenerTodos().stream()
-                    .filter(m -> m.getIdUsuario().equals(usuario.getId()))
-                    .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
+            double totalPendiente = repoMulta.buscar(Criterio.donde(Campos.MULTA_USUARIO, usuario.getId())
+                            .y(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE))
+                    .getElementos().stream()
                     .mapToDouble(Multa::calcularMontoTotal)
                     .sum();
 
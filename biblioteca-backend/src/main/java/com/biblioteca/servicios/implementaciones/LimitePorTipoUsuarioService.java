@@ -9,6 +9,8 @@ import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.ILimitePrestamoService;
 
 public class LimitePorTipoUsuarioService implements ILimitePrestamoService {
@@ -46,6 +48,18 @@ public class LimitePorTipoUsuarioService implements ILimitePrestamoService {
             return ResultadoValidacion.Invalido("Usuario no encontrado");
         }
         
+        return validarContraLimite(idUsuario, tipoUsuario);
+    }
+    
+    @Override
+    public ResultadoValidacion validarLimite(Usuario usuario) {
+        if (usuario == null) {
+            return ResultadoValidacion.Invalido("Usuario no encontrado");
+        }
+        return validarContraLimite(usuario.getId(), usuario.getTipo());
+    }
+    
+    private ResultadoValidacion validarContraLimite(String idUsuario, TipoUsuario tipoUsuario) {
         int limiteMaximo = obtenerLimiteMaximo(tipoUsuario);
         int prestamosActuales = cantidadActualPrestada(idUsuario);
         
@@ -68,9 +82,9 @@ public class LimitePorTipoUsuarioService implements ILimitePrestamoService {
     public int cantidadActualPrestada(String idUsuario) {
         if (idUsuario == null) return 0;
         
-        return (int) repoPrestamo.obtenerTodos().stream()
-            .filter(p -> p.getIdUsuario().equals(idUsuario))
-            .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
+        return (int) repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA))
+            .getElementos().stream()
             .filter(p -> p.getFechaDevolucionReal() == null)
             .count();
     }
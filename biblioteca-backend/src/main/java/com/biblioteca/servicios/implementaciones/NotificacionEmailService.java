@@ -1,33 +1,54 @@
 package com.biblioteca.servicios.implementaciones;
 
+import java.util.List;
+
+import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.servicios.externos.SistemaEmailExterno;
 import com.biblioteca.servicios.interfaces.INotificacionService;
 
+/**
+ * Entrega por correo a través de SistemaEmailExterno. Es el destino final
+ * del despacho: los servicios de dominio notifican por la bandeja de salida.
+ */
 public class NotificacionEmailService implements INotificacionService {
 
-    private final String servidorSMTP;
+    private final SistemaEmailExterno email;
+    private final IRepositorio<Usuario> repoUsuario;
 
-    // Constructor con parámetro
-    public NotificacionEmailService(String servidorSMTP) {
-        this.servidorSMTP = servidorSMTP != null ? servidorSMTP : "smtp.biblioteca.com";
+    public NotificacionEmailService(SistemaEmailExterno email, IRepositorio<Usuario> repoUsuario) {
+        this.email = email;
+        this.repoUsuario = repoUsuario;
     }
 
-    public NotificacionEmailService() {
-        this.servidorSMTP = "smtp.biblioteca.com";
+    @Override
+    public Resultado enviarNotificacion(String idUsuario, String mensaje) {
+        return enviarLote(idUsuario, List.of(mensaje));
     }
 
+    /**
+     * Un solo correo con todos los mensajes del usuario.
+     */
     @Override
-    public Resultado enviarNotificacion(String idUsuario, String mensaje) {
+    public Resultado enviarLote(String idUsuario, List<String> mensajes) {
         try {
-            System.out.println("NOTIFICACIÓN ENVIADA");
-            System.out.println("Servidor SMTP: " + servidorSMTP);
-            System.out.println("Destinatario (ID): " + idUsuario);
-            System.out.println("Mensaje: " + mensaje);
-
-            return Resultado.Exitoso("Notificación enviada exitosamente", null);
+            email.enviarCorreo(destinatario(idUsuario), asunto(mensajes), String.join("\n\n", mensajes));
+            return Resultado.Exitoso("Notificaciones enviadas exitosamente", null);
 
         } catch (Exception e) {
             return Resultado.Fallido("Error al enviar notificación: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private String destinatario(String idUsuario) {
+        Usuario usuario = repoUsuario.obtenerPorId(idUsuario);
+        return usuario != null && usuario.getEmail() != null ? usuario.getEmail() : idUsuario;
+    }
+
+    private static String asunto(List<String> mensajes) {
+        return mensajes.size() == 1
+                ? "Notificación de la biblioteca"
+                : mensajes.size() + " notificaciones de la biblioteca";
+    }
+}
@@ -0,0 +1,142 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.BiConsumer;
+
+import com.biblioteca.dominio.entidades.EBook;
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Prestamo;
+import com.biblioteca.dominio.entidades.Reserva;
+import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.repositorios.IObservadorRepositorio;
+import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
+import com.biblioteca.servicios.interfaces.INotificacionService;
+import com.biblioteca.servicios.interfaces.IReservaService;
+import com.biblioteca.servicios.planificacion.RuedaTemporizadores;
+
+/**
+ * Dispara los vencimientos a su hora en lugar de recorrer los repositorios:
+ * - expiración de reservas (y el plazo de retiro tras avisar disponibilidad),
+ * - recordatorio un día antes de la devolución de un préstamo,
+ * - vencimiento de la licencia de un EBook.
+ *
+ * Los temporizadores se arman observando los repositorios, que al registrarse
+ * entregan lo ya cargado: tras un reinicio se rearman desde el estado
+ * persistido. Al disparar se vuelve a leer la entidad, así un temporizador
+ * viejo no hace nada.
+ */
+public class PlanificadorVencimientosService implements AutoCloseable {
+
+    private static final long TIC_MS = Long.getLong("biblioteca.temporizadores.ticMs", 1000);
+    private static final int DIAS_RECORDATORIO = 1;
+
+    private final IRepositorio<Prestamo> repoPrestamo;
+    private final IRepositorio<Material> repoMaterial;
+    private final IReservaService reservas;
+    private final INotificacionService notificador;
+    private final RuedaTemporizadores rueda;
+
+    public PlanificadorVencimientosService(
+            IRepositorio<Reserva> repoReserva,
+            IRepositorio<Prestamo> repoPrestamo,
+            IRepositorio<Material> repoMaterial,
+            IReservaService reservas,
+            INotificacionService notificador) {
+        this.repoPrestamo = repoPrestamo;
+        this.repoMaterial = repoMaterial;
+        this.reservas = reservas;
+        this.notificador = notificador;
+        this.rueda = new RuedaTemporizadores(TIC_MS);
+
+        repoReserva.agregarObservador(observador(this::armarReserva, "reserva:"));
+        repoPrestamo.agregarObservador(observador(this::armarPrestamo, "prestamo:"));
+        repoMaterial.agregarObservador(observador(this::armarLicencia, "ebook:"));
+        rueda.iniciar();
+    }
+
+    public int getTemporizadoresPendientes() {
+        return rueda.pendientes();
+    }
+
+    @Override
+    public void close() {
+        rueda.close();
+    }
+
+    private void armarReserva(String id, Reserva reserva) {
+        if (reserva.getEstado() != EstadoTransaccion.ACTIVA || reserva.getFechaExpiracion() == null) {
+            rueda.cancelar("reserva:" + id);
+            return;
+        }
+        rueda.programar("reserva:" + id, aMilis(reserva.getFechaExpiracion()),
+                () -> reservas.expirarReserva(id));
+    }
+
+    private void armarPrestamo(String id, Prestamo prestamo) {
+        LocalDateTime vence = prestamo.getFechaDevolucionEsperada();
+        LocalDateTime aviso = vence != null ? vence.minusDays(DIAS_RECORDATORIO) : null;
+        // Si el momento del aviso ya pasó no se repite (por ejemplo, al reiniciar)
+        if (prestamo.getEstado() != EstadoTransaccion.ACTIVA || aviso == null
+                || aviso.isBefore(LocalDateTime.now())) {
+            rueda.cancelar("prestamo:" + id);
+            return;
+        }
+        rueda.programar("prestamo:" + id, aMilis(aviso), () -> recordarDevolucion(id));
+    }
+
+    private void armarLicencia(String id, Material material) {
+        if (!(material instanceof EBook)) {
+            return;
+        }
+        LocalDateTime vence = ((EBook) material).getFechaVencimientoLicencia();
+        if (vence == null || vence.isBefore(LocalDateTime.now())) {
+            rueda.cancelar("ebook:" + id);
+            return;
+        }
+        rueda.programar("ebook:" + id, aMilis(vence), () -> avisarFinLicencia(id));
+    }
+
+    private void recordarDevolucion(String idPrestamo) {
+        Prestamo prestamo = repoPrestamo.obtenerPorId(idPrestamo);
+        if (prestamo == null || prestamo.getEstado() != EstadoTransaccion.ACTIVA) {
+            return;
+        }
+        Material material = repoMaterial.obtenerPorId(prestamo.getIdMaterial());
+        notificador.enviarNotificacion(prestamo.getIdUsuario(),
+                "Recordatorio: el préstamo de " + (material != null ? material.getTitulo() : prestamo.getIdMaterial())
+                + " vence el " + prestamo.getFechaDevolucionEsperada().toLocalDate() + ".");
+    }
+
+    private void avisarFinLicencia(String idMaterial) {
+        Material material = repoMaterial.obtenerPorId(idMaterial);
+        if (!(material instanceof EBook)) {
+            return;
+        }
+        repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_MATERIAL, idMaterial)
+                        .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA))
+                .getElementos()
+                .forEach(prestamo -> notificador.enviarNotificacion(prestamo.getIdUsuario(),
+                        "La licencia del e-book " + material.getTitulo() + " venció; ya no estará disponible."));
+    }
+
+    private static long aMilis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private <T> IObservadorRepositorio<T> observador(BiConsumer<String, T> armar, String prefijo) {
+        return new IObservadorRepositorio<T>() {
+            @Override
+            public void alGuardar(String id, T entidad) {
+                armar.accept(id, entidad);
+            }
+
+            @Override
+            public void alEliminar(String id, T entidad) {
+                rueda.cancelar(prefijo + id);
+            }
+        };
+    }
+}
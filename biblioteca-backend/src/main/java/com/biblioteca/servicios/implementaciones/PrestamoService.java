@@ -3,7 +3,6 @@ package com.biblioteca.servicios.implementaciones;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -19,9 +18,12 @@ import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.factories.ContextoCreacionPrestamo;
+import com.biblioteca.dominio.objetosvalor.ContextoSolicitud;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.IDisponibilidadService;
 import com.biblioteca.servicios.interfaces.INotificacionService;
 import com.biblioteca.servicios.interfaces.IPoliticaTiempoService;
@@ -72,7 +74,9 @@ public class PrestamoService implements IPrestamoService {
     public Resultado registrarPrestamo(String idUsuario, String idMaterial, String tipoPrestamo) {
         try {
             // PASO 1: Validar todas las reglas de negocio
-            ResultadoValidacion validacion = validadorReglas.validarPrestamo(idUsuario, idMaterial);
+            // (el contexto carga usuario y material una vez y se reutiliza hasta el final)
+            ContextoSolicitud solicitud = validadorReglas.crearSolicitud(idUsuario, idMaterial);
+            ResultadoValidacion validacion = validadorReglas.validarPrestamo(solicitud);
             
             if (!validacion.esValido()) {
                 return Resultado.Fallido(
@@ -82,8 +86,8 @@ public class PrestamoService implements IPrestamoService {
             }
 
             // PASO 2: Obtener entidades necesarias
-            Usuario usuario = repositorioUsuario.obtenerPorId(idUsuario);
-            Material material = repositorioMaterial.obtenerPorId(idMaterial);
+            Usuario usuario = solicitud.getUsuario();
+            Material material = solicitud.getMaterial();
 
             if (usuario == null) {
                 return Resultado.Fallido("Usuario no encontrado");
@@ -93,7 +97,7 @@ public class PrestamoService implements IPrestamoService {
             }
 
             // PASO 3: Verificar que el material sea prestable según su tipo
-            if (!disponibilidadService.materialEsPrestable(idMaterial, material.getTipo())) {
+            if (!disponibilidadService.materialEsPrestable(material)) {
                 return Resultado.Fallido(
                     "El material de tipo " + material.getTipo() + " no es prestable"
                 );
@@ -116,17 +120,32 @@ public class PrestamoService implements IPrestamoService {
 
             Prestamo prestamo = crearPrestamoSegunTipo(tipoPrestamo, contexto);
 
-            // PASO 6: Guardar el préstamo
-            Resultado resultadoGuardado = repositorioPrestamo.agregar(prestamo);
+            // PASO 6: Reclamar el material sobre una copia (compare-and-set por
+            // versión). Si otra solicitud lo prestó desde que se validó, esta
+            // pierde y no se guarda nada.
+            Resultado reclamo = ReintentoOptimista.modificar(repositorioMaterial, idMaterial, copia ->
+                copia.reclamarParaPrestamo()
+                    ? Resultado.Exitoso("Material reclamado", copia)
+                    : Resultado.Fallido(
+                        "No se puede realizar el préstamo: el material acaba de ser prestado a otro usuario"));
+            if (!reclamo.getExito()) {
+                return reclamo;
+            }
+
+            // PASO 7: Guardar el préstamo; si falla, devolver el material a disponible
+            Resultado resultadoGuardado;
+            try {
+                resultadoGuardado = repositorioPrestamo.agregar(prestamo);
+            } catch (RuntimeException e) {
+                liberarReclamo(idMaterial);
+                throw e;
+            }
             
             if (!resultadoGuardado.getExito()) {
+                liberarReclamo(idMaterial);
                 return Resultado.Fallido("Error al guardar el préstamo: " + resultadoGuardado.getMensaje());
             }
 
-            // PASO 7: Actualizar estado del material a PRESTADO
-            material.marcarComoPrestado();
-            repositorioMaterial.actualizar(material);
-
             // PASO 8: Notificar al usuario
             notificacionService.enviarNotificacion(
                 idUsuario,
@@ -145,10 +164,8 @@ public class PrestamoService implements IPrestamoService {
 
     @Override
     public List<Prestamo> obtenerPrestamosActivos(String idUsuario) {
-        return repositorioPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getIdUsuario().equals(idUsuario))
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-                .collect(Collectors.toList());
+        return repositorioPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)).getElementos();
     }
 
     @Override
@@ -156,6 +173,13 @@ public class PrestamoService implements IPrestamoService {
         return repositorioPrestamo.obtenerPorId(idPrestamo);
     }
 
+    private void liberarReclamo(String idMaterial) {
+        ReintentoOptimista.modificar(repositorioMaterial, idMaterial, copia -> {
+            copia.liberarReclamo();
+            return Resultado.Exitoso("Reclamo liberado", copia);
+        });
+    }
+
     private Prestamo crearPrestamoSegunTipo(String tipoPrestamo, ContextoCreacionPrestamo contexto) {
 
         IPrestamoFactory factory = factories.get(tipoPrestamo.toLowerCase());
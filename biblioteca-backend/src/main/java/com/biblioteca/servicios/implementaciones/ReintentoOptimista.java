@@ -0,0 +1,65 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.biblioteca.dominio.entidades.IVersionada;
+import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.IRepositorio;
+
+/**
+ * Reintentos para operaciones que guardan con actualizarConVersion: si la
+ * operación termina en conflicto (otro actualizó la entidad después de que
+ * la leyó), se vuelve a ejecutar completa, releyendo y revalidando sobre el
+ * estado nuevo. La operación debe devolver el Resultado de conflicto tal
+ * cual, sin envolverlo en otro fallo.
+ */
+public final class ReintentoOptimista {
+
+    private static final int MAXIMO_INTENTOS = Integer.getInteger("biblioteca.reintentos.maximo", 5);
+    private static final long ESPERA_BASE_NANOS = 100_000;
+
+    private ReintentoOptimista() {
+    }
+
+    /**
+     * @return el primer resultado que no es conflicto, o el último conflicto
+     *         si se agotan los intentos
+     */
+    public static Resultado ejecutar(Supplier<Resultado> operacion) {
+        Resultado resultado = operacion.get();
+        for (int intento = 1; resultado.esConflicto() && intento < MAXIMO_INTENTOS; intento++) {
+            // Espera aleatoria y creciente: los que chocaron no vuelven a chocar a la vez
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ESPERA_BASE_NANOS << intento));
+            resultado = operacion.get();
+        }
+        return resultado;
+    }
+
+    /**
+     * Lee-modifica-escribe sobre una copia: aplica el cambio a la copia de
+     * la entidad y la guarda con actualizarConVersion, volviendo a leer si
+     * otro la actualizó en el medio. Nadie ve el cambio antes de guardarlo.
+     *
+     * @param cambio modifica la copia; si devuelve un fallo, no se guarda nada
+     * @return el fallo del cambio, el de la escritura, o un Exitoso con la
+     *         entidad guardada como dato
+     */
+    public static <T extends IVersionada> Resultado modificar(
+            IRepositorio<T> repositorio, String id, Function<T, Resultado> cambio) {
+        return ejecutar(() -> {
+            T copia = repositorio.obtenerCopia(id);
+            if (copia == null) {
+                return Resultado.Fallido("No se encontró la entidad con ID " + id);
+            }
+            long version = copia.getVersion();
+            Resultado validacion = cambio.apply(copia);
+            if (!validacion.getExito()) {
+                return validacion;
+            }
+            return repositorio.actualizarConVersion(copia, version);
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.biblioteca.servicios.implementaciones;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.biblioteca.dominio.entidades.MensajeSalida;
+import com.biblioteca.dominio.objetosvalor.Resultado;
+import com.biblioteca.repositorios.IRepositorioMensajeSalida;
+
+/**
+ * Relay de la bandeja de salida: pasa los mensajes pendientes al
+ * despachador y los borra recién cuando el despachador confirma que se
+ * entregaron. Solo ve los mensajes ya confirmados en disco, así nunca borra
+ * (ni envía) uno cuya unidad de trabajo todavía no escribió su marco.
+ *
+ * - El despachador agrupa por usuario: un correo con todos sus mensajes.
+ * - Si la cola del despachador está llena, el resto espera en la bandeja
+ *   a la pasada siguiente.
+ * - Reintenta con espera exponencial; el mensaje no se pierde nunca.
+ * - Recuerda los IDs entregados recientemente para no reenviar si el
+ *   borrado falló. Tras una caída entre el envío y el borrado, el mensaje
+ *   puede salir una segunda vez (entrega al menos una vez).
+ */
+public class RelayBandejaSalida implements AutoCloseable {
+
+    private static final long INTERVALO_MS = Long.getLong("biblioteca.salida.intervaloMs", 500);
+    private static final Duration ESPERA_INICIAL = Duration.ofSeconds(5);
+    private static final Duration ESPERA_MAXIMA = Duration.ofMinutes(10);
+    private static final int ENTREGADOS_RECORDADOS = 10_000;
+
+    private final IRepositorioMensajeSalida repoMensajeSalida;
+    private final DespachadorNotificaciones despachador;
+    private final ScheduledExecutorService programador;
+    private final Set<String> entregados;
+    // Pasados al despachador y todavía sin resultado: no se vuelven a tomar
+    private final Set<String> enVuelo = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder reintentos = new LongAdder();
+    private final LongAdder duplicadosEvitados = new LongAdder();
+    private final LongAdder contrapresion = new LongAdder();
+
+    public RelayBandejaSalida(
+            IRepositorioMensajeSalida repoMensajeSalida,
+            DespachadorNotificaciones despachador) {
+        this.repoMensajeSalida = repoMensajeSalida;
+        this.despachador = despachador;
+        this.entregados = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> mayor) {
+                return size() > ENTREGADOS_RECORDADOS;
+            }
+        }));
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "relay-salida");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::publicarPendientesProgramado,
+                INTERVALO_MS, INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Una pasada sobre la bandeja. Solo la ejecuta el hilo del relay
+     * (o quien lo llame directamente, sincronizado con él).
+     */
+    public synchronized void publicarPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<MensajeSalida> listos = repoMensajeSalida.streamConfirmados()
+                .filter(m -> m.listoParaEnviar(ahora))
+                .filter(m -> !enVuelo.contains(m.getId()))
+                .sorted(Comparator.comparing(MensajeSalida::getFechaCreacion))
+                .collect(Collectors.toList());
+
+        for (MensajeSalida mensaje : listos) {
+            if (entregados.contains(mensaje.getId())) {
+                duplicadosEvitados.increment();
+                repoMensajeSalida.eliminar(mensaje.getId());
+                continue;
+            }
+            // Se marca antes de despachar: el resultado puede llegar antes de que vuelva despachar
+            enVuelo.add(mensaje.getId());
+            CompletableFuture<Resultado> entrega = despachador.despachar(mensaje.getIdUsuario(), mensaje.getMensaje());
+            if (entrega == null) {
+                enVuelo.remove(mensaje.getId());
+                contrapresion.increment();
+                return;
+            }
+            entrega.whenComplete((resultado, error) -> alEntregar(mensaje, resultado, error));
+        }
+    }
+
+    public Map<String, Long> getMetricas() {
+        Map<String, Long> metricas = new LinkedHashMap<>();
+        metricas.put("enviados", enviados.sum());
+        metricas.put("reintentos", reintentos.sum());
+        metricas.put("duplicadosEvitados", duplicadosEvitados.sum());
+        metricas.put("contrapresion", contrapresion.sum());
+        metricas.put("enVuelo", (long) enVuelo.size());
+        metricas.put("pendientes", repoMensajeSalida.contar());
+        despachador.getMetricas().forEach((clave, valor) -> metricas.put("despacho." + clave, valor));
+        return metricas;
+    }
+
+    /**
+     * Deja de tomar mensajes de la bandeja. Los que están en vuelo se
+     * confirman al cerrar el despachador, que debe cerrarse después.
+     */
+    @Override
+    public void close() {
+        programador.shutdown();
+        try {
+            programador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Se borra de la bandeja solo lo entregado; lo demás queda con su
+     * próximo intento.
+     */
+    private void alEntregar(MensajeSalida mensaje, Resultado resultado, Throwable error) {
+        try {
+            if (error == null && resultado.getExito()) {
+                entregados.add(mensaje.getId());
+                enviados.increment();
+                repoMensajeSalida.eliminar(mensaje.getId());
+            } else {
+                String motivo = error != null ? error.getMessage() : resultado.getMensaje();
+                mensaje.registrarFallo(motivo, LocalDateTime.now().plus(espera(mensaje.getIntentos())));
+                repoMensajeSalida.actualizar(mensaje);
+                reintentos.increment();
+            }
+        } catch (RuntimeException e) {
+            System.err.println("No se pudo registrar la entrega de " + mensaje.getId() + ": " + e.getMessage());
+        } finally {
+            enVuelo.remove(mensaje.getId());
+        }
+    }
+
+    /**
+     * 5 s, 10 s, 20 s... hasta un máximo de 10 minutos entre intentos.
+     */
+    private static Duration espera(int intentosPrevios) {
+        Duration espera = ESPERA_INICIAL.multipliedBy(1L << Math.min(intentosPrevios, 16));
+        return espera.compareTo(ESPERA_MAXIMA) > 0 ? ESPERA_MAXIMA : espera;
+    }
+
+    private void publicarPendientesProgramado() {
+        try {
+            publicarPendientes();
+        } catch (RuntimeException e) {
+            System.err.println("No se pudo publicar la bandeja de salida: " + e.getMessage());
+        }
+    }
+}
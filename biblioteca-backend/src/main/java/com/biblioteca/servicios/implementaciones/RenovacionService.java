@@ -15,6 +15,8 @@ import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.IPoliticaTiempoService;
 import com.biblioteca.servicios.interfaces.IRenovacionService;
 
@@ -100,9 +102,10 @@ public class RenovacionService implements IRenovacionService {
         }
 
         // VALIDACIÓN 5: No hay reservas pendientes sobre el material
-        boolean hayReservas = repositorioReserva.obtenerTodos().stream()
-                .anyMatch(r -> r.getIdMaterial().equals(prestamo.getIdMaterial()) && 
-                              r.getEstado() == EstadoTransaccion.ACTIVA);
+        boolean hayReservas = !repositorioReserva.buscar(
+                Criterio.donde(Campos.RESERVA_MATERIAL, prestamo.getIdMaterial())
+                        .y(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA))
+                .estaVacio();
 
         if (hayReservas) {
             errores.add("No se puede renovar: hay reservas pendientes sobre este material");
@@ -122,10 +125,27 @@ public class RenovacionService implements IRenovacionService {
         return ResultadoValidacion.Valido();
     }
 
+    /**
+     * Se trabaja sobre una copia del préstamo leída antes de validar: si
+     * otra operación (una devolución, otra renovación) lo actualizó en el
+     * medio, se vuelve a validar sobre el estado nuevo en vez de pisarlo.
+     */
     @Override
     public Resultado renovarPrestamo(String idPrestamo) {
+        return ReintentoOptimista.ejecutar(() -> intentarRenovar(idPrestamo));
+    }
+
+    private Resultado intentarRenovar(String idPrestamo) {
         try {
-            // PASO 1: Validar que se puede renovar
+            // PASO 1: Obtener el préstamo
+            Prestamo prestamo = repositorioPrestamo.obtenerCopia(idPrestamo);
+            
+            if (prestamo == null) {
+                return Resultado.Fallido("Préstamo no encontrado");
+            }
+            long version = prestamo.getVersion();
+
+            // PASO 2: Validar que se puede renovar
             ResultadoValidacion validacion = validarRenovacion(idPrestamo);
             
             if (!validacion.esValido()) {
@@ -135,13 +155,6 @@ public class RenovacionService implements IRenovacionService {
                 );
             }
 
-            // PASO 2: Obtener el préstamo
-            Prestamo prestamo = repositorioPrestamo.obtenerPorId(idPrestamo);
-            
-            if (prestamo == null) {
-                return Resultado.Fallido("Préstamo no encontrado");
-            }
-
             // PASO 3: Obtener datos necesarios para calcular nueva fecha
             Material material = repositorioMaterial.obtenerPorId(prestamo.getIdMaterial());
             Usuario usuario = repositorioUsuario.obtenerPorId(prestamo.getIdUsuario());
@@ -163,8 +176,11 @@ public class RenovacionService implements IRenovacionService {
             prestamo.incrementarRenovaciones();
 
             // PASO 6: Guardar cambios
-            Resultado resultadoActualizacion = repositorioPrestamo.actualizar(prestamo);
+            Resultado resultadoActualizacion = repositorioPrestamo.actualizarConVersion(prestamo, version);
             
+            if (resultadoActualizacion.esConflicto()) {
+                return resultadoActualizacion;
+            }
             if (!resultadoActualizacion.getExito()) {
                 return Resultado.Fallido("Error al actualizar el préstamo: " + resultadoActualizacion.getMensaje());
             }
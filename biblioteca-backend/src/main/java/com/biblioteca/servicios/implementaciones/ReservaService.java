@@ -2,7 +2,6 @@ package com.biblioteca.servicios.implementaciones;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Reserva;
@@ -10,9 +9,14 @@ import com.biblioteca.dominio.entidades.ReservaInterbibliotecaria;
 import com.biblioteca.dominio.entidades.ReservaNormal;
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
+import com.biblioteca.dominio.objetosvalor.ContextoSolicitud;
 import com.biblioteca.dominio.objetosvalor.Resultado;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.IRepositorioReserva;
+import com.biblioteca.repositorios.IUnidadTrabajo;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.IDisponibilidadService;
 import com.biblioteca.servicios.interfaces.INotificacionService;
 import com.biblioteca.servicios.interfaces.IReservaService;
@@ -20,30 +24,43 @@ import com.biblioteca.servicios.interfaces.IValidadorReglasService;
 
 public class ReservaService implements IReservaService {
     
-    private final IRepositorio<Reserva> repoReserva;
+    private final IRepositorioReserva repoReserva;
     private final IRepositorio<Material> repoMaterial;
     private final IDisponibilidadService disponibilidad;
     private final IValidadorReglasService validador;
     private final INotificacionService notificador;
+    private final IUnidadTrabajo unidadTrabajo;
     
     public ReservaService(
-            IRepositorio<Reserva> repoReserva,
+            IRepositorioReserva repoReserva,
             IRepositorio<Material> repoMaterial,
             IDisponibilidadService disponibilidad,
             IValidadorReglasService validador,
             INotificacionService notificador) {
+        this(repoReserva, repoMaterial, disponibilidad, validador, notificador, IUnidadTrabajo.DIRECTA);
+    }
+    
+    public ReservaService(
+            IRepositorioReserva repoReserva,
+            IRepositorio<Material> repoMaterial,
+            IDisponibilidadService disponibilidad,
+            IValidadorReglasService validador,
+            INotificacionService notificador,
+            IUnidadTrabajo unidadTrabajo) {
         
         this.repoReserva = repoReserva;
         this.repoMaterial = repoMaterial;
         this.disponibilidad = disponibilidad;
         this.validador = validador;
         this.notificador = notificador;
+        this.unidadTrabajo = unidadTrabajo;
     }
     
     @Override
     public Resultado crearReserva(String idUsuario, String idMaterial, String tipoReserva) {
         try {
-            ResultadoValidacion validacion = validador.validarReserva(idUsuario, idMaterial);
+            ContextoSolicitud solicitud = validador.crearSolicitud(idUsuario, idMaterial);
+            ResultadoValidacion validacion = validador.validarReserva(solicitud);
             if (!validacion.esValido()) {
                 return Resultado.Fallido(validacion.getErrores().get(0));
             }
@@ -52,7 +69,7 @@ public class ReservaService implements IReservaService {
                 return Resultado.Fallido("El usuario ya tiene una reserva activa para este material");
             }
             
-            Material material = repoMaterial.obtenerPorId(idMaterial);
+            Material material = solicitud.getMaterial();
             if (material == null) {
                 return Resultado.Fallido("Material no encontrado");
             }
@@ -64,19 +81,13 @@ public class ReservaService implements IReservaService {
             }
             
             Reserva reserva = crearReservaSegunTipo(idUsuario, idMaterial, tipoReserva);
-            
-            int posicion = calcularPosicionCola(idMaterial);
-            reserva.setPosicionCola(posicion);
-            
             Resultado resultado = repoReserva.agregar(reserva);
             
             if (resultado.getExito()) {
-                if (material.getEstado() == EstadoMaterial.DISPONIBLE) {
-                    material.marcarComoReservado();
-                    repoMaterial.actualizar(material);
-                }
+                actualizarEstadoMaterial(idMaterial);
                 
-                String mensaje = "Reserva creada exitosamente. Posición en cola: " + posicion;
+                String mensaje = "Reserva creada exitosamente. Posición en cola: "
+                        + repoReserva.posicionEnCola(reserva);
                 notificador.enviarNotificacion(idUsuario, mensaje);
             }
             
@@ -95,19 +106,19 @@ public class ReservaService implements IReservaService {
                 return Resultado.Fallido("Reserva no encontrada");
             }
             
-            if (reserva.getEstado() != EstadoTransaccion.ACTIVA) {
-                return Resultado.Fallido("La reserva no está activa");
-            }
-            
-            reserva.setEstado(EstadoTransaccion.CANCELADA);
-            Resultado resultado = repoReserva.actualizar(reserva);
+            Resultado resultado = ReintentoOptimista.modificar(repoReserva, idReserva, copia -> {
+                if (copia.getEstado() != EstadoTransaccion.ACTIVA) {
+                    return Resultado.Fallido("La reserva no está activa");
+                }
+                copia.setEstado(EstadoTransaccion.CANCELADA);
+                return Resultado.Exitoso("Reserva cancelada", copia);
+            });
             
             if (resultado.getExito()) {
                 notificador.enviarNotificacion(
                     reserva.getIdUsuario(),
                     "Su reserva ha sido cancelada exitosamente."
                 );
-                actualizarPosicionesCola(reserva.getIdMaterial());
                 actualizarEstadoMaterial(reserva.getIdMaterial());
             }
             
@@ -126,9 +137,15 @@ public class ReservaService implements IReservaService {
                 return Resultado.Fallido("Reserva no encontrada");
             }
             
-            reserva.setFechaNotificacion(LocalDateTime.now());
-            reserva.setFechaExpiracion(LocalDateTime.now().plusHours(24));
-            repoReserva.actualizar(reserva);
+            LocalDateTime ahora = LocalDateTime.now();
+            Resultado aviso = ReintentoOptimista.modificar(repoReserva, idReserva, copia -> {
+                copia.setFechaNotificacion(ahora);
+                copia.setFechaExpiracion(ahora.plusHours(24));
+                return Resultado.Exitoso("Reserva notificada", copia);
+            });
+            if (!aviso.getExito()) {
+                return aviso;
+            }
             
             Material material = repoMaterial.obtenerPorId(reserva.getIdMaterial());
             String mensaje = "El material " + (material != null ? material.getTitulo() : "") + 
@@ -141,44 +158,52 @@ public class ReservaService implements IReservaService {
         }
     }
     
+    @Override
+    public Resultado expirarReserva(String idReserva) {
+        try {
+            Reserva reserva = repoReserva.obtenerPorId(idReserva);
+            if (reserva == null || reserva.getEstado() != EstadoTransaccion.ACTIVA) {
+                return Resultado.Fallido("La reserva no está activa");
+            }
+            if (reserva.getFechaExpiracion().isAfter(LocalDateTime.now())) {
+                return Resultado.Fallido("La reserva todavía no expiró");
+            }
+            
+            Resultado resultado = unidadTrabajo.ejecutar(() -> expirar(reserva));
+            actualizarEstadoMaterial(reserva.getIdMaterial());
+            return resultado;
+            
+        } catch (Exception e) {
+            return Resultado.Fallido("Error al expirar reserva: " + e.getMessage());
+        }
+    }
+    
     public List<Reserva> obtenerReservasActivasPorUsuario(String idUsuario) {
         LocalDateTime ahora = LocalDateTime.now();
-        return repoReserva.obtenerTodos().stream()
-            .filter(r -> r.getIdUsuario().equals(idUsuario))
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(r -> r.getFechaExpiracion().isAfter(ahora))
-            .collect(Collectors.toList());
+        return repoReserva.buscar(
+                Criterio.donde(Campos.RESERVA_USUARIO, idUsuario)
+                    .y(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)
+                    .mayorQue(Campos.RESERVA_EXPIRACION, ahora))
+            .getElementos();
     }
     
     public List<Reserva> obtenerReservasActivasPorMaterial(String idMaterial) {
-        LocalDateTime ahora = LocalDateTime.now();
-        return repoReserva.obtenerTodos().stream()
-            .filter(r -> r.getIdMaterial().equals(idMaterial))
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(r -> r.getFechaExpiracion().isAfter(ahora))
-            .sorted((r1, r2) -> Integer.compare(r1.getPosicionCola(), r2.getPosicionCola()))
-            .collect(Collectors.toList());
+        return repoReserva.buscarActivasPorMaterial(idMaterial);
     }
     
     public Reserva obtenerSiguienteEnCola(String idMaterial) {
-        List<Reserva> activas = obtenerReservasActivasPorMaterial(idMaterial);
-        return activas.isEmpty() ? null : activas.get(0);
+        return repoReserva.buscarPrimeraEnCola(idMaterial);
     }
     
     public void limpiarReservasExpiradas() {
         LocalDateTime ahora = LocalDateTime.now();
-        List<Reserva> expiradas = repoReserva.obtenerTodos().stream()
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(r -> r.getFechaExpiracion().isBefore(ahora))
-            .collect(Collectors.toList());
+        List<Reserva> expiradas = repoReserva.buscar(
+                Criterio.donde(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)
+                    .menorQue(Campos.RESERVA_EXPIRACION, ahora))
+            .getElementos();
         
         for (Reserva reserva : expiradas) {
-            reserva.setEstado(EstadoTransaccion.CANCELADA);
-            repoReserva.actualizar(reserva);
-            notificador.enviarNotificacion(
-                reserva.getIdUsuario(),
-                "Su reserva ha expirado por falta de recogida."
-            );
+            unidadTrabajo.ejecutar(() -> expirar(reserva));
         }
         
         expiradas.stream()
@@ -187,6 +212,27 @@ public class ReservaService implements IReservaService {
             .forEach(id -> this.actualizarEstadoMaterial(id));
     }
     
+    /**
+     * Cancela la reserva y deja su aviso; cada cancelación se confirma junto
+     * con él. Si otra operación ya la cerró, no se avisa nada.
+     */
+    private Resultado expirar(Reserva reserva) {
+        Resultado cancelacion = ReintentoOptimista.modificar(repoReserva, reserva.getId(), copia -> {
+            if (copia.getEstado() != EstadoTransaccion.ACTIVA) {
+                return Resultado.Fallido("La reserva no está activa");
+            }
+            copia.setEstado(EstadoTransaccion.CANCELADA);
+            return Resultado.Exitoso("Reserva cancelada", copia);
+        });
+        if (!cancelacion.getExito()) {
+            return cancelacion;
+        }
+        String aviso = reserva.getFechaNotificacion() != null
+                ? "Venció el plazo para retirar el material reservado."
+                : "Su reserva ha expirado por falta de recogida.";
+        return notificador.enviarNotificacion(reserva.getIdUsuario(), aviso);
+    }
+    
     private Reserva crearReservaSegunTipo(String idUsuario, String idMaterial, String tipoReserva) {
         if ("INTERBIBLIOTECARIA".equalsIgnoreCase(tipoReserva)) {
             return new ReservaInterbibliotecaria(("RES-" + java.util.UUID.randomUUID().toString().substring(0,6)), idUsuario, idMaterial, "Biblioteca Central");
@@ -195,44 +241,35 @@ public class ReservaService implements IReservaService {
         }
     }
     
-    private int calcularPosicionCola(String idMaterial) {
-        LocalDateTime ahora = LocalDateTime.now();
-        return (int) repoReserva.obtenerTodos().stream()
-            .filter(r -> r.getIdMaterial().equals(idMaterial))
-            .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-            .filter(r -> r.getFechaExpiracion().isAfter(ahora))
-            .count() + 1;
-    }
-    
-    private void actualizarPosicionesCola(String idMaterial) {
-        List<Reserva> activas = obtenerReservasActivasPorMaterial((idMaterial));
-        for (int i = 0; i < activas.size(); i++) {
-            activas.get(i).setPosicionCola(i + 1);
-            repoReserva.actualizar(activas.get(i));
-        }
-    }
-    
+    /**
+     * Decide sobre una copia del material: si un préstamo o una devolución
+     * lo cambió en el medio, se vuelve a decidir sobre su estado nuevo.
+     */
     private void actualizarEstadoMaterial(String idMaterial) {
-        List<Reserva> activas = obtenerReservasActivasPorMaterial((idMaterial));
-        Material material = repoMaterial.obtenerPorId(idMaterial);
-        
-        if (material != null) {
-            if (activas.isEmpty() && material.getEstado() != EstadoMaterial.PRESTADO) {
-                material.marcarComoDisponible();
-                repoMaterial.actualizar(material);
-            } else if (!activas.isEmpty() && material.getEstado() == EstadoMaterial.DISPONIBLE) {
-                material.marcarComoReservado();
-                repoMaterial.actualizar(material);
-            }
+        boolean hayEnCola = repoReserva.buscarPrimeraEnCola(idMaterial) != null;
+        if (repoMaterial.obtenerPorId(idMaterial) == null) {
+            return;
         }
+        ReintentoOptimista.modificar(repoMaterial, idMaterial, copia -> {
+            if (!hayEnCola && copia.getEstado() != EstadoMaterial.PRESTADO
+                    && copia.getEstado() != EstadoMaterial.DISPONIBLE) {
+                copia.marcarComoDisponible();
+            } else if (hayEnCola && copia.getEstado() == EstadoMaterial.DISPONIBLE) {
+                copia.marcarComoReservado();
+            } else {
+                return Resultado.Fallido("El material no cambia de estado");
+            }
+            return Resultado.Exitoso("Estado del material actualizado", copia);
+        });
     }
     
     private boolean tieneReservaActiva(String idUsuario, String idMaterial) {
         LocalDateTime ahora = LocalDateTime.now();
-        return repoReserva.obtenerTodos().stream()
-            .anyMatch(r -> r.getIdUsuario().equals(idUsuario) &&
-                          r.getIdMaterial().equals(idMaterial) &&
-                          r.getEstado() == EstadoTransaccion.ACTIVA &&
-                          r.getFechaExpiracion().isAfter(ahora));
+        return !repoReserva.buscar(
+                Criterio.donde(Campos.RESERVA_USUARIO, idUsuario)
+                    .y(Campos.RESERVA_MATERIAL, idMaterial)
+                    .y(Campos.RESERVA_ESTADO, EstadoTransaccion.ACTIVA)
+                    .mayorQue(Campos.RESERVA_EXPIRACION, ahora))
+            .estaVacio();
     }
 }
\ No newline at end of file
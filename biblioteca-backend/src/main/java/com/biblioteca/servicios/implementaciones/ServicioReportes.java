@@ -2,6 +2,13 @@ package com.biblioteca.servicios.implementaciones;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Multa;
@@ -14,13 +21,18 @@ import com.biblioteca.dominio.enumeraciones.EstadoTransaccion;
 import com.biblioteca.dominio.enumeraciones.EstadoUsuario;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
+import com.biblioteca.dominio.objetosvalor.ReporteSistema;
 import com.biblioteca.repositorios.IRepositorio;
+import com.biblioteca.repositorios.consulta.Campos;
+import com.biblioteca.repositorios.consulta.Criterio;
 import com.biblioteca.servicios.interfaces.ILimitePrestamoService;
 import com.biblioteca.servicios.interfaces.IPoliticaTiempoService;
 import com.biblioteca.servicios.interfaces.IServicioReportes;
 
 public class ServicioReportes implements IServicioReportes {
 
+    private static final long UMBRAL_PARALELO = 50_000;
+
     private final IRepositorio<Material> repoMaterial;
     private final IRepositorio<Usuario> repoUsuario;
     private final IRepositorio<Prestamo> repoPrestamo;
@@ -29,6 +41,7 @@ public class ServicioReportes implements IServicioReportes {
 
     private final ILimitePrestamoService limiteService;
     private final IPoliticaTiempoService politicaTiempoService;
+    private final EstadisticasEnVivo estadisticas;
 
     public ServicioReportes(
             IRepositorio<Material> repoMaterial,
@@ -38,6 +51,19 @@ public class ServicioReportes implements IServicioReportes {
             IRepositorio<Multa> repoMulta,
             ILimitePrestamoService limiteService,
             IPoliticaTiempoService politicaTiempoService) {
+        this(repoMaterial, repoUsuario, repoPrestamo, repoReserva, repoMulta,
+                limiteService, politicaTiempoService, null);
+    }
+
+    public ServicioReportes(
+            IRepositorio<Material> repoMaterial,
+            IRepositorio<Usuario> repoUsuario,
+            IRepositorio<Prestamo> repoPrestamo,
+            IRepositorio<Reserva> repoReserva,
+            IRepositorio<Multa> repoMulta,
+            ILimitePrestamoService limiteService,
+            IPoliticaTiempoService politicaTiempoService,
+            EstadisticasEnVivo estadisticas) {
         
         this.repoMaterial = repoMaterial;
         this.repoUsuario = repoUsuario;
@@ -46,6 +72,7 @@ public class ServicioReportes implements IServicioReportes {
         this.repoMulta = repoMulta;
         this.limiteService = limiteService;
         this.politicaTiempoService = politicaTiempoService;
+        this.estadisticas = estadisticas;
     }
 
     @Override
@@ -55,14 +82,15 @@ public class ServicioReportes implements IServicioReportes {
             return "Usuario no encontrado";
         }
 
-        int prestamosActivos = (int) repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getIdUsuario().equals(idUsuario) && p.getEstado() == EstadoTransaccion.ACTIVA)
-                .count();
+        List<Prestamo> activos = repoPrestamo.buscar(Criterio.donde(Campos.PRESTAMO_USUARIO, idUsuario)
+                .y(Campos.PRESTAMO_ESTADO, EstadoTransaccion.ACTIVA)).getElementos();
+        int prestamosActivos = activos.size();
         int limite = limiteService.obtenerLimiteMaximo(u.getTipo());
 
         // Calculamos multas pendientes directamente del repositorio
-        BigDecimal multasPendientes = repoMulta.obtenerTodos().stream()
-                .filter(m -> m.getIdUsuario().equals(idUsuario) && m.getEstado() == com.biblioteca.dominio.enumeraciones.EstadoMulta.PENDIENTE)
+        BigDecimal multasPendientes = repoMulta.buscar(Criterio.donde(Campos.MULTA_USUARIO, idUsuario)
+                .y(Campos.MULTA_ESTADO, EstadoMulta.PENDIENTE))
+                .getElementos().stream()
                 .map(m -> BigDecimal.valueOf(m.calcularMontoTotal()))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
@@ -87,34 +115,63 @@ public class ServicioReportes implements IServicioReportes {
             }
         }
 
+        if (!activos.isEmpty()) {
+            // Los títulos de todos los préstamos se piden de una vez
+            Map<String, Material> materiales = repoMaterial.obtenerPorIds(
+                    activos.stream().map(Prestamo::getIdMaterial).collect(Collectors.toSet()));
+            sb.append("Materiales en préstamo:\n");
+            for (Prestamo p : activos) {
+                Material m = materiales.get(p.getIdMaterial());
+                sb.append("  • ").append(p.getIdMaterial());
+                if (m != null) {
+                    sb.append(" - ").append(m.getTitulo());
+                }
+                sb.append("\n");
+            }
+        }
+
         return sb.toString();
     }
 
+    /**
+     * Con estadísticas en vivo se leen sus contadores; si no, todos los
+     * contadores en una sola pasada por repositorio. Los repositorios
+     * grandes se recorren en paralelo (fork-join sobre su spliterator) y
+     * los acumuladores parciales se combinan al final.
+     */
     @Override
-    public String generarEstadisticasGenerales() {
-        long totalMateriales = repoMaterial.contar();
-        long totalUsuarios = repoUsuario.contar();
-        long prestamosActivos = repoPrestamo.obtenerTodos().stream()
-                .filter(p -> p.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(p -> p.getFechaDevolucionReal() == null)
-                .count();
-        long reservasActivas = repoReserva.obtenerTodos().stream()
-                .filter(r -> r.getEstado() == EstadoTransaccion.ACTIVA)
-                .filter(r -> r.getFechaExpiracion().isAfter(LocalDateTime.now()))
-                .count();
-        long multasPendientes = repoMulta.obtenerTodos().stream()
-                .filter(m -> m.getEstado() == EstadoMulta.PENDIENTE)
-                .count();
+    public ReporteSistema generarReporte() {
+        if (estadisticas != null) {
+            return estadisticas.instantanea();
+        }
+        LocalDateTime ahora = LocalDateTime.now();
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n ESTADÍSTICAS GENERALES:\n");
-        sb.append("Total materiales: ").append(totalMateriales).append("\n");
-        sb.append("Total usuarios: ").append(totalUsuarios).append("\n");
-        sb.append("Préstamos activos: ").append(prestamosActivos).append("\n");
-        sb.append("Reservas activas: ").append(reservasActivas).append("\n");
-        sb.append("Multas pendientes: ").append(multasPendientes).append("\n");
+        ConteoPorEstado<EstadoMaterial> materiales = recorrer(repoMaterial,
+                () -> new ConteoPorEstado<>(EstadoMaterial.class),
+                (conteo, m) -> conteo.sumar(m.getEstado(), 0));
+        ConteoPorEstado<EstadoUsuario> usuarios = recorrer(repoUsuario,
+                () -> new ConteoPorEstado<>(EstadoUsuario.class),
+                (conteo, u) -> conteo.sumar(u.getEstado(), 0));
+        ConteoPorEstado<EstadoTransaccion> prestamos = recorrer(repoPrestamo,
+                () -> new ConteoPorEstado<>(EstadoTransaccion.class),
+                (conteo, p) -> conteo.sumar(EstadisticasEnVivo.estadoPrestamo(p), 0));
+        ConteoPorEstado<EstadoTransaccion> reservas = recorrer(repoReserva,
+                () -> new ConteoPorEstado<>(EstadoTransaccion.class),
+                (conteo, r) -> conteo.sumar(EstadisticasEnVivo.estadoReserva(r, ahora), 0));
+        ConteoPorEstado<EstadoMulta> multas = recorrer(repoMulta,
+                () -> new ConteoPorEstado<>(EstadoMulta.class),
+                (conteo, m) -> conteo.sumar(m.getEstado(), m.calcularMontoTotal()));
 
-        return sb.toString();
+        return new ReporteSistema(ahora, repoMaterial.contar(), repoUsuario.contar(),
+                materiales.cantidades(), usuarios.cantidades(),
+                prestamos.cantidades(), prestamos.sinEstado(),
+                reservas.cantidades(), reservas.sinEstado(),
+                multas.cantidades(), multas.montos());
+    }
+
+    @Override
+    public String generarEstadisticasGenerales() {
+        return renderizarEstadisticas(generarReporte());
     }
 
     @Override
@@ -154,49 +211,115 @@ public class ServicioReportes implements IServicioReportes {
 
     @Override
     public String generarReporteCompleto() {
+        ReporteSistema reporte = generarReporte();
+
         StringBuilder sb = new StringBuilder();
         sb.append("\nREPORTE COMPLETO DEL SISTEMA\n");
         sb.append("=".repeat(60)).append("\n");
 
-        sb.append(generarEstadisticasGenerales());
+        sb.append(renderizarEstadisticas(reporte));
 
         sb.append("\nMATERIALES POR ESTADO:\n");
-        for (EstadoMaterial em : EstadoMaterial.values()) {
-            long count = repoMaterial.obtenerTodos().stream()
-                    .filter(m -> m.getEstado() == em)
-                    .count();
-            if (count > 0) {
-                sb.append(String.format("  %s: %d%n", em, count));
+        reporte.getMaterialesPorEstado().forEach((estado, cantidad) -> {
+            if (cantidad > 0) {
+                sb.append(String.format("  %s: %d%n", estado, cantidad));
             }
-        }
+        });
 
         sb.append("\nUSUARIOS POR ESTADO:\n");
-        for (EstadoUsuario eu : EstadoUsuario.values()) {
-            long count = repoUsuario.obtenerTodos().stream()
-                    .filter(u -> u.getEstado() == eu)
-                    .count();
-            if (count > 0) {
-                sb.append(String.format("  %s: %d%n", eu, count));
+        reporte.getUsuariosPorEstado().forEach((estado, cantidad) -> {
+            if (cantidad > 0) {
+                sb.append(String.format("  %s: %d%n", estado, cantidad));
             }
-        }
+        });
 
         sb.append("\nMULTAS POR ESTADO:\n");
-        double totalMultas = 0;
-        for (EstadoMulta em : EstadoMulta.values()) {
-            double suma = repoMulta.obtenerTodos().stream()
-                    .filter(m -> m.getEstado() == em)
-                    .mapToDouble(Multa::calcularMontoTotal)
-                    .sum();
+        reporte.getMontoMultasPorEstado().forEach((estado, suma) -> {
             if (suma > 0) {
-                sb.append(String.format("  %s: $%.2f%n", em, suma));
-                if (em == EstadoMulta.PENDIENTE) {
-                    totalMultas += suma;
-                }
+                sb.append(String.format("  %s: $%.2f%n", estado, suma));
             }
-        }
-        sb.append(String.format("  TOTAL PENDIENTE: $%.2f%n", totalMultas));
+        });
+        sb.append(String.format("  TOTAL PENDIENTE: $%.2f%n", reporte.getMontoMultasPendientes()));
+
+        return sb.toString();
+    }
 
+    private static String renderizarEstadisticas(ReporteSistema reporte) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n ESTADÍSTICAS GENERALES:\n");
+        sb.append("Total materiales: ").append(reporte.getTotalMateriales()).append("\n");
+        sb.append("Total usuarios: ").append(reporte.getTotalUsuarios()).append("\n");
+        sb.append("Préstamos activos: ").append(reporte.getPrestamosActivos()).append("\n");
+        sb.append("Reservas activas: ").append(reporte.getReservasActivas()).append("\n");
+        if (reporte.getReservasExpiradas() > 0) {
+            sb.append("Reservas expiradas sin cancelar: ").append(reporte.getReservasExpiradas()).append("\n");
+        }
+        sb.append("Multas pendientes: ").append(reporte.getMultasPendientes()).append("\n");
         return sb.toString();
     }
 
+    private static <T, A extends ConteoPorEstado<?>> A recorrer(
+            IRepositorio<T> repositorio, Supplier<A> nuevo, BiConsumer<A, T> acumular) {
+        Stream<T> elementos = repositorio.stream();
+        if (repositorio.contar() >= UMBRAL_PARALELO) {
+            elementos = elementos.parallel();
+        }
+        return elementos.collect(nuevo, acumular, (a, b) -> a.combinar(b));
+    }
+
+    /**
+     * Acumulador por estado: cantidades y montos en arreglos indexados por
+     * ordinal (sin boxing en la pasada); se entregan como EnumMap al final.
+     * Una clave nula se cuenta aparte, en sinEstado.
+     */
+    private static final class ConteoPorEstado<E extends Enum<E>> {
+        private final Class<E> tipo;
+        private final long[] cantidades;
+        private final double[] montos;
+        private long sinEstado;
+
+        private ConteoPorEstado(Class<E> tipo) {
+            this.tipo = tipo;
+            int estados = tipo.getEnumConstants().length;
+            this.cantidades = new long[estados];
+            this.montos = new double[estados];
+        }
+
+        void sumar(E estado, double monto) {
+            if (estado == null) {
+                sinEstado++;
+                return;
+            }
+            cantidades[estado.ordinal()]++;
+            montos[estado.ordinal()] += monto;
+        }
+
+        void combinar(ConteoPorEstado<?> otro) {
+            for (int i = 0; i < cantidades.length; i++) {
+                cantidades[i] += otro.cantidades[i];
+                montos[i] += otro.montos[i];
+            }
+            sinEstado += otro.sinEstado;
+        }
+
+        private long sinEstado() {
+            return sinEstado;
+        }
+
+        private EnumMap<E, Long> cantidades() {
+            EnumMap<E, Long> resultado = new EnumMap<>(tipo);
+            for (E estado : tipo.getEnumConstants()) {
+                resultado.put(estado, cantidades[estado.ordinal()]);
+            }
+            return resultado;
+        }
+
+        private EnumMap<E, Double> montos() {
+            EnumMap<E, Double> resultado = new EnumMap<>(tipo);
+            for (E estado : tipo.getEnumConstants()) {
+                resultado.put(estado, montos[estado.ordinal()]);
+            }
+            return resultado;
+        }
+    }
 }
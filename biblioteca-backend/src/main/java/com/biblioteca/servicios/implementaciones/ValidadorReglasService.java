@@ -2,7 +2,9 @@ package com.biblioteca.servicios.implementaciones;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Usuario;
@@ -13,6 +15,7 @@ import com.biblioteca.servicios.interfaces.IGestorBloqueoService;
 import com.biblioteca.servicios.interfaces.ILimitePrestamoService;
 import com.biblioteca.servicios.interfaces.IReglaValidacion;
 import com.biblioteca.servicios.interfaces.IValidadorReglasService;
+import com.biblioteca.dominio.objetosvalor.ContextoSolicitud;
 import com.biblioteca.dominio.objetosvalor.ContextoValidacion;
 import com.biblioteca.dominio.enumeraciones.TipoOperacion;
 
@@ -40,8 +43,10 @@ public class ValidadorReglasService implements IValidadorReglasService {
     private final IRepositorio<Usuario> repoUsuario;
     private final IRepositorio<Material> repoMaterial;
     
-    // Lista de reglas personalizadas (Strategy + Composite Pattern)
-    private final List<IReglaValidacion> reglas;
+    // Reglas personalizadas (Strategy + Composite Pattern), ya ordenadas por operación.
+    // Es inmutable: registrar/eliminar arman una cadena nueva y la publican de una vez,
+    // así las validaciones en curso nunca ven la lista a medio modificar.
+    private volatile CadenaReglas cadena;
     
     /**
      * Constructor con inyección de dependencias
@@ -58,36 +63,48 @@ public class ValidadorReglasService implements IValidadorReglasService {
         this.bloqueoService = bloqueoService;
         this.repoUsuario = repoUsuario;
         this.repoMaterial = repoMaterial;
-        this.reglas = new ArrayList<>();
+        this.cadena = new CadenaReglas(List.of());
     }
     
     /**
      * Registrar una nueva regla de validación
      * Permite extensibilidad (OCP)
      */
-    public void registrarRegla(IReglaValidacion regla) {
-        this.reglas.add(regla);
+    public synchronized void registrarRegla(IReglaValidacion regla) {
+        List<IReglaValidacion> nuevas = new ArrayList<>(cadena.registradas);
+        nuevas.add(regla);
+        cadena = new CadenaReglas(nuevas);
     }
     
     /**
      * Eliminar una regla de validación
      */
-    public boolean eliminarRegla(IReglaValidacion regla) {
-        return this.reglas.remove(regla);
+    public synchronized boolean eliminarRegla(IReglaValidacion regla) {
+        List<IReglaValidacion> nuevas = new ArrayList<>(cadena.registradas);
+        if (!nuevas.remove(regla)) {
+            return false;
+        }
+        cadena = new CadenaReglas(nuevas);
+        return true;
     }
     
     /**
      * Obtener todas las reglas registradas
      */
     public List<IReglaValidacion> obtenerReglas() {
-        return new ArrayList<>(reglas);
+        return new ArrayList<>(cadena.registradas);
     }
     
     /**
      * Limpiar todas las reglas
      */
-    public void limpiarReglas() {
-        reglas.clear();
+    public synchronized void limpiarReglas() {
+        cadena = new CadenaReglas(List.of());
+    }
+    
+    @Override
+    public ContextoSolicitud crearSolicitud(String idUsuario, String idMaterial) {
+        return new ContextoSolicitud(idUsuario, idMaterial, repoUsuario::obtenerPorId, repoMaterial::obtenerPorId);
     }
     
     /**
@@ -102,6 +119,13 @@ public class ValidadorReglasService implements IValidadorReglasService {
      */
     @Override
     public ResultadoValidacion validarPrestamo(String idUsuario, String idMaterial) {
+        return validarPrestamo(crearSolicitud(idUsuario, idMaterial));
+    }
+    
+    @Override
+    public ResultadoValidacion validarPrestamo(ContextoSolicitud solicitud) {
+        String idUsuario = solicitud.getIdUsuario();
+        String idMaterial = solicitud.getIdMaterial();
         
         // Validar parámetros de entrada
         if (idUsuario == null || idUsuario.trim().isEmpty()) {
@@ -112,13 +136,13 @@ public class ValidadorReglasService implements IValidadorReglasService {
         }
         
         // 1. Validar que el usuario existe
-        Usuario usuario = repoUsuario.obtenerPorId(idUsuario);
+        Usuario usuario = solicitud.getUsuario();
         if (usuario == null) {
             return ResultadoValidacion.Invalido("Usuario no encontrado: " + idUsuario);
         }
         
         // 2. Validar que el material existe
-        Material material = repoMaterial.obtenerPorId(idMaterial);
+        Material material = solicitud.getMaterial();
         if (material == null) {
             return ResultadoValidacion.Invalido("Material no encontrado: " + idMaterial);
         }
@@ -127,24 +151,24 @@ public class ValidadorReglasService implements IValidadorReglasService {
         ResultadoValidacion resultado = ResultadoValidacion.Valido();
         
         // 3. Validar disponibilidad del material
-        if (!disponibilidadService.verificarDisponibilidad(idMaterial)) {
+        if (!disponibilidadService.verificarDisponibilidad(material)) {
             resultado = resultado.combinar(
                 ResultadoValidacion.Invalido("Material no disponible: " + material.getTitulo())
             );
         }
         
         // 4. Validar que el usuario no está bloqueado
-        ResultadoValidacion validacionBloqueo = bloqueoService.verificarSiDebeBloquear(idUsuario);
+        ResultadoValidacion validacionBloqueo = bloqueoService.verificarSiDebeBloquear(usuario);
         resultado = resultado.combinar(validacionBloqueo);
         
         // 5. Validar límites del usuario (solo si las validaciones anteriores pasaron)
         if (resultado.esValido()) {
-            ResultadoValidacion validacionLimite = limiteService.validarLimite(idUsuario, usuario.getTipo());
+            ResultadoValidacion validacionLimite = limiteService.validarLimite(usuario);
             resultado = resultado.combinar(validacionLimite);
         }
         
         // 6. Aplicar reglas personalizadas (ordenadas por prioridad)
-        resultado = aplicarReglas(idUsuario, idMaterial, resultado, TipoOperacion.PRESTAMO);
+        resultado = aplicarReglas(solicitud, resultado, TipoOperacion.PRESTAMO);
         
         return resultado;
     }
@@ -154,6 +178,13 @@ public class ValidadorReglasService implements IValidadorReglasService {
      */
     @Override
     public ResultadoValidacion validarReserva(String idUsuario, String idMaterial) {
+        return validarReserva(crearSolicitud(idUsuario, idMaterial));
+    }
+    
+    @Override
+    public ResultadoValidacion validarReserva(ContextoSolicitud solicitud) {
+        String idUsuario = solicitud.getIdUsuario();
+        String idMaterial = solicitud.getIdMaterial();
         
         // Validar parámetros de entrada
         if (idUsuario == null || idUsuario.trim().isEmpty()) {
@@ -164,13 +195,13 @@ public class ValidadorReglasService implements IValidadorReglasService {
         }
         
         // 1. Validar que el usuario existe
-        Usuario usuario = repoUsuario.obtenerPorId(idUsuario);
+        Usuario usuario = solicitud.getUsuario();
         if (usuario == null) {
             return ResultadoValidacion.Invalido("Usuario no encontrado: " + idUsuario);
         }
         
         // 2. Validar que el material existe
-        Material material = repoMaterial.obtenerPorId(idMaterial);
+        Material material = solicitud.getMaterial();
         if (material == null) {
             return ResultadoValidacion.Invalido("Material no encontrado: " + idMaterial);
         }
@@ -179,11 +210,11 @@ public class ValidadorReglasService implements IValidadorReglasService {
         ResultadoValidacion resultado = ResultadoValidacion.Valido();
         
         // 3. Validar que el usuario no está bloqueado
-        ResultadoValidacion validacionBloqueo = bloqueoService.verificarSiDebeBloquear(idUsuario);
+        ResultadoValidacion validacionBloqueo = bloqueoService.verificarSiDebeBloquear(usuario);
         resultado = resultado.combinar(validacionBloqueo);
         
         // 4. Para reserva, el material NO debe estar disponible (esa es la razón de reservar)
-        if (disponibilidadService.verificarDisponibilidad(idMaterial)) {
+        if (disponibilidadService.verificarDisponibilidad(material)) {
             resultado = resultado.combinar(
                 ResultadoValidacion.Invalido("El material está disponible. No requiere reserva: " + material.getTitulo())
             );
@@ -200,7 +231,7 @@ public class ValidadorReglasService implements IValidadorReglasService {
         }
         
         // 5. Aplicar reglas personalizadas
-        resultado = aplicarReglas(idUsuario, idMaterial, resultado, TipoOperacion.RESERVA);
+        resultado = aplicarReglas(solicitud, resultado, TipoOperacion.RESERVA);
         
         return resultado;
     }
@@ -223,20 +254,14 @@ public class ValidadorReglasService implements IValidadorReglasService {
         // Crear contexto simplificado para renovación (sin usuario/material específicos)
         ContextoValidacion contexto = new ContextoValidacion(null, null, null, null, TipoOperacion.RENOVAR);
         
-        // Aplicar reglas que apliquen a renovación
-        List<IReglaValidacion> reglasOrdenadas = new ArrayList<>(reglas);
-        reglasOrdenadas.sort(Comparator.comparingInt(IReglaValidacion::obtenerPrioridad));
-        
-        for (IReglaValidacion regla : reglasOrdenadas) {
-            // Solo aplicar reglas que sean relevantes para renovación
-            if (esReglaAplicableARenovacion(regla)) {
-                ResultadoValidacion resultadoRegla = regla.validar(contexto);
-                resultado = resultado.combinar(resultadoRegla);
-                
-                // Si ya es inválido, podemos detenernos
-                if (!resultado.esValido()) {
-                    break;
-                }
+        // Aplicar reglas que apliquen a renovación (ya filtradas y ordenadas)
+        for (IReglaValidacion regla : cadena.para(TipoOperacion.RENOVAR)) {
+            ResultadoValidacion resultadoRegla = regla.validar(contexto);
+            resultado = resultado.combinar(resultadoRegla);
+            
+            // Si ya es inválido, podemos detenernos
+            if (!resultado.esValido()) {
+                break;
             }
         }
         
@@ -257,51 +282,32 @@ public class ValidadorReglasService implements IValidadorReglasService {
         return ResultadoValidacion.Valido();
     }
     
-    /**
-     * Determina si una regla es aplicable para renovación
-     */
-    private boolean esReglaAplicableARenovacion(IReglaValidacion regla) {
-        // Las reglas de usuario y material generalmente aplican
-        String nombreRegla = regla.getClass().getSimpleName();
-        return nombreRegla.contains("Usuario") || 
-               nombreRegla.contains("Material") ||
-               nombreRegla.contains("Limite");
-    }
-    
     /**
      * Aplica todas las reglas personalizadas registradas
      * Las ejecuta en orden de prioridad (Strategy + Composite Pattern)
      * Cada regla es una estrategia de validación independiente;
      * el orquestador las compone combinando sus resultados.
      * 
-     * @param idUsuario ID del usuario
-     * @param idMaterial ID del material
+     * @param solicitud Contexto de la solicitud (entidades ya cargadas)
      * @param resultadoAcumulado Resultado acumulado hasta el momento
      * @param operacion Tipo de operación (Préstamo, Reserva, etc.)
      * @return Resultado combinado de todas las reglas
      */
-    private ResultadoValidacion aplicarReglas(String idUsuario, String idMaterial, 
+    private ResultadoValidacion aplicarReglas(ContextoSolicitud solicitud,
                                                ResultadoValidacion resultadoAcumulado, TipoOperacion operacion) {
         
-        // Si no hay reglas, retornar el resultado acumulado
-        if (reglas.isEmpty()) {
+        // Si no hay reglas para la operación, retornar el resultado acumulado
+        IReglaValidacion[] reglas = cadena.para(operacion);
+        if (reglas.length == 0) {
             return resultadoAcumulado;
         }
         
-        // Obtener usuario y material (pueden ser null)
-        Usuario usuario = repoUsuario.obtenerPorId(idUsuario);
-        Material material = repoMaterial.obtenerPorId(idMaterial);
-        
-        // Crear contexto para las reglas
-        ContextoValidacion contexto = new ContextoValidacion(idUsuario, idMaterial, usuario, material, operacion);
+        // Crear contexto para las reglas (reutiliza usuario y material de la solicitud)
+        ContextoValidacion contexto = new ContextoValidacion(solicitud, operacion);
         
-        // Ordenar reglas por prioridad (menor número = mayor prioridad)
-        List<IReglaValidacion> reglasOrdenadas = new ArrayList<>(reglas);
-        reglasOrdenadas.sort(Comparator.comparingInt(IReglaValidacion::obtenerPrioridad));
-        
-        // Aplicar cada regla
+        // Aplicar cada regla (la cadena ya está ordenada por prioridad)
         ResultadoValidacion resultado = resultadoAcumulado;
-        for (IReglaValidacion regla : reglasOrdenadas) {
+        for (IReglaValidacion regla : reglas) {
             
             // Ejecutar la regla
             ResultadoValidacion resultadoRegla = regla.validar(contexto);
@@ -317,4 +323,34 @@ public class ValidadorReglasService implements IValidadorReglasService {
         
         return resultado;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Cadena compilada: las reglas de cada operación, filtradas por
+     * operacionesAplicables() y ordenadas por prioridad (menor número =
+     * mayor prioridad; a igual prioridad, en orden de registro).
+     */
+    private static final class CadenaReglas {
+        private static final IReglaValidacion[] VACIA = new IReglaValidacion[0];
+        
+        private final List<IReglaValidacion> registradas;
+        private final Map<TipoOperacion, IReglaValidacion[]> porOperacion;
+        
+        CadenaReglas(List<IReglaValidacion> registradas) {
+            this.registradas = List.copyOf(registradas);
+            this.porOperacion = new EnumMap<>(TipoOperacion.class);
+            
+            List<IReglaValidacion> ordenadas = new ArrayList<>(registradas);
+            ordenadas.sort(Comparator.comparingInt(IReglaValidacion::obtenerPrioridad));
+            for (TipoOperacion operacion : TipoOperacion.values()) {
+                porOperacion.put(operacion, ordenadas.stream()
+                        .filter(regla -> regla.operacionesAplicables().contains(operacion))
+                        .toArray(IReglaValidacion[]::new));
+            }
+        }
+        
+        IReglaValidacion[] para(TipoOperacion operacion) {
+            IReglaValidacion[] reglas = porOperacion.get(operacion);
+            return reglas != null ? reglas : VACIA;
+        }
+    }
+}
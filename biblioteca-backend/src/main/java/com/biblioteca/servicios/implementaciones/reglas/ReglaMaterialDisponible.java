@@ -1,5 +1,8 @@
 package com.biblioteca.servicios.implementaciones.reglas;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.dominio.objetosvalor.ContextoValidacion;
@@ -23,13 +26,8 @@ public class ReglaMaterialDisponible implements IReglaValidacion {
         
         Material material = contexto.getMaterial();
         
-        // Si es reserva, la regla de estar disponible no aplica
-        if (contexto.getOperacion() == TipoOperacion.RESERVA) {
-            return ResultadoValidacion.Valido();
-        }
-        
         // Usar el servicio de disponibilidad
-        boolean disponible = disponibilidadService.verificarDisponibilidad(material.getId());
+        boolean disponible = disponibilidadService.verificarDisponibilidad(material);
         
         if (!disponible) {
             return ResultadoValidacion.Invalido(
@@ -44,4 +42,12 @@ public class ReglaMaterialDisponible implements IReglaValidacion {
     public int obtenerPrioridad() {
         return 2;
     }
+    
+    /**
+     * En una reserva el material justamente no está disponible.
+     */
+    @Override
+    public Set<TipoOperacion> operacionesAplicables() {
+        return EnumSet.of(TipoOperacion.PRESTAMO, TipoOperacion.RENOVAR);
+    }
 }
\ No newline at end of file
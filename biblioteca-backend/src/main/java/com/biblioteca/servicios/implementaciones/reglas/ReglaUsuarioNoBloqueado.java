@@ -19,7 +19,7 @@ public class ReglaUsuarioNoBloqueado implements IReglaValidacion {
             return ResultadoValidacion.Invalido("Usuario no encontrado en el contexto");
         }
         
-        return bloqueoService.verificarSiDebeBloquear(contexto.getIdUsuario());
+        return bloqueoService.verificarSiDebeBloquear(contexto.getUsuario());
     }
     
     @Override
@@ -6,10 +6,16 @@ import com.biblioteca.dominio.objetosvalor.Resultado;
 
 public interface IAdministracionFacade {
     Resultado agregarMaterial(Material material);
+
+    /**
+     * Copia del material para editarla y guardarla con actualizarMaterial;
+     * si otro lo actualizó mientras tanto, el guardado da conflicto.
+     */
+    Material obtenerMaterialParaEditar(String id);
     Resultado actualizarMaterial(Material material);
     Resultado agregarUsuario(Usuario usuario);
     Resultado bloquearUsuario(String idUsuario, String motivo);
     Resultado desbloquearUsuario(String idUsuario);
     Resultado pagarMulta(String idMulta);
 }
-
+
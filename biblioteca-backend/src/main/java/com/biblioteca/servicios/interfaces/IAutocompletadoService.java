@@ -0,0 +1,28 @@
+package com.biblioteca.servicios.interfaces;
+
+import java.util.List;
+import java.util.Map;
+
+import com.biblioteca.dominio.entidades.Material;
+import com.biblioteca.dominio.entidades.Usuario;
+
+/**
+ * Completa lo que se va escribiendo: materiales por título o autor y
+ * usuarios por nombre o email, primero los que más préstamos tienen.
+ */
+public interface IAutocompletadoService {
+
+    List<Material> completarMateriales(String prefijo, int limite);
+
+    List<Usuario> completarUsuarios(String prefijo, int limite);
+
+    /**
+     * Como completarUsuarios, corrigiendo las palabras mal escritas del prefijo.
+     */
+    List<Usuario> completarUsuariosAproximado(String prefijo, int limite);
+
+    /**
+     * Memoria estimada y presupuesto de los índices, entre otros contadores.
+     */
+    Map<String, Long> getMetricas();
+}
@@ -1,6 +1,8 @@
 package com.biblioteca.servicios.interfaces;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.entidades.Multa;
@@ -8,17 +10,42 @@ import com.biblioteca.dominio.entidades.Prestamo;
 import com.biblioteca.dominio.entidades.Reserva;
 import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
+import com.biblioteca.dominio.objetosvalor.BusquedaCatalogo;
+import com.biblioteca.dominio.objetosvalor.Pagina;
 public interface IConsultaFacade {
-    List<Material> listarMateriales();
+    /**
+     * Máximo de resultados de buscarMateriales y buscarUsuarios.
+     */
+    int LIMITE_BUSQUEDA = 50;
+
+    Pagina<Material> listarMateriales(String cursor, int limite);
+
+    /**
+     * Primero el material con ese ID exacto; si no, los que tienen todas las
+     * palabras del criterio (por relevancia); si no hay, los que empiezan
+     * así, después los que lo contienen en el ID, título o autor, y por
+     * último los parecidos. Devuelve a lo sumo LIMITE_BUSQUEDA; el total de
+     * coincidencias lo da buscarMaterialesConFacetas.
+     */
     List<Material> buscarMateriales(String criterio);
+    BusquedaCatalogo buscarMaterialesConFacetas(String criterio, int limite);
+    List<Material> autocompletarMateriales(String prefijo, int limite);
     Material obtenerMaterialPorId(String id);
+    Map<String, Material> obtenerMaterialesPorIds(Collection<String> ids);
     List<Material> obtenerMaterialesDisponibles();
     List<Material> obtenerMaterialesPrestados();
     boolean verificarDisponibilidad(String idMaterial);
     EstadoMaterial obtenerEstadoActual(String idMaterial);
     boolean materialEsPrestable(String idMaterial, com.biblioteca.dominio.enumeraciones.TipoMaterial tipo);
-    List<Usuario> listarUsuarios();
+    Pagina<Usuario> listarUsuarios(String cursor, int limite);
+
+    /**
+     * El usuario con ese ID exacto; si no, los que tienen una palabra que
+     * empieza así (por cantidad de préstamos) y, hasta LIMITE_BUSQUEDA,
+     * los que lo contienen en el ID, nombre o email. Sin ninguno, los parecidos.
+     */
     List<Usuario> buscarUsuarios(String criterio);
+    List<Usuario> autocompletarUsuarios(String prefijo, int limite);
     Usuario obtenerUsuarioPorId(String id);
     List<Usuario> obtenerUsuariosActivos();
     List<Usuario> obtenerUsuariosBloqueados();
@@ -38,4 +65,4 @@ public interface IConsultaFacade {
     String generarPoliticasTiempo();
     String generarReporteCompleto();
 }
-
+
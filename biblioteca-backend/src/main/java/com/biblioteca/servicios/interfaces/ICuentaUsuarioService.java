@@ -0,0 +1,16 @@
+package com.biblioteca.servicios.interfaces;
+
+import com.biblioteca.dominio.objetosvalor.CuentaUsuario;
+
+/**
+ * Vista agregada por usuario de multas y préstamos.
+ *
+ * Respeta SRP: solo mantiene los totales; decidir bloqueos es de IGestorBloqueoService.
+ */
+public interface ICuentaUsuarioService {
+
+    /**
+     * @return foto de la cuenta del usuario (vacía si no tiene movimientos)
+     */
+    CuentaUsuario obtenerCuenta(String idUsuario);
+}
@@ -1,5 +1,6 @@
 package com.biblioteca.servicios.interfaces;
 
+import com.biblioteca.dominio.entidades.Material;
 import com.biblioteca.dominio.enumeraciones.EstadoMaterial;
 import com.biblioteca.dominio.enumeraciones.TipoMaterial;
 
@@ -25,4 +26,15 @@ public interface IDisponibilidadService {
      * (Por ejemplo: libros de referencia no son prestables)
      */
     boolean materialEsPrestable(String idMaterial, TipoMaterial tipoMaterial);
+    
+    /**
+     * Variantes con el material ya cargado, para no volver a buscarlo.
+     */
+    default boolean verificarDisponibilidad(Material material) {
+        return material != null && verificarDisponibilidad(material.getId());
+    }
+    
+    default boolean materialEsPrestable(Material material) {
+        return material != null && materialEsPrestable(material.getId(), material.getTipo());
+    }
 }
\ No newline at end of file
@@ -24,6 +24,16 @@ public interface IGestorBloqueoService {
      */
     ResultadoValidacion verificarSiDebeBloquear(String idUsuario);
     
+    /**
+     * Igual que verificarSiDebeBloquear(id) pero con el usuario ya cargado.
+     */
+    default ResultadoValidacion verificarSiDebeBloquear(com.biblioteca.dominio.entidades.Usuario usuario) {
+        if (usuario == null) {
+            return ResultadoValidacion.Invalido("Usuario no encontrado");
+        }
+        return verificarSiDebeBloquear(usuario.getId());
+    }
+    
     /**
      * Bloquea a un usuario especificando el motivo.
      * 
@@ -1,5 +1,6 @@
 package com.biblioteca.servicios.interfaces;
 
+import com.biblioteca.dominio.entidades.Usuario;
 import com.biblioteca.dominio.enumeraciones.TipoUsuario;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 
@@ -7,4 +8,14 @@ public interface ILimitePrestamoService {
     ResultadoValidacion validarLimite(String idUsuario, TipoUsuario tipoUsuario);
     int obtenerLimiteMaximo(TipoUsuario tipoUsuario);
     int cantidadActualPrestada(String idUsuario);
+
+    /**
+     * Igual que validarLimite(id, tipo) pero con el usuario ya cargado.
+     */
+    default ResultadoValidacion validarLimite(Usuario usuario) {
+        if (usuario == null) {
+            return ResultadoValidacion.Invalido("Usuario no encontrado");
+        }
+        return validarLimite(usuario.getId(), usuario.getTipo());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.biblioteca.servicios.interfaces;
 
+import java.util.List;
+
 import com.biblioteca.dominio.objetosvalor.Resultado;
 
 /**
@@ -18,4 +20,19 @@ public interface INotificacionService {
      * @return Resultado indicando éxito o fallo
      */
     Resultado enviarNotificacion(String idUsuario, String mensaje);
+    
+    /**
+     * Envía varios mensajes al mismo usuario. Por defecto uno por uno;
+     * los medios que puedan agruparlos (un solo correo) lo sobrescriben.
+     */
+    default Resultado enviarLote(String idUsuario, List<String> mensajes) {
+        Resultado ultimo = Resultado.Exitoso("Sin mensajes", null);
+        for (String mensaje : mensajes) {
+            ultimo = enviarNotificacion(idUsuario, mensaje);
+            if (!ultimo.getExito()) {
+                return ultimo;
+            }
+        }
+        return ultimo;
+    }
 }
\ No newline at end of file
@@ -1,9 +1,21 @@
 package com.biblioteca.servicios.interfaces;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.biblioteca.dominio.enumeraciones.TipoOperacion;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 import com.biblioteca.dominio.objetosvalor.ContextoValidacion;
 
 public interface IReglaValidacion {
     ResultadoValidacion validar(ContextoValidacion contexto);
     int obtenerPrioridad();
-}
\ No newline at end of file
+
+    /**
+     * Operaciones en las que participa la regla. Se consulta una sola vez,
+     * al registrarla en el validador. Por defecto aplica a todas.
+     */
+    default Set<TipoOperacion> operacionesAplicables() {
+        return EnumSet.allOf(TipoOperacion.class);
+    }
+}
@@ -9,4 +9,10 @@ public interface IReservaService {
     Resultado cancelarReserva(String idReserva);
     
     Resultado notificarDisponibilidad(String idReserva);
+    
+    /**
+     * Cancela la reserva si sigue activa y ya pasó su fecha de expiración
+     * (incluye el plazo de retiro tras notificarDisponibilidad).
+     */
+    Resultado expirarReserva(String idReserva);
 }
\ No newline at end of file
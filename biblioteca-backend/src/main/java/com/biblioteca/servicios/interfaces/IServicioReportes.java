@@ -1,6 +1,9 @@
 package com.biblioteca.servicios.interfaces;
 
+import com.biblioteca.dominio.objetosvalor.ReporteSistema;
+
 public interface IServicioReportes {
+    ReporteSistema generarReporte();
     String generarEstadisticasGenerales();
     String generarEstadoUsuario(String idUsuario);
     String generarLimitesUsuario();
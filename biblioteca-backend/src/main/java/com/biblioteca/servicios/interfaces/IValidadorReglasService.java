@@ -1,5 +1,6 @@
 package com.biblioteca.servicios.interfaces;
 
+import com.biblioteca.dominio.objetosvalor.ContextoSolicitud;
 import com.biblioteca.dominio.objetosvalor.ResultadoValidacion;
 
 /**
@@ -24,4 +25,14 @@ public interface IValidadorReglasService {
      * Valida si se puede renovar un préstamo.
      */
     ResultadoValidacion validarRenovacion(String idPrestamo);
+    
+    /**
+     * Crea el contexto de una solicitud: usuario y material se cargan
+     * una sola vez y se comparten entre validación y servicio.
+     */
+    ContextoSolicitud crearSolicitud(String idUsuario, String idMaterial);
+    
+    ResultadoValidacion validarPrestamo(ContextoSolicitud solicitud);
+    
+    ResultadoValidacion validarReserva(ContextoSolicitud solicitud);
 }
\ No newline at end of file
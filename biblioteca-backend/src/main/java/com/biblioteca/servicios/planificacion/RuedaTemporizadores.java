@@ -0,0 +1,207 @@
+package com.biblioteca.servicios.planificacion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rueda de temporizadores jerárquica (4 niveles de 64 ranuras).
+ *
+ * Con un tic de 1 s el nivel 0 cubre un minuto, el 1 una hora, el 2 unos
+ * tres días y el 3 unos seis meses; lo que vence más lejos espera en el
+ * último nivel y se vuelve a ubicar al bajar. Programar y cancelar son O(1)
+ * (cada ranura es una lista doblemente enlazada y la clave apunta a su
+ * nodo), y en cada tic solo se tocan los temporizadores de esa ranura.
+ *
+ * Cada temporizador tiene una clave: programar otra vez con la misma
+ * clave reemplaza al anterior. Las tareas corren en el hilo de la rueda.
+ */
+public final class RuedaTemporizadores implements AutoCloseable {
+
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int MASCARA = RANURAS - 1;
+    private static final int NIVELES = 4;
+    private static final long ALCANCE = 1L << (BITS * NIVELES);
+
+    private final long ticMs;
+    private final long origenMs;
+    private final Nodo[][] ranuras;
+    private final Map<String, Nodo> porClave;
+    private long ticActual;
+    private ScheduledExecutorService reloj;
+
+    public RuedaTemporizadores(long ticMs) {
+        this(ticMs, System.currentTimeMillis());
+    }
+
+    RuedaTemporizadores(long ticMs, long origenMs) {
+        this.ticMs = ticMs;
+        this.origenMs = origenMs;
+        this.ranuras = new Nodo[NIVELES][RANURAS];
+        for (Nodo[] nivel : ranuras) {
+            for (int i = 0; i < RANURAS; i++) {
+                nivel[i] = Nodo.centinela();
+            }
+        }
+        this.porClave = new HashMap<>();
+    }
+
+    /**
+     * Empieza a avanzar la rueda con el reloj del sistema, un tic por período.
+     */
+    public synchronized void iniciar() {
+        if (reloj != null) {
+            return;
+        }
+        reloj = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "temporizadores");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        reloj.scheduleAtFixedRate(() -> avanzarHasta(System.currentTimeMillis()),
+                ticMs, ticMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Programa la tarea para el instante indicado (epoch en ms). Si ya pasó,
+     * se ejecuta en el próximo tic.
+     */
+    public synchronized void programar(String clave, long instanteMs, Runnable tarea) {
+        Nodo anterior = porClave.remove(clave);
+        if (anterior != null) {
+            anterior.desenlazar();
+        }
+        Nodo nodo = new Nodo(clave, Math.max(0, (instanteMs - origenMs + ticMs - 1) / ticMs), tarea);
+        porClave.put(clave, nodo);
+        ubicar(nodo, ticActual + 1); // la ranura del tic actual ya se procesó
+    }
+
+    public synchronized boolean cancelar(String clave) {
+        Nodo nodo = porClave.remove(clave);
+        if (nodo == null) {
+            return false;
+        }
+        nodo.desenlazar();
+        return true;
+    }
+
+    public synchronized int pendientes() {
+        return porClave.size();
+    }
+
+    /**
+     * Avanza tic a tic hasta el instante dado y ejecuta lo que venció.
+     * Las tareas corren fuera del bloqueo, así pueden programar otras.
+     */
+    public void avanzarHasta(long ahoraMs) {
+        List<Nodo> vencidos = new ArrayList<>();
+        synchronized (this) {
+            long objetivo = (ahoraMs - origenMs) / ticMs;
+            while (ticActual < objetivo) {
+                ticActual++;
+                cascada();
+                Nodo ranura = ranuras[0][(int) (ticActual & MASCARA)];
+                for (Nodo nodo = ranura.siguiente; nodo != ranura; ) {
+                    Nodo siguiente = nodo.siguiente;
+                    nodo.desenlazar();
+                    porClave.remove(nodo.clave, nodo);
+                    vencidos.add(nodo);
+                    nodo = siguiente;
+                }
+            }
+        }
+        for (Nodo nodo : vencidos) {
+            try {
+                nodo.tarea.run();
+            } catch (RuntimeException e) {
+                System.err.println("Falló el temporizador " + nodo.clave + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (reloj != null) {
+            reloj.shutdownNow();
+        }
+    }
+
+    /**
+     * Al completar una vuelta de un nivel, la ranura que toca del nivel
+     * superior se reparte de nuevo: sus temporizadores ya están más cerca.
+     */
+    private void cascada() {
+        for (int nivel = 1; nivel < NIVELES; nivel++) {
+            if ((ticActual & ((1L << (BITS * nivel)) - 1)) != 0) {
+                return;
+            }
+            Nodo ranura = ranuras[nivel][(int) ((ticActual >>> (BITS * nivel)) & MASCARA)];
+            Nodo nodo = ranura.siguiente;
+            ranura.siguiente = ranura;
+            ranura.anterior = ranura;
+            while (nodo != ranura) {
+                Nodo siguiente = nodo.siguiente;
+                ubicar(nodo, ticActual);
+                nodo = siguiente;
+            }
+        }
+    }
+
+    private void ubicar(Nodo nodo, long primerTic) {
+        long vence = Math.max(nodo.vence, primerTic);
+        long distancia = vence - ticActual;
+        if (distancia >= ALCANCE) {
+            // Más allá del último nivel: se reubica cuando esa ranura baje
+            vence = ticActual + ALCANCE - 1;
+            distancia = ALCANCE - 1;
+        }
+        int nivel = 0;
+        while (distancia >= (1L << (BITS * (nivel + 1)))) {
+            nivel++;
+        }
+        ranuras[nivel][(int) ((vence >>> (BITS * nivel)) & MASCARA)].enlazar(nodo);
+    }
+
+    private static final class Nodo {
+        private final String clave;
+        private final long vence; // en tics desde el origen
+        private final Runnable tarea;
+        private Nodo anterior;
+        private Nodo siguiente;
+
+        private Nodo(String clave, long vence, Runnable tarea) {
+            this.clave = clave;
+            this.vence = vence;
+            this.tarea = tarea;
+        }
+
+        private static Nodo centinela() {
+            Nodo centinela = new Nodo(null, 0, null);
+            centinela.anterior = centinela;
+            centinela.siguiente = centinela;
+            return centinela;
+        }
+
+        /** Inserta el nodo al final de la lista cuyo centinela es this. */
+        private void enlazar(Nodo nodo) {
+            nodo.anterior = anterior;
+            nodo.siguiente = this;
+            anterior.siguiente = nodo;
+            anterior = nodo;
+        }
+
+        private void desenlazar() {
+            if (anterior != null) {
+                anterior.siguiente = siguiente;
+                siguiente.anterior = anterior;
+                anterior = null;
+                siguiente = null;
+            }
+        }
+    }
+}